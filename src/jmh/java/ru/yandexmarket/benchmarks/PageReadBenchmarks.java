@@ -0,0 +1,141 @@
+package ru.yandexmarket.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import pages.DomSnapshot;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки чтения выдачи: поиск карточек через XPath и CSS
+ * и получение названий товаров по одной карточке, одним вызовом JavaScript
+ * и из снимка разметки ({@link DomSnapshot}).
+ *
+ * @author Сергей Лужин
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageReadBenchmarks {
+
+    /**
+     * CSS-селектор карточек, эквивалентный локатору ym.card.on.all.pages.
+     *
+     * @author Сергей Лужин
+     */
+    private static final By CARDS_CSS = By.cssSelector("div[data-auto*='SerpList'] "
+            + "div[data-apiary-widget-name*='SnippetConstructor'] div[data-auto-themename*='listDetailed']");
+
+    /**
+     * Карточки выдачи, найденные один раз перед замерами.
+     *
+     * @author Сергей Лужин
+     */
+    private List<WebElement> productCards;
+
+    /**
+     * Находит карточки выдачи для замеров получения названий.
+     *
+     * @param state браузер с открытой выдачей
+     *
+     * @author Сергей Лужин
+     */
+    @Setup(Level.Trial)
+    public void findProductCards(ResultListState state) {
+        productCards = state.page.getAllProductCardsOnPage();
+    }
+
+    /**
+     * Поиск всех карточек по XPath из xpath.properties.
+     *
+     * @param state браузер с открытой выдачей
+     * @return карточки выдачи
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    public List<WebElement> getAllProductCardsOnPage(ResultListState state) {
+        return state.page.getAllProductCardsOnPage();
+    }
+
+    /**
+     * Поиск всех карточек по эквивалентному CSS-селектору.
+     *
+     * @param state браузер с открытой выдачей
+     * @return карточки выдачи
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    public List<WebElement> getAllProductCardsOnPageByCss(ResultListState state) {
+        return state.driver.findElements(CARDS_CSS);
+    }
+
+    /**
+     * Получение названий товаров по одной карточке через WebDriver.
+     *
+     * @param state браузер с открытой выдачей
+     * @return названия товаров
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    public List<String> getAllProductCardTitlesFromList(ResultListState state) {
+        return state.page.getAllProductCardTitlesFromList(productCards);
+    }
+
+    /**
+     * Получение названий товаров одним вызовом JavaScript.
+     *
+     * @param state браузер с открытой выдачей
+     * @return названия товаров
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    public List<String> getAllProductCardTitles(ResultListState state) {
+        return state.page.getAllProductCardTitles();
+    }
+
+    /**
+     * Поиск карточек и получение их названий через элементы WebDriver:
+     * то же чтение выдачи, что {@link #getProductCardTitlesFromSnapshot(ResultListState)}.
+     *
+     * @param state браузер с открытой выдачей
+     * @return названия товаров
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    public List<String> getProductCardTitlesFromLiveElements(ResultListState state) {
+        return state.page.getAllProductCardTitlesFromList(state.page.getAllProductCardsOnPage());
+    }
+
+    /**
+     * Снятие и разбор снимка разметки и получение названий товаров из него.
+     *
+     * @param state браузер с открытой выдачей
+     * @return названия товаров
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    public List<String> getProductCardTitlesFromSnapshot(ResultListState state) {
+        return DomSnapshot.capture(state.driver).getProductCardTitles();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandexmarket.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import pages.YandexMarketBasePage;
+import ru.yandexmarket.FixtureServer;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Браузер с открытой локальной копией выдачи Яндекс Маркета для бенчмарков.
+ *
+ * Для каждого размера выдачи запускается свой headless Chrome и открывается
+ * страница {@link FixtureServer} с заданным количеством карточек,
+ * выведенных сразу, без подгрузки при прокрутке.
+ *
+ * @author Сергей Лужин
+ */
+@State(Scope.Benchmark)
+public class ResultListState {
+
+    /**
+     * Количество карточек в выдаче.
+     *
+     * @author Сергей Лужин
+     */
+    @Param({"10", "100", "1000"})
+    public int cards;
+
+    /**
+     * Экземпляр WebDriver с открытой выдачей.
+     *
+     * @author Сергей Лужин
+     */
+    public WebDriver driver;
+
+    /**
+     * Страница выдачи.
+     *
+     * @author Сергей Лужин
+     */
+    public YandexMarketBasePage page;
+
+    /**
+     * Запускает headless Chrome и открывает выдачу.
+     *
+     * @author Сергей Лужин
+     */
+    @Setup(Level.Trial)
+    public void openResultList() {
+        System.setProperty("webdriver.chrome.driver", testProperties.driverChrome());
+        ChromeOptions options = new ChromeOptions();
+        options.setHeadless(true);
+        options.addArguments("--window-size=1920,1080");
+        driver = new ChromeDriver(options);
+        driver.get(FixtureServer.url("serp.html?count=" + cards));
+        page = new YandexMarketBasePage(driver);
+    }
+
+    /**
+     * Закрывает браузер.
+     *
+     * @author Сергей Лужин
+     */
+    @TearDown(Level.Trial)
+    public void closeBrowser() {
+        driver.quit();
+    }
+}
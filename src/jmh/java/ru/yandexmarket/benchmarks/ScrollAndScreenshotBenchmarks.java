@@ -0,0 +1,177 @@
+package ru.yandexmarket.benchmarks;
+
+import helpers.Screenshoter;
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Status;
+import io.qameta.allure.model.TestResult;
+import org.aeonbits.owner.Mutable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.JavascriptExecutor;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Бенчмарки прокрутки выдачи и снятия скриншотов при разных настройках скриншотов.
+ *
+ * Настройки скриншотов задаются до первого обращения к {@link Screenshoter}:
+ * JMH запускает каждое сочетание параметров в отдельной JVM, поэтому
+ * кодировщик скриншотов создаётся уже с настройками текущего замера.
+ * Скриншоты прикрепляются к синтетическому тесту Allure ({@link AllureTestCase}),
+ * поэтому замеряется тот же путь, что в тестах: съёмка, перекодирование
+ * и запись вложения - в потоке бенчмарка или, при screenshot.async, в фоновом
+ * потоке записи, который при заполненной очереди задерживает поток бенчмарка.
+ *
+ * @author Сергей Лужин
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScrollAndScreenshotBenchmarks {
+
+    /**
+     * Формат скриншотов (screenshot.format).
+     *
+     * @author Сергей Лужин
+     */
+    @Param({"PNG", "JPEG"})
+    public String screenshotFormat;
+
+    /**
+     * Запись скриншотов в фоновом потоке (screenshot.async).
+     *
+     * @author Сергей Лужин
+     */
+    @Param({"false", "true"})
+    public String screenshotAsync;
+
+    /**
+     * Применяет настройки скриншотов текущего замера. Отсев повторов выключается,
+     * чтобы одинаковые кадры неподвижной страницы не пропускались.
+     *
+     * @author Сергей Лужин
+     */
+    @Setup(Level.Trial)
+    public void configureScreenshots() {
+        Mutable properties = testProperties;
+        properties.setProperty("screenshot.policy", "ALWAYS");
+        properties.setProperty("screenshot.format", screenshotFormat);
+        properties.setProperty("screenshot.async", screenshotAsync);
+        properties.setProperty("screenshot.dedup.enabled", "false");
+    }
+
+    /**
+     * Плавная прокрутка выдачи до низа со скриншотом на каждом шаге.
+     *
+     * @param state     браузер с открытой выдачей
+     * @param pageAtTop страница, возвращённая наверх
+     * @param testCase  тест Allure, к которому прикрепляются скриншоты
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void scrollToBottomOfPage(ResultListState state, PageAtTop pageAtTop, AllureTestCase testCase) {
+        state.page.scrollToBottomOfPage();
+    }
+
+    /**
+     * Снятие одного скриншота страницы.
+     *
+     * @param state    браузер с открытой выдачей
+     * @param testCase тест Allure, к которому прикрепляются скриншоты
+     *
+     * @author Сергей Лужин
+     */
+    @Benchmark
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void attachScreenshot(ResultListState state, AllureTestCase testCase) {
+        Screenshoter.attachScreenshot("Бенчмарк", state.driver);
+    }
+
+    /**
+     * Страница, возвращённая наверх перед каждой прокруткой вниз.
+     *
+     * @author Сергей Лужин
+     */
+    @State(Scope.Thread)
+    public static class PageAtTop {
+
+        /**
+         * Возвращает страницу наверх.
+         *
+         * @param state браузер с открытой выдачей
+         *
+         * @author Сергей Лужин
+         */
+        @Setup(Level.Invocation)
+        public void scrollToTop(ResultListState state) {
+            ((JavascriptExecutor) state.driver).executeScript("window.scrollTo(0, 0);");
+        }
+    }
+
+    /**
+     * Синтетический тест Allure на время итерации замера: без выполняющегося теста
+     * {@link Screenshoter} не прикрепляет скриншоты, и замер не включал бы
+     * перекодирование и запись. В конце итерации скриншоты дописываются
+     * ({@link Screenshoter#flush()}), а тест завершается.
+     *
+     * @author Сергей Лужин
+     */
+    @State(Scope.Thread)
+    public static class AllureTestCase {
+
+        /**
+         * Идентификатор текущего синтетического теста.
+         *
+         * @author Сергей Лужин
+         */
+        private String uuid;
+
+        /**
+         * Начинает синтетический тест в потоке бенчмарка.
+         *
+         * @author Сергей Лужин
+         */
+        @Setup(Level.Iteration)
+        public void start() {
+            uuid = UUID.randomUUID().toString();
+            AllureLifecycle lifecycle = Allure.getLifecycle();
+            lifecycle.scheduleTestCase(new TestResult().setUuid(uuid).setName("Бенчмарк скриншотов"));
+            lifecycle.startTestCase(uuid);
+        }
+
+        /**
+         * Дожидается записи скриншотов и завершает синтетический тест.
+         *
+         * @author Сергей Лужин
+         */
+        @TearDown(Level.Iteration)
+        public void stop() {
+            Screenshoter.flush();
+            AllureLifecycle lifecycle = Allure.getLifecycle();
+            lifecycle.updateTestCase(uuid, result -> result.setStatus(Status.PASSED));
+            lifecycle.stopTestCase(uuid);
+            lifecycle.writeTestCase(uuid);
+        }
+    }
+}
@@ -10,6 +10,10 @@ import static helpers.Screenshoter.attachScreenshot;
  * и прикрепления их к отчёту Allure при ключевых действиях:
  * клике по элементу, вводе текста, навигации и возникновении исключений.
  *
+ * Попадёт ли скриншот в отчёт сразу, решает {@link Screenshoter}:
+ * в режиме {@link Screenshoter.Policy#ON_FAILURE} кадры, в том числе
+ * кадр исключения, копятся в буфере и прикрепляются, только если тест упал.
+ *
  * @author Сергей Лужин
  */
 public class AllureScreenshotListener extends AbstractWebDriverEventListener {
@@ -85,6 +89,10 @@ public class AllureScreenshotListener extends AbstractWebDriverEventListener {
      * Вызывается при возникновении исключения во время работы WebDriver.
      * Делает скриншот страницы на момент ошибки и прикрепляет его к отчёту Allure.
      *
+     * Ненайденный ({@link NotFoundException}) и устаревший ({@link StaleElementReferenceException})
+     * элемент пропускаются: это обычный результат неудачной проверки в {@link Waiter},
+     * и скриншот на каждую проверку замедлял бы ожидание и вытеснял полезные кадры из буфера.
+     *
      * @param throwable возникшее исключение
      * @param driver    текущий экземпляр WebDriver
      *
@@ -92,6 +100,9 @@ public class AllureScreenshotListener extends AbstractWebDriverEventListener {
      */
     @Override
     public void onException(Throwable throwable, WebDriver driver) {
+        if (throwable instanceof NotFoundException || throwable instanceof StaleElementReferenceException) {
+            return;
+        }
         attachScreenshot("Ошибка: " + throwable, driver);
     }
 }
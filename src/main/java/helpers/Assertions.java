@@ -13,7 +13,9 @@ public class Assertions {
 
     /**
      * Собственный ассерт, вызывающий метод assertTrue из JUnit,
-     * с добавленной аннотацией шага
+     * с добавленной аннотацией шага.
+     * При провале проверки прикрепляет к шагу последние скриншоты теста,
+     * накопленные в режиме {@link Screenshoter.Policy#ON_FAILURE}.
      *
      * @param condition логическое условие, которое должно быть истинным
      * @param message   сообщение об ошибке при провале проверки
@@ -22,6 +24,9 @@ public class Assertions {
      */
     @Step("Проверяем, что нет ошибки: '{message}'")
     public static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            Screenshoter.attachBufferedScreenshots();
+        }
         org.junit.jupiter.api.Assertions.assertTrue(condition,message);
     }
 }
@@ -0,0 +1,243 @@
+package helpers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Кэш адресов страниц каталога по категории и подкатегории.
+ *
+ * Переход в подкатегорию через меню каталога требует нескольких ожиданий
+ * и наведения курсора, а адрес подкатегории меняется редко. Поэтому найденный
+ * через меню адрес запоминается и сохраняется в файл между запусками,
+ * а следующие запуски переходят по нему сразу. Запись устаревает через
+ * {@link TestProperties#categoryCacheTtlHours()} часов или удаляется, если
+ * страница по сохранённому адресу больше не соответствует подкатегории.
+ *
+ * Сохраняется только путь страницы с параметрами: при чтении он дополняется
+ * текущим адресом Маркета ({@link TestProperties#yandexMarketUrl()}), поэтому
+ * адрес, найденный на живом сайте, открывается на локальной замене Маркета
+ * ({@link MarketStandIn}) и наоборот.
+ *
+ * Кэш считает попадания, промахи и удалённые записи для отчёта.
+ *
+ * @author Сергей Лужин
+ */
+public class CategoryUrlCache {
+
+    /**
+     * Единственный экземпляр кэша.
+     *
+     * @author Сергей Лужин
+     */
+    private static final CategoryUrlCache instance =
+            new CategoryUrlCache(Paths.get(testProperties.categoryCacheFile()),
+                    TimeUnit.HOURS.toMillis(testProperties.categoryCacheTtlHours()));
+
+    /**
+     * Файл, в котором хранится кэш.
+     *
+     * @author Сергей Лужин
+     */
+    private final Path file;
+
+    /**
+     * Время жизни записи (в миллисекундах).
+     *
+     * @author Сергей Лужин
+     */
+    private final long ttlMillis;
+
+    /**
+     * Записи кэша: ключ - категория и подкатегория, значение - время сохранения и путь страницы.
+     *
+     * @author Сергей Лужин
+     */
+    private final java.util.Properties entries = new java.util.Properties();
+
+    /**
+     * Количество обращений, обслуженных сохранённым адресом.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger hits = new AtomicInteger();
+
+    /**
+     * Количество обращений, для которых адреса в кэше не было или он устарел.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Количество записей, удалённых из-за несоответствия страницы подкатегории.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger invalidations = new AtomicInteger();
+
+    /**
+     * Создаёт кэш и загружает сохранённые записи из файла, если он есть.
+     *
+     * @param file      файл кэша
+     * @param ttlMillis время жизни записи (в миллисекундах)
+     *
+     * @author Сергей Лужин
+     */
+    CategoryUrlCache(Path file, long ttlMillis) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                entries.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать кэш адресов категорий " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Возвращает единственный экземпляр кэша.
+     *
+     * @return кэш адресов категорий
+     *
+     * @author Сергей Лужин
+     */
+    public static CategoryUrlCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Возвращает сохранённый адрес подкатегории, если он есть и не устарел.
+     * Учитывает обращение как попадание или промах. Испорченная запись
+     * (без времени сохранения или с некорректным путём, например, после ручной правки файла)
+     * считается промахом и удаляется из кэша.
+     *
+     * @param category    название категории
+     * @param subcategory название подкатегории
+     * @return адрес подкатегории на текущем адресе Маркета или null
+     *
+     * @author Сергей Лужин
+     */
+    public synchronized String get(String category, String subcategory) {
+        String key = key(category, subcategory);
+        String value = entries.getProperty(key);
+        if (value != null) {
+            int separator = value.indexOf(' ');
+            try {
+                long savedAt = Long.parseLong(value.substring(0, separator));
+                String path = path(value.substring(separator + 1));
+                if (System.currentTimeMillis() - savedAt <= ttlMillis) {
+                    hits.incrementAndGet();
+                    return URI.create(testProperties.yandexMarketUrl()).resolve(path).toString();
+                }
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                entries.remove(key);
+                save();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Сохраняет путь страницы подкатегории и записывает кэш в файл.
+     *
+     * @param category    название категории
+     * @param subcategory название подкатегории
+     * @param url         адрес страницы подкатегории
+     *
+     * @author Сергей Лужин
+     */
+    public synchronized void put(String category, String subcategory, String url) {
+        entries.setProperty(key(category, subcategory), System.currentTimeMillis() + " " + path(url));
+        save();
+    }
+
+    /**
+     * Удаляет адрес подкатегории, по которому открылась неподходящая страница,
+     * и записывает кэш в файл. Обращение, давшее такой адрес, считается промахом.
+     *
+     * @param category    название категории
+     * @param subcategory название подкатегории
+     *
+     * @author Сергей Лужин
+     */
+    public synchronized void invalidate(String category, String subcategory) {
+        if (entries.remove(key(category, subcategory)) != null) {
+            invalidations.incrementAndGet();
+            hits.decrementAndGet();
+            misses.incrementAndGet();
+            save();
+        }
+    }
+
+    /**
+     * Возвращает долю обращений, обслуженных сохранённым адресом.
+     *
+     * @return доля попаданий от 0 до 1
+     * @author Сергей Лужин
+     */
+    public double getHitRate() {
+        int total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Записывает кэш во временный файл и заменяет им файл кэша,
+     * чтобы прерванная запись не испортила сохранённые адреса.
+     *
+     * @author Сергей Лужин
+     */
+    private void save() {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                entries.store(writer, "Адреса подкатегорий каталога: время сохранения (мс) и путь страницы");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать кэш адресов категорий " + file, e);
+        }
+    }
+
+    /**
+     * Возвращает путь адреса вместе с параметрами, без схемы и хоста.
+     * Записи, сохранённые раньше с полным адресом, тоже приводятся к пути.
+     *
+     * @author Сергей Лужин
+     */
+    private static String path(String url) {
+        URI uri = URI.create(url);
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+
+    /**
+     * Возвращает ключ записи по категории и подкатегории.
+     *
+     * @author Сергей Лужин
+     */
+    private static String key(String category, String subcategory) {
+        return category + " / " + subcategory;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Попаданий в кэш: %d, промахов: %d, доля попаданий: %.0f%%, удалено устаревших адресов: %d",
+                hits.get(), misses.get(), getHitRate() * 100, invalidations.get());
+    }
+}
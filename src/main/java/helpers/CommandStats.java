@@ -0,0 +1,292 @@
+package helpers;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Время выполнения команд WebDriver в текущем сценарии.
+ *
+ * Каждую команду, отправленную браузеру (поиск элемента, выполнение скрипта,
+ * скриншот, переход по адресу и т.д.), учитывает {@link TimedChromeDriver}.
+ * Статистика ведётся для сценария целиком и для каждого шага Allure
+ * (шаг отслеживает {@link StepCommandListener}): количество команд,
+ * суммарное время и процентили p50, p95, p99.
+ *
+ * После каждого теста статистика теста добавляется к статистике запуска,
+ * которая записывается в JSON-файл запуска в {@link TestProperties#commandStatsDir()}.
+ * Статистика сценария ведётся отдельно для каждого потока теста.
+ *
+ * @author Сергей Лужин
+ */
+public class CommandStats {
+
+    /**
+     * Название строки таблицы со статистикой всего сценария.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String WHOLE_TEST = "Весь тест";
+
+    /**
+     * Статистика сценария, выполняющегося в текущем потоке.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ThreadLocal<CommandStats> stats = ThreadLocal.withInitial(CommandStats::new);
+
+    /**
+     * Время начала запуска, по которому назван файл статистики запуска.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Date runStartedAt = new Date();
+
+    /**
+     * Статистика команд всего запуска.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Map<String, Latencies> run = new TreeMap<>();
+
+    /**
+     * Статистика команд каждого теста запуска в порядке завершения тестов.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Map<String, Map<String, Object>> runTests = new LinkedHashMap<>();
+
+    /**
+     * Статистика команд сценария.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<String, Latencies> commands = new TreeMap<>();
+
+    /**
+     * Статистика команд по шагам в порядке первого выполнения шага.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<String, Map<String, Latencies>> steps = new LinkedHashMap<>();
+
+    /**
+     * Выполняющиеся шаги: вложенный шаг на вершине стека.
+     *
+     * @author Сергей Лужин
+     */
+    private final Deque<String> activeSteps = new ArrayDeque<>();
+
+    /**
+     * Возвращает статистику сценария текущего потока.
+     *
+     * @return статистика команд
+     *
+     * @author Сергей Лужин
+     */
+    public static CommandStats current() {
+        return stats.get();
+    }
+
+    /**
+     * Сбрасывает статистику сценария текущего потока.
+     *
+     * @author Сергей Лужин
+     */
+    public static void reset() {
+        stats.remove();
+    }
+
+    /**
+     * Учитывает выполненную команду в статистике сценария и самого вложенного
+     * выполняющегося шага.
+     *
+     * @param command название команды WebDriver
+     * @param nanos   время выполнения (в наносекундах)
+     *
+     * @author Сергей Лужин
+     */
+    void record(String command, long nanos) {
+        commands.computeIfAbsent(command, name -> new Latencies()).add(nanos);
+        String step = activeSteps.peek();
+        if (step != null) {
+            steps.computeIfAbsent(step, name -> new TreeMap<>())
+                    .computeIfAbsent(command, name -> new Latencies()).add(nanos);
+        }
+    }
+
+    /**
+     * Отмечает начало шага Allure.
+     *
+     * @param step название шага
+     *
+     * @author Сергей Лужин
+     */
+    void enterStep(String step) {
+        activeSteps.push(step);
+    }
+
+    /**
+     * Отмечает окончание самого вложенного шага Allure.
+     *
+     * @author Сергей Лужин
+     */
+    void exitStep() {
+        activeSteps.poll();
+    }
+
+    /**
+     * Возвращает таблицу команд в формате CSV: сначала весь тест, затем шаги
+     * в порядке выполнения; внутри - команды по убыванию суммарного времени.
+     *
+     * @return таблица команд
+     *
+     * @author Сергей Лужин
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("Шаг;Команда;Вызовов;Всего, мс;p50, мс;p95, мс;p99, мс;Максимум, мс\n");
+        appendCsv(csv, WHOLE_TEST, commands);
+        steps.forEach((step, stepCommands) -> appendCsv(csv, step, stepCommands));
+        return csv.toString();
+    }
+
+    /**
+     * Добавляет статистику сценария к статистике запуска и перезаписывает
+     * JSON-файл запуска в {@link TestProperties#commandStatsDir()}.
+     * Запись идёт через временный файл, чтобы прерванный запуск не оставил испорченный файл.
+     *
+     * @param test название теста
+     * @return путь к файлу статистики запуска
+     *
+     * @author Сергей Лужин
+     */
+    public Path publish(String test) {
+        synchronized (run) {
+            commands.forEach((command, latencies) -> run.computeIfAbsent(command, name -> new Latencies()).addAll(latencies));
+            runTests.put(test, toJson(commands));
+
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("runStartedAt", runStartedAt.getTime());
+            json.put("commands", toJson(run));
+            json.put("tests", runTests);
+
+            Path file = Paths.get(testProperties.commandStatsDir(),
+                    "command-stats-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(runStartedAt) + ".json");
+            try {
+                Path directory = file.toAbsolutePath().getParent();
+                Files.createDirectories(directory);
+                Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    writer.write(new Json().toJson(json));
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать статистику команд " + file, e);
+            }
+            return file;
+        }
+    }
+
+    /**
+     * Добавляет в таблицу строки одного шага, отсортированные по суммарному времени.
+     *
+     * @author Сергей Лужин
+     */
+    private static void appendCsv(StringBuilder csv, String step, Map<String, Latencies> stepCommands) {
+        stepCommands.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().totalNanos, a.getValue().totalNanos))
+                .forEach(e -> {
+                    Latencies latencies = e.getValue();
+                    csv.append('"').append(step.replace("\"", "\"\"")).append('"')
+                            .append(';').append(e.getKey())
+                            .append(';').append(latencies.size)
+                            .append(';').append(millis(latencies.totalNanos))
+                            .append(';').append(millis(latencies.percentile(50)))
+                            .append(';').append(millis(latencies.percentile(95)))
+                            .append(';').append(millis(latencies.percentile(99)))
+                            .append(';').append(millis(latencies.percentile(100)))
+                            .append('\n');
+                });
+    }
+
+    /**
+     * Возвращает статистику команд в виде, пригодном для записи в JSON.
+     *
+     * @author Сергей Лужин
+     */
+    private static Map<String, Object> toJson(Map<String, Latencies> commands) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        commands.forEach((command, latencies) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", latencies.size);
+            entry.put("totalMillis", millis(latencies.totalNanos));
+            entry.put("p50Millis", millis(latencies.percentile(50)));
+            entry.put("p95Millis", millis(latencies.percentile(95)));
+            entry.put("p99Millis", millis(latencies.percentile(99)));
+            entry.put("maxMillis", millis(latencies.percentile(100)));
+            json.put(command, entry);
+        });
+        return json;
+    }
+
+    /**
+     * Переводит наносекунды в миллисекунды с точностью до десятой.
+     *
+     * @author Сергей Лужин
+     */
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    /**
+     * Времена выполнения одной команды.
+     *
+     * @author Сергей Лужин
+     */
+    private static class Latencies {
+        private long[] nanos = new long[16];
+        private int size;
+        private long totalNanos;
+
+        private void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            totalNanos += value;
+        }
+
+        private void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+        }
+
+        private long percentile(int percent) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percent / 100.0 * size);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package helpers;
 
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.remote.CapabilityType;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.support.events.EventFiringWebDriver;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import static helpers.Properties.testProperties;
 
 /**
@@ -14,22 +21,163 @@ import static helpers.Properties.testProperties;
  * и обёртку его в EventFiringWebDriver с регистрацией слушателя
  * для снятия скриншотов в Allure.
  *
+ * Драйверы привязываются к потоку, в котором были созданы,
+ * поэтому параллельно выполняемые тесты не делят между собой один браузер.
+ * Если включён пул браузеров ({@link TestProperties#poolEnabled()}),
+ * тесты арендуют заранее запущенные браузеры через {@link #lease()}
+ * и возвращают их через {@link #release()}.
+ *
+ * Браузер может запускаться в облегчённом профиле ({@link TestProperties#leanProfileEnabled()}):
+ * он не загружает ресурсы типов {@link TestProperties#leanBlockedResources()}
+ * и не обращается к доменам рекламы и аналитики {@link TestProperties#leanBlockedHosts()}.
+ *
  * @author Сергей Лужин
  */
 public class DriverFactory {
 
+    /**
+     * Драйверы, привязанные к потокам выполнения тестов.
+     * У каждого потока - свой экземпляр браузера.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ThreadLocal<WebDriver> drivers = new ThreadLocal<>();
+
+    /**
+     * Пул заранее запущенных браузеров. Создаётся при первой аренде.
+     *
+     * @author Сергей Лужин
+     */
+    private static volatile DriverPool pool;
+
     /**
      * Создаёт и настраивает экземпляр WebDriver для использования в тестах.
      * Устанавливает системное свойство пути к драйверу Chrome, создаёт
-     * базовый ChromeDriver, оборачивает его в EventFiringWebDriver и
+     * базовый ChromeDriver с замером времени команд ({@link TimedChromeDriver}),
+     * оборачивает его в EventFiringWebDriver и
      * регистрирует {@link AllureScreenshotListener} для автоматического
      * прикрепления скриншотов к отчётам Allure.
+     * Созданный драйвер привязывается к текущему потоку.
      *
      * @return настроенный экземпляр WebDriver
      *
      * @author Сергей Лужин
      */
     public static WebDriver create() {
+        return create(testProperties.leanProfileEnabled());
+    }
+
+    /**
+     * Создаёт экземпляр WebDriver, как {@link #create()}, в указанном профиле браузера.
+     *
+     * @param lean true - облегчённый профиль, false - обычный
+     * @return настроенный экземпляр WebDriver
+     *
+     * @author Сергей Лужин
+     */
+    public static WebDriver create(boolean lean) {
+        WebDriver driver = newDriver(lean);
+        drivers.set(driver);
+        return driver;
+    }
+
+    /**
+     * Арендует браузер для текущего потока.
+     * Если пул браузеров выключен, создаёт новый браузер через {@link #create()}.
+     *
+     * @return экземпляр WebDriver, привязанный к текущему потоку
+     *
+     * @author Сергей Лужин
+     */
+    public static WebDriver lease() {
+        return lease(testProperties.leanProfileEnabled());
+    }
+
+    /**
+     * Арендует браузер для текущего потока в указанном профиле.
+     * Пул запускает браузеры в профиле из настроек, поэтому браузер другого
+     * профиля создаётся отдельно через {@link #create(boolean)} и закрывается
+     * при освобождении, не возвращаясь в пул.
+     *
+     * @param lean true - облегчённый профиль, false - обычный
+     * @return экземпляр WebDriver, привязанный к текущему потоку
+     *
+     * @author Сергей Лужин
+     */
+    public static WebDriver lease(boolean lean) {
+        if (!testProperties.poolEnabled() || lean != testProperties.leanProfileEnabled()) {
+            return create(lean);
+        }
+        WebDriver driver = getPool().lease();
+        drivers.set(driver);
+        return driver;
+    }
+
+    /**
+     * Освобождает браузер текущего потока: арендованный браузер
+     * возвращается в пул, остальные закрываются через {@link #quit()}.
+     *
+     * @author Сергей Лужин
+     */
+    public static void release() {
+        WebDriver driver = drivers.get();
+        if (driver != null && pool != null && pool.release(driver)) {
+            drivers.remove();
+        } else {
+            quit();
+        }
+    }
+
+    /**
+     * Возвращает метрики пула браузеров.
+     *
+     * @return метрики пула или null, если пул ещё не создавался
+     *
+     * @author Сергей Лужин
+     */
+    public static DriverPool.Metrics poolMetrics() {
+        return pool == null ? null : pool.metrics();
+    }
+
+    /**
+     * Возвращает пул браузеров, создавая его при первом обращении.
+     *
+     * @return пул браузеров
+     *
+     * @author Сергей Лужин
+     */
+    private static DriverPool getPool() {
+        if (pool == null) {
+            synchronized (DriverFactory.class) {
+                if (pool == null) {
+                    pool = new DriverPool();
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Создаёт новый настроенный экземпляр WebDriver в профиле из настроек,
+     * не привязывая его к потоку.
+     *
+     * @return настроенный экземпляр WebDriver
+     *
+     * @author Сергей Лужин
+     */
+    static WebDriver newDriver() {
+        return newDriver(testProperties.leanProfileEnabled());
+    }
+
+    /**
+     * Создаёт новый настроенный экземпляр WebDriver, не привязывая его к потоку.
+     *
+     * @param lean true - облегчённый профиль, false - обычный
+     * @return настроенный экземпляр WebDriver
+     *
+     * @author Сергей Лужин
+     */
+    static WebDriver newDriver(boolean lean) {
         // Указываем путь к драйверу
         System.setProperty("webdriver.chrome.driver", testProperties.driverChrome());
 
@@ -37,13 +185,91 @@ public class DriverFactory {
         // DesiredCapabilities capabilities = new DesiredCapabilities();
         // capabilities.setCapability(CapabilityType.PAGE_LOAD_STRATEGY,"none");
 
-        // Создаём драйвер
-        WebDriver base = new ChromeDriver();
+        // Создаём драйвер, замеряющий время каждой команды
+        WebDriver base = new TimedChromeDriver(lean ? leanOptions() : new ChromeOptions());
 
         EventFiringWebDriver driver = new EventFiringWebDriver(base);
         driver.register(new AllureScreenshotListener(driver));
 
         return driver;
     }
-}
 
+    /**
+     * Возвращает настройки Chrome облегчённого профиля.
+     *
+     * Изображения запрещаются настройкой содержимого профиля, веб-шрифты -
+     * ключом --disable-remote-fonts. Заблокированные домены и их поддомены
+     * не разрешаются в адрес (--host-resolver-rules), поэтому запросы к ним
+     * завершаются сразу, не дожидаясь сети.
+     *
+     * @return настройки облегчённого профиля
+     *
+     * @author Сергей Лужин
+     */
+    static ChromeOptions leanOptions() {
+        ChromeOptions options = new ChromeOptions();
+        List<BlockedResource> resources = Arrays.asList(testProperties.leanBlockedResources());
+
+        if (resources.contains(BlockedResource.IMAGES)) {
+            Map<String, Object> prefs = new HashMap<>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            options.setExperimentalOption("prefs", prefs);
+        }
+        if (resources.contains(BlockedResource.FONTS)) {
+            options.addArguments("--disable-remote-fonts");
+        }
+
+        String rules = Arrays.stream(testProperties.leanBlockedHosts())
+                .map(String::trim)
+                .filter(host -> !host.isEmpty())
+                .flatMap(host -> Stream.of("MAP " + host + " ~NOTFOUND", "MAP *." + host + " ~NOTFOUND"))
+                .collect(Collectors.joining(", "));
+        if (!rules.isEmpty()) {
+            options.addArguments("--host-resolver-rules=" + rules);
+        }
+        return options;
+    }
+
+    /**
+     * Возвращает драйвер, созданный в текущем потоке.
+     *
+     * @return драйвер текущего потока или null, если он ещё не создан
+     *
+     * @author Сергей Лужин
+     */
+    public static WebDriver getDriver() {
+        return drivers.get();
+    }
+
+    /**
+     * Закрывает браузер текущего потока и отвязывает драйвер от потока.
+     * Если драйвер в потоке не создавался, ничего не делает.
+     *
+     * @author Сергей Лужин
+     */
+    public static void quit() {
+        WebDriver driver = drivers.get();
+        drivers.remove();
+        if (driver != null) {
+            driver.quit();
+        }
+    }
+
+    /**
+     * Типы ресурсов, которые не загружает облегчённый профиль браузера.
+     *
+     * @author Сергей Лужин
+     */
+    public enum BlockedResource {
+
+        /**
+         * Изображения, в том числе фоновые изображения стилей.
+         */
+        IMAGES,
+
+        /**
+         * Веб-шрифты: текст отображается системными шрифтами.
+         */
+        FONTS
+    }
+}
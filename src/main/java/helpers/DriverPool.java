@@ -0,0 +1,465 @@
+package helpers;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WrapsDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Пул заранее запущенных браузеров.
+ *
+ * Запуск ChromeDriver и Chrome занимает несколько секунд, поэтому браузеры
+ * стартуют в фоне при первом обращении к пулу, выдаются тестам в аренду
+ * и после теста очищаются (cookies, localStorage, sessionStorage, лишние вкладки)
+ * и возвращаются в пул. После {@link TestProperties#poolMaxUses()} аренд браузер
+ * закрывается, а вместо него в фоне запускается новый.
+ *
+ * Пул собирает метрики: долю аренд, обслуженных уже запущенным браузером,
+ * количество аренд с ожиданием браузера другого теста, среднее время аренды
+ * и сэкономленное на запуске браузеров время.
+ *
+ * @author Сергей Лужин
+ */
+public class DriverPool {
+
+    /**
+     * Свободные браузеры, готовые к выдаче.
+     *
+     * @author Сергей Лужин
+     */
+    private final BlockingQueue<PooledDriver> idle = new LinkedBlockingQueue<>();
+
+    /**
+     * Браузеры, выданные тестам в аренду, по экземпляру драйвера.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<WebDriver, PooledDriver> leased = new ConcurrentHashMap<>();
+
+    /**
+     * Количество живых и запускаемых браузеров пула.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Фоновые потоки для запуска браузеров.
+     *
+     * @author Сергей Лужин
+     */
+    private final ExecutorService starter;
+
+    /**
+     * Максимальное количество браузеров в пуле.
+     *
+     * @author Сергей Лужин
+     */
+    private final int maxSize;
+
+    /**
+     * Количество аренд, после которого браузер пересоздаётся.
+     *
+     * @author Сергей Лужин
+     */
+    private final int maxUses;
+
+    /**
+     * Счётчики для метрик пула: аренды, аренды готовых браузеров,
+     * аренды с ожиданием браузера другого теста, суммарное время всех аренд,
+     * запуски браузеров, суммарное время запусков и пересозданные браузеры.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong leaseWaitNanos = new AtomicLong();
+    private final AtomicLong starts = new AtomicLong();
+    private final AtomicLong startNanos = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+
+    /**
+     * Создаёт пул по параметрам из {@link TestProperties} и сразу
+     * начинает в фоне запускать браузеры.
+     *
+     * @author Сергей Лужин
+     */
+    public DriverPool() {
+        this.maxSize = Math.max(1, testProperties.poolSize());
+        this.maxUses = Math.max(1, testProperties.poolMaxUses());
+        this.starter = Executors.newFixedThreadPool(maxSize, runnable -> {
+            Thread thread = new Thread(runnable, "driver-pool-starter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < maxSize; i++) {
+            size.incrementAndGet();
+            startInBackground();
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "driver-pool-shutdown"));
+    }
+
+    /**
+     * Выдаёт браузер в аренду. Если свободных браузеров нет, а пул ещё
+     * не заполнен, запускает новый браузер в текущем потоке, иначе ждёт,
+     * пока другой тест вернёт браузер, но не дольше {@link TestProperties#poolLeaseTimeout()}.
+     * Готовым считается только браузер, свободный в момент аренды; аренды с ожиданием
+     * браузера другого теста и с запуском браузера в текущем потоке учитываются отдельно.
+     * Время аренды записывается для каждой аренды.
+     *
+     * @return арендованный экземпляр WebDriver
+     * @throws IllegalStateException если свободный браузер не появился за отведённое время
+     *
+     * @author Сергей Лужин
+     */
+    public WebDriver lease() {
+        long start = System.nanoTime();
+        PooledDriver pooled = idle.poll();
+
+        if (pooled != null) {
+            hits.incrementAndGet();
+        } else if (reserveSlot()) {
+            pooled = start();
+        } else {
+            try {
+                pooled = idle.poll(testProperties.poolLeaseTimeout(), TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (pooled == null) {
+                throw new IllegalStateException("За " + testProperties.poolLeaseTimeout()
+                        + " с не освободился ни один браузер из пула размером " + maxSize);
+            }
+            waits.incrementAndGet();
+        }
+
+        leaseWaitNanos.addAndGet(System.nanoTime() - start);
+        leases.incrementAndGet();
+        pooled.uses++;
+        leased.put(pooled.driver, pooled);
+        return pooled.driver;
+    }
+
+    /**
+     * Возвращает браузер в пул. Браузер очищается от состояния предыдущего теста;
+     * если очистка не удалась или лимит аренд исчерпан, браузер закрывается
+     * и в фоне запускается замена.
+     *
+     * @param driver арендованный ранее экземпляр WebDriver
+     * @return true, если драйвер принадлежал пулу
+     *
+     * @author Сергей Лужин
+     */
+    public boolean release(WebDriver driver) {
+        PooledDriver pooled = leased.remove(driver);
+        if (pooled == null) {
+            return false;
+        }
+
+        if (pooled.uses < maxUses && reset(driver)) {
+            idle.add(pooled);
+        } else {
+            recycled.incrementAndGet();
+            quitQuietly(driver);
+            if (reserveSlot()) {
+                startInBackground();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает снимок метрик пула.
+     *
+     * @return метрики пула на текущий момент
+     *
+     * @author Сергей Лужин
+     */
+    public Metrics metrics() {
+        return new Metrics(leases.get(), hits.get(), waits.get(), leaseWaitNanos.get(), starts.get(), startNanos.get(),
+                recycled.get());
+    }
+
+    /**
+     * Закрывает все свободные браузеры пула.
+     * Вызывается при завершении JVM.
+     *
+     * @author Сергей Лужин
+     */
+    public void shutdown() {
+        starter.shutdownNow();
+        List<PooledDriver> drivers = new ArrayList<>();
+        idle.drainTo(drivers);
+        for (PooledDriver pooled : drivers) {
+            quitQuietly(pooled.driver);
+        }
+    }
+
+    /**
+     * Резервирует место под новый браузер, если пул ещё не заполнен.
+     *
+     * @return true, если место зарезервировано
+     *
+     * @author Сергей Лужин
+     */
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxSize) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Запускает в фоне браузер на уже зарезервированное место пула.
+     *
+     * @author Сергей Лужин
+     */
+    private void startInBackground() {
+        starter.execute(() -> idle.add(start()));
+    }
+
+    /**
+     * Запускает новый браузер на уже зарезервированное место пула,
+     * замеряя время запуска.
+     *
+     * @return новый браузер пула
+     *
+     * @author Сергей Лужин
+     */
+    private PooledDriver start() {
+        long start = System.nanoTime();
+        try {
+            WebDriver driver = DriverFactory.newDriver();
+            starts.incrementAndGet();
+            startNanos.addAndGet(System.nanoTime() - start);
+            return new PooledDriver(driver);
+        } catch (RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Очищает браузер от состояния предыдущего теста: закрывает лишние вкладки,
+     * удаляет cookies текущего домена, очищает localStorage и sessionStorage
+     * и открывает пустую страницу.
+     * Команды отправляются браузеру в обход EventFiringWebDriver, чтобы очистка
+     * не снимала скриншоты, которые попали бы в отчёт следующего теста.
+     *
+     * @param pooledDriver очищаемый браузер
+     * @return true, если очистка прошла успешно
+     *
+     * @author Сергей Лужин
+     */
+    private boolean reset(WebDriver pooledDriver) {
+        WebDriver driver = pooledDriver instanceof WrapsDriver
+                ? ((WrapsDriver) pooledDriver).getWrappedDriver()
+                : pooledDriver;
+        try {
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            for (String handle : handles.subList(1, handles.size())) {
+                driver.switchTo().window(handle).close();
+            }
+            driver.switchTo().window(handles.get(0));
+
+            try {
+                driver.manage().deleteAllCookies();
+            } catch (WebDriverException ignored) {
+                // на страницах без домена (about:, data:) cookies нет
+            }
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Закрывает браузер, игнорируя ошибки, и освобождает его место в пуле.
+     *
+     * @param driver закрываемый браузер
+     *
+     * @author Сергей Лужин
+     */
+    private void quitQuietly(WebDriver driver) {
+        size.decrementAndGet();
+        try {
+            driver.quit();
+        } catch (Exception ignored) {}
+    }
+
+    /**
+     * Браузер пула вместе со счётчиком его аренд.
+     *
+     * @author Сергей Лужин
+     */
+    private static class PooledDriver {
+
+        /**
+         * Экземпляр браузера.
+         *
+         * @author Сергей Лужин
+         */
+        private final WebDriver driver;
+
+        /**
+         * Количество аренд браузера с момента запуска.
+         *
+         * @author Сергей Лужин
+         */
+        private int uses;
+
+        private PooledDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+
+    /**
+     * Снимок метрик пула браузеров.
+     *
+     * @author Сергей Лужин
+     */
+    public static class Metrics {
+
+        /**
+         * Значения счётчиков пула на момент снятия снимка.
+         *
+         * @author Сергей Лужин
+         */
+        private final long leases;
+        private final long hits;
+        private final long waits;
+        private final long leaseWaitNanos;
+        private final long starts;
+        private final long startNanos;
+        private final long recycled;
+
+        private Metrics(long leases, long hits, long waits, long leaseWaitNanos, long starts, long startNanos, long recycled) {
+            this.leases = leases;
+            this.hits = hits;
+            this.waits = waits;
+            this.leaseWaitNanos = leaseWaitNanos;
+            this.starts = starts;
+            this.startNanos = startNanos;
+            this.recycled = recycled;
+        }
+
+        /**
+         * Возвращает общее количество аренд браузеров.
+         *
+         * @return количество аренд
+         * @author Сергей Лужин
+         */
+        public long getLeases() {
+            return leases;
+        }
+
+        /**
+         * Возвращает долю аренд, обслуженных уже запущенным браузером.
+         *
+         * @return доля аренд готовых браузеров (от 0 до 1)
+         * @author Сергей Лужин
+         */
+        public double getHitRate() {
+            return leases == 0 ? 0 : (double) hits / leases;
+        }
+
+        /**
+         * Возвращает количество аренд, ждавших, пока другой тест вернёт браузер.
+         *
+         * @return количество аренд с ожиданием
+         * @author Сергей Лужин
+         */
+        public long getWaits() {
+            return waits;
+        }
+
+        /**
+         * Возвращает количество аренд, запустивших браузер в потоке теста.
+         *
+         * @return количество аренд с запуском браузера
+         * @author Сергей Лужин
+         */
+        public long getColdStarts() {
+            return leases - hits - waits;
+        }
+
+        /**
+         * Возвращает среднее время аренды браузера по всем арендам,
+         * включая ожидание браузера другого теста и запуск браузера в потоке теста.
+         *
+         * @return среднее ожидание аренды (в миллисекундах)
+         * @author Сергей Лужин
+         */
+        public long getAverageLeaseWaitMillis() {
+            return leases == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(leaseWaitNanos / leases);
+        }
+
+        /**
+         * Возвращает среднее время запуска одного браузера.
+         *
+         * @return среднее время запуска (в миллисекундах)
+         * @author Сергей Лужин
+         */
+        public long getAverageStartMillis() {
+            return starts == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(startNanos / starts);
+        }
+
+        /**
+         * Оценка сэкономленного времени: без пула каждая аренда запускала бы браузер,
+         * поэтому экономия - среднее время запуска на все аренды за вычетом
+         * фактического времени всех аренд.
+         *
+         * @return сэкономленное время (в миллисекундах)
+         * @author Сергей Лужин
+         */
+        public long getTimeSavedMillis() {
+            long saved = starts == 0 ? 0 : leases * (startNanos / starts) - leaseWaitNanos;
+            return TimeUnit.NANOSECONDS.toMillis(Math.max(0, saved));
+        }
+
+        /**
+         * Возвращает количество браузеров, пересозданных после исчерпания
+         * лимита аренд или ошибки очистки.
+         *
+         * @return количество пересозданных браузеров
+         * @author Сергей Лужин
+         */
+        public long getRecycled() {
+            return recycled;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Пул браузеров: аренд - %d, из готовых браузеров - %.0f%%, с ожиданием браузера другого теста - %d, "
+                            + "с запуском браузера - %d, среднее время аренды - %d мс, "
+                            + "средний запуск браузера - %d мс, сэкономлено - %d мс, пересоздано браузеров - %d",
+                    leases, getHitRate() * 100, waits, getColdStarts(), getAverageLeaseWaitMillis(),
+                    getAverageStartMillis(), getTimeSavedMillis(), recycled);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package helpers;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Отсев почти одинаковых скриншотов одного теста.
+ *
+ * Для каждого кадра считается перцептивный хэш (difference hash):
+ * изображение уменьшается до 33x32 пикселей в оттенках серого,
+ * и каждый бит хэша показывает, светлее ли пиксель своего правого соседа.
+ * Кадр считается повтором, если его хэш отличается от хэша последнего
+ * сохранённого кадра не больше чем на {@link TestProperties#screenshotDedupThreshold()} бит из 1024.
+ *
+ * Экземпляр хранит состояние одного теста и создаётся заново для каждого теста.
+ *
+ * @author Сергей Лужин
+ */
+public class FrameDeduplicator {
+
+    /**
+     * Сторона хэша: хэш состоит из HASH_SIZE x HASH_SIZE бит.
+     *
+     * @author Сергей Лужин
+     */
+    private static final int HASH_SIZE = 32;
+
+    /**
+     * Максимальное расстояние Хэмминга между хэшами почти одинаковых кадров.
+     *
+     * @author Сергей Лужин
+     */
+    private final int threshold;
+
+    /**
+     * Хэш последнего сохранённого кадра теста.
+     *
+     * @author Сергей Лужин
+     */
+    private long[] lastHash;
+
+    /**
+     * Количество кадров теста, отсеянных как повторы.
+     *
+     * @author Сергей Лужин
+     */
+    private int skipped;
+
+    /**
+     * Создаёт отсев повторов для одного теста.
+     *
+     * @param threshold максимальное количество различающихся бит хэша у почти одинаковых кадров
+     *
+     * @author Сергей Лужин
+     */
+    public FrameDeduplicator(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Проверяет, повторяет ли кадр последний сохранённый кадр теста.
+     * Если кадр не повтор, он становится новым образцом для сравнения.
+     * Кадры, которые не удалось разобрать, повтором не считаются.
+     *
+     * @param png PNG-изображение кадра
+     * @return true, если кадр почти не отличается от предыдущего сохранённого
+     *
+     * @author Сергей Лужин
+     */
+    public synchronized boolean isDuplicate(byte[] png) {
+        long[] hash;
+        try {
+            hash = hash(png);
+        } catch (IOException e) {
+            return false;
+        }
+
+        if (lastHash != null && distance(lastHash, hash) <= threshold) {
+            skipped++;
+            return true;
+        }
+        lastHash = hash;
+        return false;
+    }
+
+    /**
+     * Возвращает количество кадров теста, отсеянных как повторы.
+     *
+     * @return количество пропущенных кадров
+     *
+     * @author Сергей Лужин
+     */
+    public synchronized int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Считает перцептивный difference hash изображения.
+     *
+     * @param image закодированное изображение (PNG, JPEG)
+     * @return хэш из HASH_SIZE x HASH_SIZE бит
+     * @throws IOException если изображение не удалось прочитать
+     *
+     * @author Сергей Лужин
+     */
+    public static long[] hash(byte[] image) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(image));
+        if (source == null) {
+            throw new IOException("Неизвестный формат изображения");
+        }
+
+        BufferedImage small = new BufferedImage(HASH_SIZE + 1, HASH_SIZE, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = small.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, HASH_SIZE + 1, HASH_SIZE, null);
+        graphics.dispose();
+
+        long[] hash = new long[HASH_SIZE * HASH_SIZE / Long.SIZE];
+        int bit = 0;
+        for (int y = 0; y < HASH_SIZE; y++) {
+            for (int x = 0; x < HASH_SIZE; x++, bit++) {
+                int left = small.getRaster().getSample(x, y, 0);
+                int right = small.getRaster().getSample(x + 1, y, 0);
+                if (left > right) {
+                    hash[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Считает расстояние Хэмминга между двумя хэшами.
+     *
+     * @param first  первый хэш
+     * @param second второй хэш
+     * @return количество различающихся бит
+     *
+     * @author Сергей Лужин
+     */
+    public static int distance(long[] first, long[] second) {
+        int distance = 0;
+        for (int i = 0; i < first.length; i++) {
+            distance += Long.bitCount(first[i] ^ second[i]);
+        }
+        return distance;
+    }
+}
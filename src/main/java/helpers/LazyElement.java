@@ -0,0 +1,162 @@
+package helpers;
+
+import io.qameta.allure.Allure;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Ленивый элемент страницы.
+ *
+ * Элемент ищется не при создании page object, а при первом обращении к нему,
+ * после чего найденный WebElement кэшируется и переиспользуется.
+ * Если элемент устарел (например, после перехода на другую страницу)
+ * и WebDriver бросил {@link StaleElementReferenceException},
+ * элемент ищется заново и действие повторяется.
+ *
+ * Количество выполненных и сэкономленных поисков учитывается в {@link LookupStats}.
+ * Обращением к элементу считается шаг Allure: без кэша элемент искался бы один раз
+ * в каждом шаге, который с ним работает, поэтому сэкономленным считается один поиск
+ * на каждый шаг, переиспользующий уже найденный элемент, а не каждый вызов метода
+ * WebElement внутри шага.
+ *
+ * @author Сергей Лужин
+ */
+public class LazyElement implements InvocationHandler {
+
+    /**
+     * Механизм ожиданий, через который ищется элемент.
+     *
+     * @author Сергей Лужин
+     */
+    private final Waiter waiter;
+
+    /**
+     * Ключ локатора элемента в xpath.properties.
+     *
+     * @author Сергей Лужин
+     */
+    private final String key;
+
+    /**
+     * Найденный элемент или null, если элемент ещё не искался или устарел.
+     *
+     * @author Сергей Лужин
+     */
+    private WebElement cached;
+
+    /**
+     * Идентификатор шага Allure, в котором элемент последний раз искался
+     * или был учтён как переиспользованный.
+     *
+     * @author Сергей Лужин
+     */
+    private String lastUse;
+
+    /**
+     * Создаёт обработчик ленивого элемента.
+     *
+     * @param waiter механизм ожиданий, через который ищется элемент
+     * @param key    ключ локатора элемента в xpath.properties
+     *
+     * @author Сергей Лужин
+     */
+    private LazyElement(Waiter waiter, String key) {
+        this.waiter = waiter;
+        this.key = key;
+    }
+
+    /**
+     * Создаёт ленивый элемент. Поиск элемента откладывается до первого вызова
+     * любого метода WebElement у возвращённого объекта.
+     *
+     * @param waiter механизм ожиданий, через который ищется элемент
+     * @param key    ключ локатора элемента в xpath.properties
+     * @return WebElement, который ищет настоящий элемент при первом обращении
+     *
+     * @author Сергей Лужин
+     */
+    public static WebElement of(Waiter waiter, String key) {
+        return (WebElement) Proxy.newProxyInstance(
+                LazyElement.class.getClassLoader(),
+                new Class<?>[]{WebElement.class, WrapsElement.class},
+                new LazyElement(waiter, key)
+        );
+    }
+
+    /**
+     * Выполняет метод WebElement на найденном элементе.
+     * Если элемент устарел, ищет его заново и повторяет вызов один раз.
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        if (method.getName().equals("getWrappedElement")) {
+            return resolve();
+        }
+
+        try {
+            return method.invoke(resolve(), args);
+        } catch (InvocationTargetException e) {
+            if (!(e.getCause() instanceof StaleElementReferenceException)) {
+                throw e.getCause();
+            }
+        }
+
+        cached = null;
+        LookupStats.current().staleReResolve();
+        try {
+            return method.invoke(resolve(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Возвращает закэшированный элемент или ищет его, дожидаясь видимости.
+     * Переиспользование закэшированного элемента учитывается один раз на шаг Allure.
+     *
+     * @return найденный элемент
+     *
+     * @author Сергей Лужин
+     */
+    private synchronized WebElement resolve() {
+        String use = Allure.getLifecycle().getCurrentTestCaseOrStep().orElse("");
+        if (cached != null) {
+            if (!use.equals(lastUse)) {
+                LookupStats.current().cacheHit();
+                lastUse = use;
+            }
+            return cached;
+        }
+        cached = waiter.visible(key);
+        LookupStats.current().lookup();
+        lastUse = use;
+        return cached;
+    }
+
+    /**
+     * Обрабатывает методы Object без поиска элемента.
+     *
+     * @author Сергей Лужин
+     */
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "LazyElement(" + key + ")";
+        }
+    }
+}
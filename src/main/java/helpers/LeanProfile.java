@@ -0,0 +1,43 @@
+package helpers;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Переключает облегчённый профиль браузера для теста или класса тестов
+ * независимо от {@link TestProperties#leanProfileEnabled()}.
+ *
+ * Аннотация метода важнее аннотации класса; аннотация класса наследуется подклассами.
+ * Браузер в облегчённом профиле не загружает изображения, веб-шрифты, рекламу
+ * и аналитику (см. {@link DriverFactory#lease(boolean)}).
+ *
+ * @author Сергей Лужин
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface LeanProfile {
+
+    /**
+     * Признак облегчённого профиля.
+     *
+     * @return true - облегчённый профиль, false - обычный
+     *
+     * @author Сергей Лужин
+     */
+    boolean value() default true;
+
+    /**
+     * Название сценария для сравнения профилей в {@link LeanProfileReport}.
+     * Тесты с одинаковым названием сценария (например, один сценарий в обоих профилях)
+     * сравниваются друг с другом; без названия тест сравнивается только сам с собой.
+     *
+     * @return название сценария или пустая строка
+     *
+     * @author Сергей Лужин
+     */
+    String scenario() default "";
+}
@@ -0,0 +1,153 @@
+package helpers;
+
+import org.openqa.selenium.remote.DriverCommand;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Сравнение времени загрузки страниц и шагов в обычном и облегчённом профилях браузера.
+ *
+ * После каждого теста его временная шкала ({@link Timeline}) добавляется к замерам
+ * его сценария в профиле, в котором работал браузер теста: суммарное время команд
+ * перехода по адресу и суммарное время каждого шага Allure. Замеры разных сценариев
+ * не смешиваются: строка таблицы - это шаг одного сценария, и разница считается только
+ * для строк, измеренных в обоих профилях. Сценарий - это тест или группа тестов
+ * с общим {@link LeanProfile#scenario()}.
+ *
+ * Таблица показывает среднее время на тест для обоих профилей рядом и разницу между ними;
+ * она перезаписывается в {@link TestProperties#leanReportFile()} после каждого теста,
+ * поэтому после запуска в файле сравнение по всем тестам запуска.
+ *
+ * Замеры собираются только при включённой записи временной шкалы.
+ *
+ * @author Сергей Лужин
+ */
+public class LeanProfileReport {
+
+    /**
+     * Название строки таблицы со временем загрузки страниц.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String PAGE_LOAD = "Загрузка страниц (" + DriverCommand.GET + ")";
+
+    /**
+     * Замеры запуска по сценариям и строкам таблицы в порядке первого появления.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Map<String, Map<String, Row>> scenarios = new LinkedHashMap<>();
+
+    private LeanProfileReport() {
+    }
+
+    /**
+     * Добавляет замеры теста к замерам его сценария и профиля и перезаписывает файл сравнения.
+     *
+     * @param scenario название сценария
+     * @param lean     true, если тест работал в облегчённом профиле
+     * @param timeline временная шкала теста
+     * @return таблица сравнения по всем завершённым тестам запуска в формате CSV
+     *
+     * @author Сергей Лужин
+     */
+    public static String record(String scenario, boolean lean, Timeline timeline) {
+        int profile = lean ? 1 : 0;
+        synchronized (scenarios) {
+            Map<String, Row> rows = scenarios.computeIfAbsent(scenario, name -> new LinkedHashMap<>());
+            Long pageLoad = timeline.totals(Timeline.WEBDRIVER).get(DriverCommand.GET);
+            if (pageLoad != null) {
+                rows.computeIfAbsent(PAGE_LOAD, name -> new Row()).add(profile, pageLoad);
+            }
+            timeline.totals(Timeline.STEP).forEach((step, nanos) ->
+                    rows.computeIfAbsent(step, name -> new Row()).add(profile, nanos));
+
+            String csv = toCsv();
+            write(csv);
+            return csv;
+        }
+    }
+
+    /**
+     * Возвращает таблицу сравнения в формате CSV.
+     *
+     * @author Сергей Лужин
+     */
+    private static String toCsv() {
+        StringBuilder csv = new StringBuilder("Сценарий;Замер;Обычный профиль, мс;Тестов;Облегчённый профиль, мс;Тестов;Разница, %\n");
+        scenarios.forEach((scenario, rows) -> rows.forEach((name, row) -> {
+            csv.append('"').append(scenario.replace("\"", "\"\"")).append('"')
+                    .append(';').append('"').append(name.replace("\"", "\"\"")).append('"')
+                    .append(';').append(row.tests[0] == 0 ? "" : String.valueOf(millis(row.average(0))))
+                    .append(';').append(row.tests[0])
+                    .append(';').append(row.tests[1] == 0 ? "" : String.valueOf(millis(row.average(1))))
+                    .append(';').append(row.tests[1])
+                    .append(';');
+            if (row.tests[0] > 0 && row.tests[1] > 0 && row.average(0) > 0) {
+                csv.append(Math.round((row.average(1) - row.average(0)) * 1000.0 / row.average(0)) / 10.0);
+            }
+            csv.append('\n');
+        }));
+        return csv.toString();
+    }
+
+    /**
+     * Перезаписывает файл сравнения через временный файл,
+     * чтобы прерванный запуск не оставил испорченный файл.
+     *
+     * @author Сергей Лужин
+     */
+    private static void write(String csv) {
+        Path file = Paths.get(testProperties.leanReportFile());
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(csv);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать сравнение профилей браузера " + file, e);
+        }
+    }
+
+    /**
+     * Переводит наносекунды в миллисекунды с точностью до десятой.
+     *
+     * @author Сергей Лужин
+     */
+    private static double millis(double nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    /**
+     * Замеры одной строки таблицы: индекс 0 - обычный профиль, 1 - облегчённый.
+     *
+     * @author Сергей Лужин
+     */
+    private static class Row {
+        private final long[] totalNanos = new long[2];
+        private final int[] tests = new int[2];
+
+        private void add(int profile, long nanos) {
+            totalNanos[profile] += nanos;
+            tests[profile]++;
+        }
+
+        private double average(int profile) {
+            return tests[profile] == 0 ? 0 : (double) totalNanos[profile] / tests[profile];
+        }
+    }
+}
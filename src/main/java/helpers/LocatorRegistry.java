@@ -0,0 +1,343 @@
+package helpers;
+
+import org.aeonbits.owner.Config;
+import org.openqa.selenium.By;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Реестр XPath-локаторов, построенный на {@link XpathProperties}.
+ *
+ * При создании реестр один раз разбирает все шаблоны из xpath.properties:
+ * находит в них места подстановки вида *category*, проверяет синтаксис XPath
+ * и падает сразу, если какой-то ключ файла не объявлен в {@link XpathProperties}
+ * или шаблон некорректен. Готовые {@link By} кэшируются по ключу шаблона
+ * и значениям подстановок, поэтому повторные вызовы не собирают строки заново.
+ *
+ * Неиспользуемые ключи можно обнаружить только по ходу запуска, поэтому реестр
+ * запоминает ключи, по которым запрашивались локаторы, а после каждого теста
+ * перезаписывает список ключей, не запрошенных ни разу ({@link #writeUnusedKeys(Path)}).
+ * После полного запуска в файле остаются ключи, которые можно удалить из xpath.properties.
+ *
+ * @author Сергей Лужин
+ */
+public class LocatorRegistry {
+
+    /**
+     * Место подстановки в шаблоне: имя параметра между звёздочками, например *brand*.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\*([A-Za-z]+)\\*");
+
+    /**
+     * Разобранные шаблоны по ключам xpath.properties.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<String, Template> templates = new HashMap<>();
+
+    /**
+     * Кэш готовых локаторов по ключу шаблона и значениям подстановок.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<String, By> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Ключи шаблонов, по которым запрашивались локаторы.
+     *
+     * @author Сергей Лужин
+     */
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Разбирает и проверяет все шаблоны конфигурации.
+     *
+     * @param properties конфигурация XPath-локаторов
+     * @throws IllegalStateException если в конфигурации есть необъявленные ключи,
+     *                               пустые значения или некорректный XPath
+     *
+     * @author Сергей Лужин
+     */
+    public LocatorRegistry(XpathProperties properties) {
+        List<String> problems = new ArrayList<>();
+        Map<String, String> declared = declaredTemplates(properties);
+
+        for (String key : loadedKeys(properties)) {
+            if (!declared.containsKey(key)) {
+                problems.add(key + ": ключ не объявлен в " + XpathProperties.class.getSimpleName());
+            }
+        }
+
+        XPath compiler = XPathFactory.newInstance().newXPath();
+        for (Map.Entry<String, String> entry : declared.entrySet()) {
+            String key = entry.getKey();
+            String xpath = entry.getValue();
+            if (xpath == null || xpath.trim().isEmpty()) {
+                problems.add(key + ": значение не задано");
+                continue;
+            }
+            Template template = new Template(key, xpath);
+            try {
+                compiler.compile(template.fill(template.sampleArguments()));
+            } catch (XPathExpressionException e) {
+                problems.add(key + ": некорректный XPath '" + xpath + "'");
+                continue;
+            }
+            templates.put(key, template);
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Некорректные локаторы в xpath.properties:\n" + String.join("\n", problems));
+        }
+    }
+
+    /**
+     * Возвращает локатор по ключу шаблона с подстановкой значений
+     * в порядке следования мест подстановки в шаблоне.
+     *
+     * @param key       ключ шаблона в xpath.properties
+     * @param arguments значения подстановок
+     * @return закэшированный локатор
+     * @throws IllegalArgumentException если ключ неизвестен или число значений не совпадает с шаблоном
+     *
+     * @author Сергей Лужин
+     */
+    public By by(String key, Object... arguments) {
+        requested.add(key);
+        return cache.computeIfAbsent(cacheKey(key, false, arguments),
+                cacheKey -> By.xpath(template(key).fill(arguments)));
+    }
+
+    /**
+     * Возвращает локатор первого элемента, найденного по шаблону, то есть (xpath)[1].
+     *
+     * @param key       ключ шаблона в xpath.properties
+     * @param arguments значения подстановок
+     * @return закэшированный локатор первого элемента
+     * @throws IllegalArgumentException если ключ неизвестен или число значений не совпадает с шаблоном
+     *
+     * @author Сергей Лужин
+     */
+    public By first(String key, Object... arguments) {
+        requested.add(key);
+        return cache.computeIfAbsent(cacheKey(key, true, arguments),
+                cacheKey -> By.xpath("(" + template(key).fill(arguments) + ")[1]"));
+    }
+
+    /**
+     * Возвращает XPath по ключу шаблона с подстановкой значений.
+     * Нужен там, где XPath передаётся в браузер строкой, например в JavaScript.
+     *
+     * @param key       ключ шаблона в xpath.properties
+     * @param arguments значения подстановок
+     * @return готовое XPath-выражение
+     *
+     * @author Сергей Лужин
+     */
+    public String xpath(String key, Object... arguments) {
+        return template(key).fill(arguments);
+    }
+
+    /**
+     * Возвращает ключи xpath.properties, по которым с начала запуска
+     * не запрашивался ни один локатор.
+     *
+     * @return неиспользованные ключи в алфавитном порядке
+     *
+     * @author Сергей Лужин
+     */
+    public List<String> unusedKeys() {
+        List<String> unused = new ArrayList<>();
+        for (String key : templates.keySet()) {
+            if (!requested.contains(key)) {
+                unused.add(key);
+            }
+        }
+        Collections.sort(unused);
+        return unused;
+    }
+
+    /**
+     * Перезаписывает файл со списком неиспользованных ключей через временный файл,
+     * чтобы прерванный запуск не оставил испорченный файл.
+     *
+     * @param file файл списка, по ключу на строку
+     *
+     * @author Сергей Лужин
+     */
+    public synchronized void writeUnusedKeys(Path file) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(temp, unusedKeys(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать неиспользованные локаторы " + file, e);
+        }
+    }
+
+    /**
+     * Возвращает разобранный шаблон по ключу.
+     *
+     * @param key ключ шаблона
+     * @return шаблон
+     *
+     * @author Сергей Лужин
+     */
+    private Template template(String key) {
+        Template template = templates.get(key);
+        if (template == null) {
+            throw new IllegalArgumentException("Неизвестный ключ локатора: " + key);
+        }
+        requested.add(key);
+        return template;
+    }
+
+    /**
+     * Собирает ключ кэша из ключа шаблона, признака (xpath)[1] и значений подстановок.
+     *
+     * @author Сергей Лужин
+     */
+    private static String cacheKey(String key, boolean first, Object[] arguments) {
+        return key + (first ? "[1]" : "") + '\u0000' + Arrays.toString(arguments);
+    }
+
+    /**
+     * Собирает значения всех методов {@link XpathProperties}, помеченных {@link Config.Key}.
+     *
+     * @param properties конфигурация XPath-локаторов
+     * @return значения по ключам
+     *
+     * @author Сергей Лужин
+     */
+    private static Map<String, String> declaredTemplates(XpathProperties properties) {
+        Map<String, String> declared = new HashMap<>();
+        for (Method method : XpathProperties.class.getDeclaredMethods()) {
+            Config.Key key = method.getAnnotation(Config.Key.class);
+            if (key != null) {
+                declared.put(key.value(), properties.getProperty(key.value()));
+            }
+        }
+        return declared;
+    }
+
+    /**
+     * Возвращает все ключи, загруженные из файлов конфигурации.
+     *
+     * @param properties конфигурация XPath-локаторов
+     * @return загруженные ключи
+     *
+     * @author Сергей Лужин
+     */
+    private static List<String> loadedKeys(XpathProperties properties) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            properties.store(out, null);
+            java.util.Properties loaded = new java.util.Properties();
+            loaded.load(new ByteArrayInputStream(out.toByteArray()));
+            return new ArrayList<>(loaded.stringPropertyNames());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Разобранный шаблон XPath: куски текста между местами подстановки
+     * и имена параметров в порядке следования.
+     *
+     * @author Сергей Лужин
+     */
+    private static class Template {
+
+        /**
+         * Ключ шаблона в xpath.properties.
+         *
+         * @author Сергей Лужин
+         */
+        private final String key;
+
+        /**
+         * Куски текста шаблона; их на один больше, чем мест подстановки.
+         *
+         * @author Сергей Лужин
+         */
+        private final List<String> parts = new ArrayList<>();
+
+        /**
+         * Имена параметров в порядке следования в шаблоне.
+         *
+         * @author Сергей Лужин
+         */
+        private final List<String> parameters = new ArrayList<>();
+
+        private Template(String key, String xpath) {
+            this.key = key;
+            Matcher matcher = PLACEHOLDER.matcher(xpath);
+            int position = 0;
+            while (matcher.find()) {
+                parts.add(xpath.substring(position, matcher.start()));
+                parameters.add(matcher.group(1));
+                position = matcher.end();
+            }
+            parts.add(xpath.substring(position));
+        }
+
+        /**
+         * Подставляет значения в шаблон.
+         *
+         * @param arguments значения подстановок в порядке следования мест подстановки
+         * @return готовое XPath-выражение
+         *
+         * @author Сергей Лужин
+         */
+        private String fill(Object[] arguments) {
+            if (arguments.length != parameters.size()) {
+                throw new IllegalArgumentException("Локатор " + key + " ожидает параметры " + parameters
+                        + ", передано значений: " + arguments.length);
+            }
+            StringBuilder xpath = new StringBuilder(parts.get(0));
+            for (int i = 0; i < arguments.length; i++) {
+                xpath.append(arguments[i]).append(parts.get(i + 1));
+            }
+            return xpath.toString();
+        }
+
+        /**
+         * Возвращает пробные значения подстановок для проверки синтаксиса шаблона.
+         * Значение 1 подходит и для строковых, и для числовых мест подстановки.
+         *
+         * @return пробные значения
+         *
+         * @author Сергей Лужин
+         */
+        private Object[] sampleArguments() {
+            Object[] arguments = new Object[parameters.size()];
+            Arrays.fill(arguments, 1);
+            return arguments;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package helpers;
+
+/**
+ * Счётчики поиска элементов страницы в текущем сценарии.
+ *
+ * Показывают, сколько поисков элементов выполнено, в скольких шагах
+ * обращения обслужены закэшированным элементом {@link LazyElement} (то есть сколько
+ * поисков удалось избежать) и сколько раз элемент пришлось искать заново
+ * после устаревания. Счётчики ведутся отдельно для каждого потока теста.
+ *
+ * @author Сергей Лужин
+ */
+public class LookupStats {
+
+    /**
+     * Счётчики сценария, выполняющегося в текущем потоке.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ThreadLocal<LookupStats> stats = ThreadLocal.withInitial(LookupStats::new);
+
+    /**
+     * Количество выполненных поисков элементов.
+     *
+     * @author Сергей Лужин
+     */
+    private int lookups;
+
+    /**
+     * Количество шагов, в которых обращения обслужены закэшированным элементом.
+     *
+     * @author Сергей Лужин
+     */
+    private int cacheHits;
+
+    /**
+     * Количество повторных поисков устаревших элементов.
+     *
+     * @author Сергей Лужин
+     */
+    private int staleReResolves;
+
+    /**
+     * Возвращает счётчики сценария текущего потока.
+     *
+     * @return счётчики поиска элементов
+     *
+     * @author Сергей Лужин
+     */
+    public static LookupStats current() {
+        return stats.get();
+    }
+
+    /**
+     * Сбрасывает счётчики сценария текущего потока.
+     *
+     * @author Сергей Лужин
+     */
+    public static void reset() {
+        stats.remove();
+    }
+
+    /**
+     * Учитывает выполненный поиск элемента.
+     *
+     * @author Сергей Лужин
+     */
+    void lookup() {
+        lookups++;
+    }
+
+    /**
+     * Учитывает шаг, в котором обращения обслужены закэшированным элементом.
+     *
+     * @author Сергей Лужин
+     */
+    void cacheHit() {
+        cacheHits++;
+    }
+
+    /**
+     * Учитывает повторный поиск устаревшего элемента.
+     *
+     * @author Сергей Лужин
+     */
+    void staleReResolve() {
+        staleReResolves++;
+    }
+
+    /**
+     * Возвращает количество выполненных поисков элементов.
+     *
+     * @return количество поисков
+     * @author Сергей Лужин
+     */
+    public int getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Возвращает количество поисков, которых удалось избежать благодаря кэшу.
+     *
+     * @return количество сэкономленных поисков
+     * @author Сергей Лужин
+     */
+    public int getAvoidedLookups() {
+        return cacheHits;
+    }
+
+    /**
+     * Возвращает количество повторных поисков устаревших элементов.
+     *
+     * @return количество повторных поисков
+     * @author Сергей Лужин
+     */
+    public int getStaleReResolves() {
+        return staleReResolves;
+    }
+
+    @Override
+    public String toString() {
+        return "Поисков элементов выполнено: " + lookups
+                + ", избежано благодаря кэшу: " + cacheHits
+                + ", повторных поисков устаревших элементов: " + staleReResolves;
+    }
+}
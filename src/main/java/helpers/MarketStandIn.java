@@ -0,0 +1,524 @@
+package helpers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Локальная замена Яндекс Маркета: запись ответов сайта и их воспроизведение.
+ *
+ * В режиме {@link Mode#RECORD} локальный сервер работает как обратный прокси:
+ * пересылает запросы браузера на Яндекс Маркет и сохраняет ответы
+ * в {@link TestProperties#marketRecordingsDir()}. В режиме {@link Mode#REPLAY}
+ * тот же сервер отдаёт сохранённые ответы без обращения к сети, с искусственной
+ * задержкой {@link TestProperties#marketReplayLatency()}, чтобы отделить
+ * затраты браузера от сетевых. В обоих режимах {@link TestProperties#yandexMarketUrl()}
+ * подменяется адресом локального сервера.
+ *
+ * Сайт работает по HTTPS, поэтому вместо прокси браузера используется обратный прокси:
+ * абсолютные ссылки на Маркет и на хосты из {@link TestProperties#marketRecordedHosts()}
+ * в текстовых ответах переписываются на локальный сервер (хосты - с префиксом /__host/),
+ * а у cookies убираются домен и признак Secure. Ответы хранятся без переписывания,
+ * поэтому записи не зависят от порта локального сервера.
+ *
+ * @author Сергей Лужин
+ */
+public class MarketStandIn {
+
+    /**
+     * Режим работы с Яндекс Маркетом.
+     *
+     * @author Сергей Лужин
+     */
+    public enum Mode {
+        /**
+         * Тесты обращаются к живому сайту.
+         */
+        LIVE,
+        /**
+         * Запросы пересылаются на живой сайт, ответы сохраняются.
+         */
+        RECORD,
+        /**
+         * Сохранённые ответы отдаются локальным сервером без сети.
+         */
+        REPLAY
+    }
+
+    /**
+     * Префикс пути, под которым локальный сервер отдаёт ответы других хостов.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String HOST_PREFIX = "/__host/";
+
+    /**
+     * Заголовки запроса, которые не пересылаются на сайт:
+     * их выставляет HTTP-клиент или они относятся к локальному соединению.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Set<String> SKIPPED_REQUEST_HEADERS = Set.of(
+            "host", "connection", "content-length", "expect", "upgrade", "via", "warning", "date", "from",
+            "accept-encoding", "keep-alive", "proxy-connection", "te", "trailer", "transfer-encoding"
+    );
+
+    /**
+     * Заголовки ответа, которые сохраняются и воспроизводятся.
+     *
+     * @author Сергей Лужин
+     */
+    private static final List<String> KEPT_RESPONSE_HEADERS = List.of("Content-Type", "Location", "Set-Cookie", "Cache-Control");
+
+    /**
+     * Запущенная замена или null, если она ещё не запускалась.
+     *
+     * @author Сергей Лужин
+     */
+    private static MarketStandIn instance;
+
+    /**
+     * Режим работы.
+     *
+     * @author Сергей Лужин
+     */
+    private final Mode mode;
+
+    /**
+     * Адрес живого сайта (схема, хост и порт).
+     *
+     * @author Сергей Лужин
+     */
+    private final String origin;
+
+    /**
+     * Хост живого сайта.
+     *
+     * @author Сергей Лужин
+     */
+    private final String host;
+
+    /**
+     * Каталог с записанными ответами.
+     *
+     * @author Сергей Лужин
+     */
+    private final Path directory;
+
+    /**
+     * Искусственная задержка ответа при воспроизведении (в миллисекундах).
+     *
+     * @author Сергей Лужин
+     */
+    private final long latencyMillis;
+
+    /**
+     * Локальный сервер.
+     *
+     * @author Сергей Лужин
+     */
+    private final HttpServer server;
+
+    /**
+     * HTTP-клиент для пересылки запросов в режиме записи.
+     *
+     * @author Сергей Лужин
+     */
+    private final HttpClient client;
+
+    /**
+     * Количество отданных ответов.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger served = new AtomicInteger();
+
+    /**
+     * Количество записанных ответов.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    /**
+     * Количество запросов, для которых при воспроизведении не нашлось записи.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger missed = new AtomicInteger();
+
+    /**
+     * Количество запросов, которые не удалось переслать, записать или прочитать из записи.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Последняя ошибка обработки запроса или null, если ошибок не было.
+     *
+     * @author Сергей Лужин
+     */
+    private volatile String lastFailure;
+
+    /**
+     * Создаёт и запускает локальный сервер на свободном порту.
+     *
+     * @param mode          режим записи или воспроизведения
+     * @param siteUrl       адрес живого сайта
+     * @param directory     каталог с записанными ответами
+     * @param latencyMillis задержка ответа при воспроизведении (в миллисекундах)
+     *
+     * @author Сергей Лужин
+     */
+    MarketStandIn(Mode mode, String siteUrl, Path directory, long latencyMillis) {
+        URI site = URI.create(siteUrl);
+        this.mode = mode;
+        this.host = site.getHost();
+        this.origin = site.getScheme() + "://" + site.getHost() + (site.getPort() < 0 ? "" : ":" + site.getPort());
+        this.directory = directory;
+        this.latencyMillis = latencyMillis;
+        this.client = mode == Mode.RECORD
+                ? HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build()
+                : null;
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "market-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    /**
+     * Запускает локальную замену в режиме {@link TestProperties#marketMode()}
+     * и подменяет адрес Яндекс Маркета в настройках адресом локального сервера.
+     * В режиме {@link Mode#LIVE} ничего не делает. Повторные вызовы ничего не меняют.
+     *
+     * @return адрес Яндекс Маркета, который должны открывать тесты
+     *
+     * @author Сергей Лужин
+     */
+    public static synchronized String start() {
+        if (instance == null && testProperties.marketMode() != Mode.LIVE) {
+            String siteUrl = testProperties.yandexMarketUrl();
+            instance = new MarketStandIn(testProperties.marketMode(), siteUrl,
+                    Paths.get(testProperties.marketRecordingsDir()), testProperties.marketReplayLatency());
+            testProperties.setProperty("yandex-market.url", instance.localUrl() + URI.create(siteUrl).getRawPath());
+        }
+        return testProperties.yandexMarketUrl();
+    }
+
+    /**
+     * Возвращает запущенную замену.
+     *
+     * @return замена Яндекс Маркета или null, если тесты работают с живым сайтом
+     *
+     * @author Сергей Лужин
+     */
+    public static synchronized MarketStandIn getInstance() {
+        return instance;
+    }
+
+    /**
+     * Возвращает адрес локального сервера без завершающей косой черты.
+     *
+     * @return адрес локального сервера
+     *
+     * @author Сергей Лужин
+     */
+    public String localUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Останавливает локальный сервер.
+     *
+     * @author Сергей Лужин
+     */
+    void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Обрабатывает запрос браузера: находит или записывает ответ и отдаёт его
+     * с адресами, переписанными на локальный сервер. Если ответ не удалось
+     * переслать, сохранить или прочитать, браузер получает 502, а ошибка
+     * учитывается в {@link #toString()}.
+     *
+     * @param exchange HTTP-запрос и ответ
+     * @throws IOException если ответ не удалось отправить
+     *
+     * @author Сергей Лужин
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath()
+                    + (exchange.getRequestURI().getRawQuery() == null ? "" : "?" + exchange.getRequestURI().getRawQuery());
+            String targetHost = host;
+            String targetOrigin = origin;
+            if (path.startsWith(HOST_PREFIX)) {
+                int end = path.indexOf('/', HOST_PREFIX.length());
+                targetHost = path.substring(HOST_PREFIX.length(), end < 0 ? path.length() : end);
+                targetOrigin = "https://" + targetHost;
+                path = end < 0 ? "/" : path.substring(end);
+            }
+            byte[] requestBody;
+            try (InputStream in = exchange.getRequestBody()) {
+                requestBody = in.readAllBytes();
+            }
+            String method = exchange.getRequestMethod();
+            String exactKey = method + " " + targetHost + path + (requestBody.length == 0 ? "" : " #" + sha1(requestBody));
+            String looseKey = method + " " + targetHost + path;
+
+            Recording recording;
+            if (mode == Mode.RECORD) {
+                recording = forward(exchange, method, targetOrigin + path, requestBody);
+                save(exactKey, recording);
+                if (!exactKey.equals(looseKey)) {
+                    save(looseKey, recording);
+                }
+                recorded.incrementAndGet();
+            } else {
+                recording = load(exactKey);
+                if (recording == null) {
+                    recording = load(looseKey);
+                }
+                Thread.sleep(latencyMillis);
+            }
+
+            if (recording == null) {
+                missed.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            send(exchange, recording);
+            served.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            lastFailure = exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e;
+            exchange.sendResponseHeaders(502, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Пересылает запрос на живой сайт.
+     *
+     * @author Сергей Лужин
+     */
+    private Recording forward(HttpExchange exchange, String method, String url, byte[] body) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .method(method, body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            if (!SKIPPED_REQUEST_HEADERS.contains(header.getKey().toLowerCase())) {
+                for (String value : header.getValue()) {
+                    request.header(header.getKey(), toRemote(value));
+                }
+            }
+        }
+        try {
+            HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            java.util.Properties headers = new java.util.Properties();
+            for (String name : KEPT_RESPONSE_HEADERS) {
+                List<String> values = response.headers().allValues(name);
+                if (!values.isEmpty()) {
+                    headers.setProperty(name, String.join("\n", values));
+                }
+            }
+            return new Recording(response.statusCode(), headers, response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Пересылка запроса " + url + " прервана", e);
+        }
+    }
+
+    /**
+     * Отдаёт записанный ответ, переписывая адреса и cookies под локальный сервер.
+     *
+     * @author Сергей Лужин
+     */
+    private void send(HttpExchange exchange, Recording recording) throws IOException {
+        String contentType = recording.headers.getProperty("Content-Type", "");
+        for (String name : recording.headers.stringPropertyNames()) {
+            for (String value : recording.headers.getProperty(name).split("\n")) {
+                if (name.equals("Set-Cookie")) {
+                    value = value.replaceAll("(?i);\\s*(Domain=[^;]*|Secure|SameSite=[^;]*)", "");
+                } else if (name.equals("Location")) {
+                    value = toLocal(value);
+                }
+                exchange.getResponseHeaders().add(name, value);
+            }
+        }
+        byte[] body = recording.body;
+        if (contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")) {
+            body = toLocal(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }
+        boolean noBody = recording.status == 204 || recording.status == 304 || exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(recording.status, noBody ? -1 : body.length);
+        if (!noBody) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Переписывает абсолютные адреса живого сайта и записываемых хостов на локальный сервер.
+     *
+     * @author Сергей Лужин
+     */
+    private String toLocal(String text) {
+        String local = localUrl();
+        String result = text.replace(origin, local).replace(origin.replace("/", "\\/"), local.replace("/", "\\/"));
+        for (String recordedHost : testProperties.marketRecordedHosts()) {
+            String remote = "https://" + recordedHost.trim();
+            String proxied = local + HOST_PREFIX + recordedHost.trim();
+            result = result.replace(remote, proxied)
+                    .replace(remote.replace("/", "\\/"), proxied.replace("/", "\\/"))
+                    .replace("\"//" + recordedHost.trim(), "\"" + proxied);
+        }
+        return result;
+    }
+
+    /**
+     * Переписывает адрес локального сервера обратно на адрес живого сайта
+     * (для заголовков Origin и Referer пересылаемых запросов).
+     *
+     * @author Сергей Лужин
+     */
+    private String toRemote(String value) {
+        String local = localUrl();
+        String result = value;
+        for (String recordedHost : testProperties.marketRecordedHosts()) {
+            result = result.replace(local + HOST_PREFIX + recordedHost.trim(), "https://" + recordedHost.trim());
+        }
+        return result.replace(local, origin);
+    }
+
+    /**
+     * Сохраняет ответ: заголовки и статус - в файл .properties, тело - в файл .body.
+     * Запись идёт через временные файлы, чтобы параллельные тесты не прочитали
+     * наполовину записанный ответ.
+     *
+     * @author Сергей Лужин
+     */
+    private void save(String key, Recording recording) throws IOException {
+        Files.createDirectories(directory);
+        String name = sha1(key.getBytes(StandardCharsets.UTF_8));
+
+        Path bodyTemp = Files.createTempFile(directory, name, ".tmp");
+        Files.write(bodyTemp, recording.body);
+        Files.move(bodyTemp, directory.resolve(name + ".body"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        java.util.Properties meta = new java.util.Properties();
+        meta.putAll(recording.headers);
+        meta.setProperty("request", key);
+        meta.setProperty("status", String.valueOf(recording.status));
+        Path metaTemp = Files.createTempFile(directory, name, ".tmp");
+        try (Writer writer = Files.newBufferedWriter(metaTemp, StandardCharsets.UTF_8)) {
+            meta.store(writer, "Записанный ответ Яндекс Маркета");
+        }
+        Files.move(metaTemp, directory.resolve(name + ".properties"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Загружает записанный ответ.
+     *
+     * @return ответ или null, если запрос не записывался
+     *
+     * @author Сергей Лужин
+     */
+    private Recording load(String key) throws IOException {
+        String name = sha1(key.getBytes(StandardCharsets.UTF_8));
+        Path metaFile = directory.resolve(name + ".properties");
+        if (!Files.exists(metaFile)) {
+            return null;
+        }
+        java.util.Properties meta = new java.util.Properties();
+        try (Reader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        }
+        int status = Integer.parseInt(meta.getProperty("status"));
+        meta.remove("status");
+        meta.remove("request");
+        return new Recording(status, meta, Files.readAllBytes(directory.resolve(name + ".body")));
+    }
+
+    /**
+     * Возвращает SHA-1 данных в шестнадцатеричном виде.
+     *
+     * @author Сергей Лужин
+     */
+    private static String sha1(byte[] data) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Замена Яндекс Маркета (" + mode + ", " + localUrl() + " вместо " + origin + "): отдано ответов "
+                + served.get() + ", записано " + recorded.get() + ", не найдено записей " + missed.get()
+                + ", ошибок " + failed.get()
+                + (mode == Mode.REPLAY ? ", задержка ответа " + latencyMillis + " мс" : "")
+                + (lastFailure == null ? "" : "\nПоследняя ошибка: " + lastFailure);
+    }
+
+    /**
+     * Записанный ответ: статус, сохраняемые заголовки и тело.
+     *
+     * @author Сергей Лужин
+     */
+    private static class Recording {
+        private final int status;
+        private final java.util.Properties headers;
+        private final byte[] body;
+
+        private Recording(int status, java.util.Properties headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package helpers;
+
+import org.junit.platform.engine.ConfigurationParameters;
+import org.junit.platform.engine.support.hierarchical.ParallelExecutionConfiguration;
+import org.junit.platform.engine.support.hierarchical.ParallelExecutionConfigurationStrategy;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Стратегия параллельного запуска тестов JUnit 5.
+ * Берёт уровень параллелизма из {@link TestProperties#parallelThreads()},
+ * чтобы количество одновременно открытых браузеров настраивалось
+ * в том же файле, что и остальные тестовые параметры.
+ *
+ * Подключается в файле junit-platform.properties через
+ * junit.jupiter.execution.parallel.config.custom.class.
+ *
+ * @author Сергей Лужин
+ */
+public class ParallelExecutionStrategy implements ParallelExecutionConfigurationStrategy {
+
+    /**
+     * Время жизни простаивающего потока пула JUnit (в секундах).
+     *
+     * @author Сергей Лужин
+     */
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Запас потоков сверх уровня параллелизма, которые ForkJoinPool JUnit
+     * может создать взамен потоков, заблокированных в ожидании дочерних задач.
+     *
+     * @author Сергей Лужин
+     */
+    private static final int MAX_POOL_SIZE_OFFSET = 256;
+
+    /**
+     * Создаёт конфигурацию пула потоков JUnit, в которой уровень параллелизма
+     * равен {@link TestProperties#parallelThreads()}.
+     *
+     * @param configurationParameters параметры конфигурации JUnit (не используются)
+     * @return конфигурация параллельного запуска
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public ParallelExecutionConfiguration createConfiguration(ConfigurationParameters configurationParameters) {
+        int parallelism = Math.max(1, testProperties.parallelThreads());
+
+        return new ParallelExecutionConfiguration() {
+            @Override
+            public int getParallelism() {
+                return parallelism;
+            }
+
+            @Override
+            public int getMinimumRunnable() {
+                return parallelism;
+            }
+
+            @Override
+            public int getMaxPoolSize() {
+                return parallelism + MAX_POOL_SIZE_OFFSET;
+            }
+
+            @Override
+            public int getCorePoolSize() {
+                return parallelism;
+            }
+
+            @Override
+            public int getKeepAliveSeconds() {
+                return KEEP_ALIVE_SECONDS;
+            }
+        };
+    }
+}
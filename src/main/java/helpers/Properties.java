@@ -24,4 +24,13 @@ public class Properties {
      * @author Сергей Лужин
      */
     public static XpathProperties xpathProperties = ConfigFactory.create(XpathProperties.class);
+
+    /**
+     * Реестр готовых XPath-локаторов, построенный на {@link #xpathProperties}.
+     * Создаётся при загрузке класса, поэтому ошибки в xpath.properties
+     * обнаруживаются до начала работы с браузером.
+     *
+     * @author Сергей Лужин
+     */
+    public static LocatorRegistry locators = new LocatorRegistry(xpathProperties);
 }
@@ -0,0 +1,156 @@
+package helpers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кольцевой буфер последних скриншотов теста для режима
+ * {@link Screenshoter.Policy#ON_FAILURE}.
+ *
+ * Каждый поток теста хранит не больше заданного количества последних кадров.
+ * Кроме того, все буферы вместе ограничены общим объёмом в байтах:
+ * если он превышен, поток, добавляющий кадр, вытесняет свои самые старые кадры.
+ * Так память остаётся ограниченной при любом количестве параллельных тестов.
+ *
+ * @author Сергей Лужин
+ */
+public class ScreenshotBuffer {
+
+    /**
+     * Максимальное количество кадров в буфере одного теста.
+     *
+     * @author Сергей Лужин
+     */
+    private final int maxFrames;
+
+    /**
+     * Максимальный общий объём кадров во всех буферах (в байтах).
+     *
+     * @author Сергей Лужин
+     */
+    private final long maxBytes;
+
+    /**
+     * Текущий общий объём кадров во всех буферах (в байтах).
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    /**
+     * Кадры теста, выполняющегося в текущем потоке, от старых к новым.
+     *
+     * @author Сергей Лужин
+     */
+    private final ThreadLocal<Deque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Создаёт буфер с заданными ограничениями.
+     *
+     * @param maxFrames максимальное количество кадров на тест
+     * @param maxBytes  максимальный общий объём кадров всех тестов (в байтах)
+     *
+     * @author Сергей Лужин
+     */
+    public ScreenshotBuffer(int maxFrames, long maxBytes) {
+        this.maxFrames = Math.max(1, maxFrames);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Добавляет кадр в буфер текущего теста, вытесняя самые старые кадры,
+     * если превышено количество кадров на тест или общий объём буферов.
+     * Последний добавленный кадр не вытесняется никогда.
+     *
+     * @param name  название скриншота в отчёте Allure
+     * @param bytes PNG-изображение скриншота
+     *
+     * @author Сергей Лужин
+     */
+    public void add(String name, byte[] bytes) {
+        Deque<Frame> own = frames.get();
+        own.addLast(new Frame(name, bytes));
+        totalBytes.addAndGet(bytes.length);
+
+        while (own.size() > 1 && (own.size() > maxFrames || totalBytes.get() > maxBytes)) {
+            totalBytes.addAndGet(-own.removeFirst().bytes.length);
+        }
+    }
+
+    /**
+     * Забирает все кадры текущего теста, очищая его буфер.
+     *
+     * @return кадры от старых к новым
+     *
+     * @author Сергей Лужин
+     */
+    public List<Frame> drain() {
+        Deque<Frame> own = frames.get();
+        List<Frame> drained = new ArrayList<>(own);
+        clear();
+        return drained;
+    }
+
+    /**
+     * Отбрасывает все кадры текущего теста.
+     *
+     * @author Сергей Лужин
+     */
+    public void clear() {
+        Deque<Frame> own = frames.get();
+        for (Frame frame : own) {
+            totalBytes.addAndGet(-frame.bytes.length);
+        }
+        own.clear();
+    }
+
+    /**
+     * Кадр буфера.
+     *
+     * @author Сергей Лужин
+     */
+    public static class Frame {
+
+        /**
+         * Название скриншота в отчёте Allure.
+         *
+         * @author Сергей Лужин
+         */
+        private final String name;
+
+        /**
+         * PNG-изображение скриншота.
+         *
+         * @author Сергей Лужин
+         */
+        private final byte[] bytes;
+
+        private Frame(String name, byte[] bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Возвращает название скриншота в отчёте Allure.
+         *
+         * @return название скриншота
+         * @author Сергей Лужин
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Возвращает PNG-изображение скриншота.
+         *
+         * @return изображение скриншота
+         * @author Сергей Лужин
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+}
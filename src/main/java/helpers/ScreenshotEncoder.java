@@ -0,0 +1,205 @@
+package helpers;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Перекодирование скриншотов перед записью в отчёт Allure.
+ *
+ * Скриншот развёрнутого на весь экран окна в PNG весит сотни килобайт,
+ * поэтому кадр можно уменьшить, перевести в оттенки серого
+ * и сохранить в JPEG с заданным качеством. Параметры берутся из
+ * {@link TestProperties}: screenshot.format, screenshot.scale,
+ * screenshot.jpeg.quality и screenshot.grayscale.
+ *
+ * @author Сергей Лужин
+ */
+public class ScreenshotEncoder {
+
+    /**
+     * Формат, в котором скриншоты записываются в отчёт.
+     *
+     * @author Сергей Лужин
+     */
+    public enum Format {
+
+        /**
+         * PNG без потерь - формат, в котором WebDriver отдаёт скриншоты.
+         */
+        PNG("image/png", "png"),
+
+        /**
+         * JPEG с потерями и настраиваемым качеством.
+         */
+        JPEG("image/jpeg", "jpg");
+
+        /**
+         * MIME-тип вложения Allure.
+         *
+         * @author Сергей Лужин
+         */
+        private final String mimeType;
+
+        /**
+         * Расширение файла вложения.
+         *
+         * @author Сергей Лужин
+         */
+        private final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Формат записи скриншотов.
+     *
+     * @author Сергей Лужин
+     */
+    private final Format format;
+
+    /**
+     * Масштаб кадра: 1.0 - исходный размер, 0.5 - вдвое меньше по каждой стороне.
+     *
+     * @author Сергей Лужин
+     */
+    private final double scale;
+
+    /**
+     * Качество JPEG от 0.0 до 1.0.
+     *
+     * @author Сергей Лужин
+     */
+    private final float quality;
+
+    /**
+     * Признак перевода кадра в оттенки серого.
+     *
+     * @author Сергей Лужин
+     */
+    private final boolean grayscale;
+
+    /**
+     * Создаёт кодировщик с заданными параметрами.
+     *
+     * @param format    формат записи скриншотов
+     * @param scale     масштаб кадра (от 0 до 1)
+     * @param quality   качество JPEG (от 0.0 до 1.0), для PNG не используется
+     * @param grayscale true, если кадр нужно перевести в оттенки серого
+     *
+     * @author Сергей Лужин
+     */
+    public ScreenshotEncoder(Format format, double scale, float quality, boolean grayscale) {
+        this.format = format;
+        this.scale = Math.min(1.0, Math.max(0.01, scale));
+        this.quality = Math.min(1.0f, Math.max(0.0f, quality));
+        this.grayscale = grayscale;
+    }
+
+    /**
+     * Создаёт кодировщик по параметрам из {@link TestProperties}.
+     *
+     * @return кодировщик скриншотов
+     *
+     * @author Сергей Лужин
+     */
+    public static ScreenshotEncoder fromProperties() {
+        return new ScreenshotEncoder(
+                testProperties.screenshotFormat(),
+                testProperties.screenshotScale(),
+                testProperties.screenshotJpegQuality(),
+                testProperties.screenshotGrayscale()
+        );
+    }
+
+    /**
+     * Перекодирует PNG-скриншот согласно настройкам.
+     * Если настройки не меняют кадр (PNG в исходном размере и цвете),
+     * возвращает исходные байты без разбора изображения.
+     *
+     * @param png PNG-изображение, полученное от WebDriver
+     * @return перекодированное изображение
+     * @throws IOException если изображение не удалось прочитать или записать
+     *
+     * @author Сергей Лужин
+     */
+    public byte[] encode(byte[] png) throws IOException {
+        if (format == Format.PNG && scale >= 1.0 && !grayscale) {
+            return png;
+        }
+
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(png));
+        if (source == null) {
+            throw new IOException("Неизвестный формат изображения");
+        }
+
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        // у JPEG нет альфа-канала, поэтому кадр всегда перерисовывается в RGB или оттенки серого
+        BufferedImage target = new BufferedImage(width, height,
+                grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (format == Format.PNG) {
+            ImageIO.write(target, "png", out);
+            return out.toByteArray();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(target, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Возвращает MIME-тип вложения Allure для перекодированных скриншотов.
+     *
+     * @return MIME-тип изображения
+     *
+     * @author Сергей Лужин
+     */
+    public String getMimeType() {
+        return format.mimeType;
+    }
+
+    /**
+     * Возвращает расширение файла вложения для перекодированных скриншотов.
+     *
+     * @return расширение файла без точки
+     *
+     * @author Сергей Лужин
+     */
+    public String getExtension() {
+        return format.extension;
+    }
+
+    @Override
+    public String toString() {
+        return format + (format == Format.JPEG ? " q=" + quality : "")
+                + ", масштаб " + scale + (grayscale ? ", оттенки серого" : "");
+    }
+}
@@ -0,0 +1,32 @@
+package helpers;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Расширение JUnit 5, прикрепляющее к отчёту Allure последние скриншоты
+ * упавшего теста в режиме {@link Screenshoter.Policy#ON_FAILURE}.
+ *
+ * Срабатывает сразу после тела теста, до методов {@link org.junit.jupiter.api.AfterEach},
+ * поэтому кадры попадают в отчёт раньше, чем буфер будет очищен
+ * в {@link Screenshoter#flush()}.
+ *
+ * @author Сергей Лужин
+ */
+public class ScreenshotOnFailureExtension implements AfterTestExecutionCallback {
+
+    /**
+     * Если тест завершился исключением (упавшая проверка, ошибка WebDriver и т.д.),
+     * прикрепляет к отчёту накопленные кадры теста.
+     *
+     * @param context контекст выполнения теста
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        if (context.getExecutionException().isPresent()) {
+            Screenshoter.attachBufferedScreenshots();
+        }
+    }
+}
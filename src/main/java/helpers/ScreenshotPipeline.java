@@ -0,0 +1,417 @@
+package helpers;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Attachment;
+import io.qameta.allure.model.WithAttachments;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Асинхронная запись скриншотов в отчёт Allure.
+ *
+ * Поток теста только снимает скриншот и регистрирует вложение в текущем
+ * шаге Allure - так сохраняются порядок вложений и их привязка к тесту и шагу.
+ * Запись файла вложения выполняет фоновый поток, получающий кадры
+ * из ограниченной очереди. При переполнении очереди поток теста либо ждёт
+ * ({@link QueuePolicy#BLOCK}), либо вытесняет самый старый кадр
+ * ({@link QueuePolicy#DROP_OLDEST}). Там же, в фоновом потоке, кадры
+ * проверяются на повторы через {@link FrameDeduplicator} и перекодируются
+ * через {@link ScreenshotEncoder}.
+ *
+ * В конце теста вызывается {@link #flush()}: он дожидается записи кадров
+ * текущего теста и убирает из отчёта вложения кадров, которые не были записаны
+ * или оказались повторами.
+ *
+ * @author Сергей Лужин
+ */
+public class ScreenshotPipeline {
+
+    /**
+     * Поведение при переполнении очереди скриншотов.
+     *
+     * @author Сергей Лужин
+     */
+    public enum QueuePolicy {
+
+        /**
+         * Поток теста ждёт, пока в очереди освободится место.
+         */
+        BLOCK,
+
+        /**
+         * Из очереди вытесняется самый старый ещё не записанный кадр.
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * Единственный экземпляр конвейера, создаётся при первом скриншоте.
+     *
+     * @author Сергей Лужин
+     */
+    private static volatile ScreenshotPipeline instance;
+
+    /**
+     * Очередь кадров, ожидающих записи.
+     *
+     * @author Сергей Лужин
+     */
+    private final BlockingDeque<Frame> queue;
+
+    /**
+     * Поведение при переполнении очереди.
+     *
+     * @author Сергей Лужин
+     */
+    private final QueuePolicy policy;
+
+    /**
+     * Кодировщик кадров перед записью.
+     *
+     * @author Сергей Лужин
+     */
+    private final ScreenshotEncoder encoder;
+
+    /**
+     * Кадры, снятые текущим потоком теста с момента последнего {@link #flush()}.
+     *
+     * @author Сергей Лужин
+     */
+    private final ThreadLocal<List<Frame>> pending = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Создаёт конвейер по параметрам из {@link TestProperties}
+     * и запускает фоновый поток записи.
+     *
+     * @author Сергей Лужин
+     */
+    private ScreenshotPipeline() {
+        this(testProperties.screenshotQueueCapacity(), testProperties.screenshotQueuePolicy(), ScreenshotEncoder.fromProperties());
+    }
+
+    /**
+     * Создаёт конвейер с указанными параметрами и запускает фоновый поток записи.
+     *
+     * @param capacity размер очереди кадров
+     * @param policy   поведение при переполнении очереди
+     * @param encoder  кодировщик кадров
+     *
+     * @author Сергей Лужин
+     */
+    ScreenshotPipeline(int capacity, QueuePolicy policy, ScreenshotEncoder encoder) {
+        this.queue = new LinkedBlockingDeque<>(Math.max(1, capacity));
+        this.policy = policy;
+        this.encoder = encoder;
+
+        Thread worker = new Thread(this::writeLoop, "screenshot-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Возвращает конвейер, создавая его при первом обращении.
+     *
+     * @return конвейер скриншотов
+     *
+     * @author Сергей Лужин
+     */
+    public static ScreenshotPipeline getInstance() {
+        if (instance == null) {
+            synchronized (ScreenshotPipeline.class) {
+                if (instance == null) {
+                    instance = new ScreenshotPipeline();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Регистрирует вложение в текущем шаге (или тесте) Allure
+     * и ставит кадр в очередь на запись.
+     *
+     * @param name         название скриншота в отчёте Allure
+     * @param bytes        PNG-изображение скриншота
+     * @param deduplicator отсев повторов текущего теста или null, если повторы не отсеиваются
+     *
+     * @author Сергей Лужин
+     */
+    public void submit(String name, byte[] bytes, FrameDeduplicator deduplicator) {
+        WithAttachments owner = currentOwner();
+        if (owner == null) {
+            return;
+        }
+
+        Attachment attachment = new Attachment()
+                .setName(name)
+                .setType(encoder.getMimeType())
+                .setSource(UUID.randomUUID() + "-attachment." + encoder.getExtension());
+        owner.getAttachments().add(attachment);
+
+        Frame frame = new Frame(owner, attachment, bytes, deduplicator);
+        pending.get().add(frame);
+        enqueue(frame);
+    }
+
+    /**
+     * Дожидается записи всех кадров текущего потока теста.
+     * Вложения кадров, которые не были записаны, убираются из отчёта, а их количество
+     * по причинам прикрепляется к тесту отдельным вложением: вытеснены из переполненной
+     * очереди, не записаны за {@link TestProperties#defaultTimeout()} или не записались
+     * из-за ошибки. Кадр, не записанный за отведённое время, отменяется и уже не будет
+     * записан фоновым потоком; кадр, запись файла которого уже началась, дописывается.
+     * Вложения кадров-повторов тоже убираются из отчёта.
+     *
+     * @author Сергей Лужин
+     */
+    public void flush() {
+        List<Frame> frames = pending.get();
+        pending.remove();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(testProperties.defaultTimeout());
+        int evicted = 0;
+        int timedOut = 0;
+        int failed = 0;
+        for (Frame frame : frames) {
+            try {
+                frame.written.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (!frame.state.compareAndSet(State.QUEUED, State.TIMED_OUT) && frame.state.get() == State.WRITING) {
+                    frame.written.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                frame.state.compareAndSet(State.QUEUED, State.TIMED_OUT);
+            }
+
+            State state = frame.state.get();
+            if (state != State.WRITTEN) {
+                frame.owner.getAttachments().remove(frame.attachment);
+            }
+            if (state == State.EVICTED) {
+                evicted++;
+            } else if (state == State.TIMED_OUT || state == State.WRITING) {
+                timedOut++;
+            } else if (state == State.FAILED) {
+                failed++;
+            }
+        }
+
+        if (evicted + timedOut + failed > 0) {
+            Allure.addAttachment("Незаписанные скриншоты",
+                    "Не записано " + (evicted + timedOut + failed) + " из " + frames.size() + " скриншотов:"
+                            + "\nвытеснено из переполненной очереди записи: " + evicted
+                            + "\nне записано за " + testProperties.defaultTimeout() + " с: " + timedOut
+                            + "\nошибка записи: " + failed);
+        }
+    }
+
+    /**
+     * Ставит кадр в очередь с учётом политики переполнения.
+     *
+     * @param frame кадр для записи
+     *
+     * @author Сергей Лужин
+     */
+    private void enqueue(Frame frame) {
+        try {
+            if (policy == QueuePolicy.BLOCK) {
+                queue.putLast(frame);
+                return;
+            }
+            while (!queue.offerLast(frame)) {
+                Frame oldest = queue.pollFirst();
+                if (oldest != null && oldest.state.compareAndSet(State.QUEUED, State.EVICTED)) {
+                    oldest.bytes = null;
+                    oldest.written.countDown();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            frame.state.compareAndSet(State.QUEUED, State.EVICTED);
+            frame.written.countDown();
+        }
+    }
+
+    /**
+     * Цикл фонового потока: забирает кадры из очереди и записывает их в результаты Allure.
+     * Перед записью файла кадр переводится в состояние записи; кадр, отменённый
+     * {@link #flush()} раньше этого, не записывается, поэтому в результатах
+     * не остаётся файлов без вложений.
+     *
+     * @author Сергей Лужин
+     */
+    private void writeLoop() {
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        while (true) {
+            Frame frame;
+            try {
+                frame = queue.takeFirst();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                byte[] bytes = frame.bytes;
+                if (frame.state.get() != State.QUEUED) {
+                    continue;
+                }
+                if (frame.deduplicator != null && frame.deduplicator.isDuplicate(bytes)) {
+                    frame.state.compareAndSet(State.QUEUED, State.DUPLICATE);
+                    continue;
+                }
+                byte[] encoded = encoder.encode(bytes);
+                if (!frame.state.compareAndSet(State.QUEUED, State.WRITING)) {
+                    continue;
+                }
+                lifecycle.writeAttachment(frame.attachment.getSource(), new ByteArrayInputStream(encoded));
+                frame.state.set(State.WRITTEN);
+            } catch (Exception e) {
+                if (!frame.state.compareAndSet(State.WRITING, State.FAILED)) {
+                    frame.state.compareAndSet(State.QUEUED, State.FAILED);
+                }
+            } finally {
+                frame.bytes = null;
+                frame.written.countDown();
+            }
+        }
+    }
+
+    /**
+     * Возвращает шаг, тест или фикстуру Allure, которые сейчас выполняются в потоке теста.
+     *
+     * @return владелец вложений или null, если поток не выполняет тест
+     *
+     * @author Сергей Лужин
+     */
+    private static WithAttachments currentOwner() {
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        Optional<String> current = lifecycle.getCurrentTestCaseOrStep();
+        if (!current.isPresent()) {
+            return null;
+        }
+
+        AtomicReference<WithAttachments> owner = new AtomicReference<>();
+        String uuid = current.get();
+        if (current.equals(lifecycle.getCurrentTestCase())) {
+            lifecycle.updateTestCase(uuid, owner::set);
+        } else {
+            lifecycle.updateStep(uuid, owner::set);
+            if (owner.get() == null) {
+                lifecycle.updateFixture(uuid, owner::set);
+            }
+        }
+        return owner.get();
+    }
+
+    /**
+     * Состояние кадра на пути в отчёт.
+     *
+     * @author Сергей Лужин
+     */
+    private enum State {
+
+        /**
+         * Кадр ждёт записи.
+         */
+        QUEUED,
+
+        /**
+         * Фоновый поток записывает файл кадра.
+         */
+        WRITING,
+
+        /**
+         * Файл кадра записан.
+         */
+        WRITTEN,
+
+        /**
+         * Кадр повторяет предыдущий и не записывается.
+         */
+        DUPLICATE,
+
+        /**
+         * Кадр вытеснен из переполненной очереди.
+         */
+        EVICTED,
+
+        /**
+         * Кадр не записан за отведённое время и отменён.
+         */
+        TIMED_OUT,
+
+        /**
+         * Запись кадра завершилась ошибкой.
+         */
+        FAILED
+    }
+
+    /**
+     * Кадр, ожидающий записи.
+     *
+     * @author Сергей Лужин
+     */
+    private static class Frame {
+
+        /**
+         * Шаг, тест или фикстура Allure, к которым прикреплён кадр.
+         *
+         * @author Сергей Лужин
+         */
+        private final WithAttachments owner;
+
+        /**
+         * Вложение Allure, зарегистрированное для кадра.
+         *
+         * @author Сергей Лужин
+         */
+        private final Attachment attachment;
+
+        /**
+         * Изображение кадра. Освобождается после записи,
+         * чтобы кадры, ожидающие {@link #flush()}, не занимали память.
+         *
+         * @author Сергей Лужин
+         */
+        private volatile byte[] bytes;
+
+        /**
+         * Отмечается, когда фоновый поток закончил с кадром или кадр вытеснен из очереди.
+         *
+         * @author Сергей Лужин
+         */
+        private final CountDownLatch written = new CountDownLatch(1);
+
+        /**
+         * Состояние кадра.
+         *
+         * @author Сергей Лужин
+         */
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+
+        /**
+         * Отсев повторов теста, снявшего кадр, или null.
+         *
+         * @author Сергей Лужин
+         */
+        private final FrameDeduplicator deduplicator;
+
+        private Frame(WithAttachments owner, Attachment attachment, byte[] bytes, FrameDeduplicator deduplicator) {
+            this.owner = owner;
+            this.attachment = attachment;
+            this.bytes = bytes;
+            this.deduplicator = deduplicator;
+        }
+    }
+}
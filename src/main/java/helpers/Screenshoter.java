@@ -6,17 +6,83 @@ import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static helpers.Properties.testProperties;
 
 /**
  * Утилитный класс для создания и прикрепления скриншотов к отчёту Allure.
  * Используется для фиксации состояния страницы в момент выполнения теста.
  *
+ * Если включена асинхронная запись ({@link TestProperties#screenshotAsync()}),
+ * поток теста только снимает скриншот, а запись вложения выполняет
+ * {@link ScreenshotPipeline}. В конце теста нужно вызвать {@link #flush()}.
+ *
+ * Если включён отсев повторов ({@link TestProperties#screenshotDedupEnabled()}),
+ * кадры, почти не отличающиеся от предыдущего кадра того же теста,
+ * в отчёт не попадают, а их количество отмечается в отчёте при {@link #flush()}.
+ *
+ * Перед записью кадры перекодируются {@link ScreenshotEncoder}
+ * (уменьшение, JPEG, оттенки серого) согласно {@link TestProperties}.
+ *
+ * Режим снятия скриншотов задаётся {@link TestProperties#screenshotPolicy()}:
+ * в режиме {@link Policy#ON_FAILURE} последние кадры теста копятся
+ * в {@link ScreenshotBuffer} и попадают в отчёт, только если тест упал.
+ *
  * @author Сергей Лужин
  */
 public class Screenshoter {
 
+    /**
+     * Режим снятия скриншотов.
+     *
+     * @author Сергей Лужин
+     */
+    public enum Policy {
+
+        /**
+         * Каждый скриншот сразу попадает в отчёт.
+         */
+        ALWAYS,
+
+        /**
+         * Последние скриншоты теста хранятся в памяти и попадают в отчёт, только если тест упал.
+         */
+        ON_FAILURE,
+
+        /**
+         * Скриншоты не снимаются.
+         */
+        OFF
+    }
+
+    /**
+     * Буфер последних кадров тестов для режима {@link Policy#ON_FAILURE}.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ScreenshotBuffer buffer =
+            new ScreenshotBuffer(testProperties.screenshotBufferSize(), testProperties.screenshotBufferMaxBytes());
+
+    /**
+     * Кодировщик скриншотов для синхронного режима записи.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ScreenshotEncoder encoder = ScreenshotEncoder.fromProperties();
+
+    /**
+     * Отсев повторов для теста, выполняющегося в текущем потоке.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ThreadLocal<FrameDeduplicator> deduplicators =
+            ThreadLocal.withInitial(() -> new FrameDeduplicator(testProperties.screenshotDedupThreshold()));
+
     /**
      * Делает скриншот текущего состояния браузера и прикрепляет его к отчёту Allure.
+     * В режиме {@link Policy#ON_FAILURE} скриншот только сохраняется в буфер теста,
+     * в режиме {@link Policy#OFF} не снимается вовсе.
      *
      * @param name   название скриншота в отчёте Allure
      * @param driver экземпляр WebDriver, из которого будет сделан скриншот
@@ -24,12 +90,75 @@ public class Screenshoter {
      * @author Сергей Лужин
      */
     public static void attachScreenshot(String name, WebDriver driver) {
+        Policy policy = testProperties.screenshotPolicy();
         try {
-            if (driver instanceof TakesScreenshot) {
+            if (policy != Policy.OFF && driver instanceof TakesScreenshot) {
                 byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-                Allure.addAttachment(name, new ByteArrayInputStream(screenshot));
+                if (policy == Policy.ON_FAILURE) {
+                    buffer.add(name, screenshot);
+                } else {
+                    write(name, screenshot);
+                }
             }
         } catch (Exception ignored) {}
     }
 
+    /**
+     * Прикрепляет к отчёту Allure накопленные в буфере кадры текущего теста
+     * и очищает буфер. Вызывается, когда тест упал.
+     * Если буфер пуст (например, в режиме {@link Policy#ALWAYS}), ничего не делает.
+     *
+     * @author Сергей Лужин
+     */
+    public static void attachBufferedScreenshots() {
+        for (ScreenshotBuffer.Frame frame : buffer.drain()) {
+            try {
+                write(frame.getName(), frame.getBytes());
+            } catch (Exception ignored) {}
+        }
+    }
+
+    /**
+     * Записывает скриншот в отчёт Allure: синхронно или через {@link ScreenshotPipeline},
+     * с отсевом повторов и перекодированием согласно настройкам.
+     *
+     * @param name       название скриншота в отчёте Allure
+     * @param screenshot PNG-изображение скриншота
+     * @throws IOException если изображение не удалось перекодировать
+     *
+     * @author Сергей Лужин
+     */
+    private static void write(String name, byte[] screenshot) throws IOException {
+        FrameDeduplicator deduplicator = testProperties.screenshotDedupEnabled() ? deduplicators.get() : null;
+        if (testProperties.screenshotAsync()) {
+            ScreenshotPipeline.getInstance().submit(name, screenshot, deduplicator);
+        } else if (deduplicator == null || !deduplicator.isDuplicate(screenshot)) {
+            Allure.addAttachment(name, encoder.getMimeType(),
+                    new ByteArrayInputStream(encoder.encode(screenshot)), encoder.getExtension());
+        }
+    }
+
+    /**
+     * Дожидается записи в отчёт всех скриншотов, снятых текущим тестом,
+     * и отмечает в отчёте, сколько кадров было пропущено как повторы.
+     * Кадры, оставшиеся в буфере режима {@link Policy#ON_FAILURE}, отбрасываются:
+     * если тест дошёл до этого места без падения, они не нужны.
+     * Вызывается в конце теста, пока результат теста ещё не записан Allure.
+     *
+     * @author Сергей Лужин
+     */
+    public static void flush() {
+        buffer.clear();
+        if (testProperties.screenshotAsync()) {
+            ScreenshotPipeline.getInstance().flush();
+        }
+
+        int skipped = deduplicators.get().getSkipped();
+        deduplicators.remove();
+        if (skipped > 0) {
+            Allure.addAttachment("Пропущенные повторяющиеся скриншоты",
+                    "Пропущено " + skipped + " кадров, почти не отличающихся от предыдущего кадра");
+        }
+    }
+
 }
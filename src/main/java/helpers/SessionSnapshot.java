@@ -0,0 +1,368 @@
+package helpers;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Снимок состояния браузера: cookies и localStorage одного сайта.
+ *
+ * Новый браузер при первом заходе на Яндекс Маркет проходит первичные перенаправления,
+ * во время которых сайт выставляет свои cookies и localStorage. Прогрев - это только
+ * первое открытие сайта и ожидание тишины в сети: выбор региона и баннеры согласия
+ * не проходятся, поэтому в снимок попадают лишь значения, которые сайт выставил сам.
+ * Снимок снимается один раз после прогрева, сохраняется в файл
+ * {@link TestProperties#sessionSnapshotFile()} и восстанавливается в новые сессии
+ * перед открытием сайта, чтобы страница сразу открывалась в «прогретом» состоянии.
+ *
+ * Снимок считается устаревшим, если он старше {@link TestProperties#sessionSnapshotTtlHours()} часов,
+ * снят для другого сайта, среди его cookies есть истёкшие или файл снимка не удалось разобрать
+ * (обрезан, исправлен вручную или записан в старом формате). Устаревший снимок
+ * перезаписывается новым.
+ *
+ * @author Сергей Лужин
+ */
+public class SessionSnapshot {
+
+    /**
+     * Скрипт чтения всего localStorage страницы.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String READ_LOCAL_STORAGE_SCRIPT =
+            "var items = {};"
+                    + "for (var i = 0; i < window.localStorage.length; i++) {"
+                    + "  var key = window.localStorage.key(i);"
+                    + "  items[key] = window.localStorage.getItem(key);"
+                    + "}"
+                    + "return items;";
+
+    /**
+     * Скрипт записи значений в localStorage страницы. Аргумент: объект ключ-значение.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String WRITE_LOCAL_STORAGE_SCRIPT =
+            "var items = arguments[0];"
+                    + "for (var key in items) { window.localStorage.setItem(key, items[key]); }";
+
+    /**
+     * Путь на сайте, который открывается перед восстановлением снимка:
+     * cookies и localStorage можно задать только на странице того же сайта,
+     * а robots.txt загружается быстро и без перенаправлений и всплывающих окон.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String BOOTSTRAP_PATH = "/robots.txt";
+
+    /**
+     * Сайт (схема и хост), для которого снят снимок.
+     *
+     * @author Сергей Лужин
+     */
+    private final String origin;
+
+    /**
+     * Время снятия снимка (в миллисекундах с начала эпохи).
+     *
+     * @author Сергей Лужин
+     */
+    private final long capturedAt;
+
+    /**
+     * Cookies сайта в формате {@link Cookie#toJson()}.
+     *
+     * @author Сергей Лужин
+     */
+    private final List<Map<String, Object>> cookies;
+
+    /**
+     * Содержимое localStorage сайта.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<String, Object> localStorage;
+
+    /**
+     * Причина, по которой файл снимка не удалось разобрать, или null для пригодного к проверке снимка.
+     *
+     * @author Сергей Лужин
+     */
+    private final String unreadableReason;
+
+    private SessionSnapshot(String origin, long capturedAt, List<Map<String, Object>> cookies, Map<String, Object> localStorage) {
+        this.origin = origin;
+        this.capturedAt = capturedAt;
+        this.cookies = cookies;
+        this.localStorage = localStorage;
+        this.unreadableReason = null;
+    }
+
+    private SessionSnapshot(String unreadableReason) {
+        this.origin = null;
+        this.capturedAt = 0;
+        this.cookies = new ArrayList<>();
+        this.localStorage = new LinkedHashMap<>();
+        this.unreadableReason = unreadableReason;
+    }
+
+    /**
+     * Снимает cookies и localStorage сайта, открытого в браузере.
+     *
+     * @param driver экземпляр WebDriver с открытым и прогретым сайтом
+     * @return снимок состояния браузера
+     *
+     * @author Сергей Лужин
+     */
+    @SuppressWarnings("unchecked")
+    public static SessionSnapshot capture(WebDriver driver) {
+        List<Map<String, Object>> cookies = new ArrayList<>();
+        for (Cookie cookie : driver.manage().getCookies()) {
+            Map<String, Object> json = new LinkedHashMap<>(cookie.toJson());
+            if (cookie.getExpiry() != null) {
+                json.put("expiry", TimeUnit.MILLISECONDS.toSeconds(cookie.getExpiry().getTime()));
+            }
+            cookies.add(json);
+        }
+        Map<String, Object> localStorage =
+                (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(READ_LOCAL_STORAGE_SCRIPT);
+        return new SessionSnapshot(origin(driver.getCurrentUrl()), System.currentTimeMillis(), cookies, localStorage);
+    }
+
+    /**
+     * Загружает снимок из файла, заданного в настройках.
+     *
+     * @return снимок или null, если файла нет; для файла, который не удалось разобрать, -
+     * устаревший снимок с причиной в {@link #staleReason(String)}
+     *
+     * @author Сергей Лужин
+     */
+    public static SessionSnapshot load() {
+        return load(Paths.get(testProperties.sessionSnapshotFile()));
+    }
+
+    /**
+     * Загружает снимок из указанного файла.
+     * Все поля снимка проверяются при чтении, поэтому обрезанный, исправленный вручную
+     * или записанный в старом формате файл не приводит к ошибке ни здесь, ни при проверке
+     * и восстановлении снимка: такой снимок считается устаревшим.
+     *
+     * @param file файл снимка
+     * @return снимок или null, если файла нет; для файла, который не удалось разобрать, -
+     * устаревший снимок с причиной в {@link #staleReason(String)}
+     *
+     * @author Сергей Лужин
+     */
+    @SuppressWarnings("unchecked")
+    static SessionSnapshot load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, Object> json = new Json().toType(reader, Json.MAP_TYPE);
+            if (json == null) {
+                throw new IllegalArgumentException("файл пуст");
+            }
+            List<Map<String, Object>> cookies = (List<Map<String, Object>>) field(json, "cookies", List.class);
+            for (Map<String, Object> cookie : cookies) {
+                field(cookie, "name", String.class);
+                field(cookie, "value", String.class);
+                Object expiry = cookie.get("expiry");
+                if (expiry != null && !(expiry instanceof Number)) {
+                    throw new IllegalArgumentException("срок cookie " + cookie.get("name") + " не число: " + expiry);
+                }
+            }
+            return new SessionSnapshot(
+                    field(json, "origin", String.class),
+                    field(json, "capturedAt", Number.class).longValue(),
+                    cookies,
+                    (Map<String, Object>) field(json, "localStorage", Map.class)
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать снимок сессии " + file, e);
+        } catch (JsonException | ClassCastException | IllegalArgumentException e) {
+            return new SessionSnapshot("файл снимка " + file + " не удалось разобрать: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Сохраняет снимок в файл, заданный в настройках.
+     *
+     * @author Сергей Лужин
+     */
+    public void save() {
+        save(Paths.get(testProperties.sessionSnapshotFile()));
+    }
+
+    /**
+     * Сохраняет снимок в указанный файл.
+     * Запись идёт через временный файл, чтобы параллельные тесты
+     * не прочитали наполовину записанный снимок.
+     *
+     * @param file файл снимка
+     *
+     * @author Сергей Лужин
+     */
+    void save(Path file) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("origin", origin);
+        json.put("capturedAt", capturedAt);
+        json.put("cookies", cookies);
+        json.put("localStorage", localStorage);
+
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(new Json().toJson(json));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать снимок сессии " + file, e);
+        }
+    }
+
+    /**
+     * Проверяет, можно ли восстановить снимок перед открытием указанного адреса.
+     *
+     * @param url адрес, который будет открыт после восстановления
+     * @return причина, по которой снимок устарел, или null, если снимок пригоден
+     *
+     * @author Сергей Лужин
+     */
+    public String staleReason(String url) {
+        if (unreadableReason != null) {
+            return unreadableReason;
+        }
+        if (!origin.equals(origin(url))) {
+            return "снимок снят для " + origin + ", а открывается " + origin(url);
+        }
+        long ageMillis = System.currentTimeMillis() - capturedAt;
+        if (ageMillis > TimeUnit.HOURS.toMillis(testProperties.sessionSnapshotTtlHours())) {
+            return "снимку " + TimeUnit.MILLISECONDS.toHours(ageMillis) + " ч, допустимо "
+                    + testProperties.sessionSnapshotTtlHours() + " ч";
+        }
+        long now = System.currentTimeMillis();
+        for (Map<String, Object> cookie : cookies) {
+            Object expiry = cookie.get("expiry");
+            if (expiry != null && TimeUnit.SECONDS.toMillis(((Number) expiry).longValue()) < now) {
+                return "истёк срок cookie " + cookie.get("name");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Восстанавливает снимок в браузер: открывает лёгкую страницу того же сайта,
+     * добавляет cookies и записывает localStorage.
+     * Cookies, которые браузер отказался принять, пропускаются.
+     *
+     * @param driver экземпляр WebDriver новой сессии
+     * @return отчёт о восстановлении: время, количество восстановленных cookies и ключей localStorage
+     *
+     * @author Сергей Лужин
+     */
+    public String restore(WebDriver driver) {
+        if (unreadableReason != null) {
+            throw new IllegalStateException("Снимок сессии нельзя восстановить: " + unreadableReason);
+        }
+        long start = System.nanoTime();
+        driver.get(origin + BOOTSTRAP_PATH);
+
+        int restoredCookies = 0;
+        for (Map<String, Object> json : cookies) {
+            try {
+                driver.manage().addCookie(toCookie(json));
+                restoredCookies++;
+            } catch (WebDriverException e) {
+                // cookie другого домена или с недопустимыми атрибутами - пропускаем
+            }
+        }
+        ((JavascriptExecutor) driver).executeScript(WRITE_LOCAL_STORAGE_SCRIPT, localStorage);
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return "Снимок сессии от " + new Date(capturedAt) + " восстановлен за " + millis + " мс: cookies "
+                + restoredCookies + " из " + cookies.size() + ", ключей localStorage " + localStorage.size();
+    }
+
+    /**
+     * Возвращает краткое описание снимка.
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public String toString() {
+        if (unreadableReason != null) {
+            return "Снимок сессии не прочитан: " + unreadableReason;
+        }
+        return "Снимок сессии " + origin + " от " + new Date(capturedAt) + ": cookies " + cookies.size()
+                + ", ключей localStorage " + localStorage.size();
+    }
+
+    /**
+     * Возвращает обязательное поле JSON снимка указанного типа.
+     *
+     * @throws IllegalArgumentException если поля нет или оно другого типа
+     *
+     * @author Сергей Лужин
+     */
+    private static <T> T field(Map<String, Object> json, String name, Class<T> type) {
+        Object value = json.get(name);
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException(value == null ? "нет поля " + name
+                    : "поле " + name + " не " + type.getSimpleName() + ": " + value);
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * Создаёт cookie Selenium из сохранённого JSON.
+     *
+     * @author Сергей Лужин
+     */
+    private static Cookie toCookie(Map<String, Object> json) {
+        Object expiry = json.get("expiry");
+        return new Cookie(
+                (String) json.get("name"),
+                (String) json.get("value"),
+                (String) json.get("domain"),
+                (String) json.get("path"),
+                expiry == null ? null : new Date(TimeUnit.SECONDS.toMillis(((Number) expiry).longValue())),
+                Boolean.TRUE.equals(json.get("secure")),
+                Boolean.TRUE.equals(json.get("httpOnly"))
+        );
+    }
+
+    /**
+     * Возвращает схему, хост и порт адреса.
+     *
+     * @author Сергей Лужин
+     */
+    private static String origin(String url) {
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() < 0 ? "" : ":" + uri.getPort());
+    }
+}
@@ -0,0 +1,40 @@
+package helpers;
+
+import io.qameta.allure.listener.StepLifecycleListener;
+import io.qameta.allure.model.StepResult;
+
+/**
+ * Слушатель шагов Allure, сообщающий {@link CommandStats}, какой шаг выполняется,
+ * чтобы время команд WebDriver учитывалось по шагам.
+ *
+ * Подключается автоматически через
+ * META-INF/services/io.qameta.allure.listener.StepLifecycleListener.
+ *
+ * @author Сергей Лужин
+ */
+public class StepCommandListener implements StepLifecycleListener {
+
+    /**
+     * Отмечает начало шага в статистике команд текущего потока.
+     *
+     * @param result шаг Allure
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public void beforeStepStart(StepResult result) {
+        CommandStats.current().enterStep(result.getName());
+    }
+
+    /**
+     * Отмечает окончание шага в статистике команд текущего потока.
+     *
+     * @param result шаг Allure
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public void afterStepStop(StepResult result) {
+        CommandStats.current().exitStep();
+    }
+}
@@ -1,13 +1,19 @@
 package helpers;
 
 import org.aeonbits.owner.Config;
+import org.aeonbits.owner.Mutable;
+import pages.YandexMarketBasePage;
 
 /**
  * Конфигурационный интерфейс для загрузки основных тестовых параметров проекта.
  * Значения подгружаются из файла:
  * src/main/resources/test.properties
  *
- * Хранит настройки таймаутов, URL Яндекс Маркета и путь к ChromeDriver.
+ * Хранит настройки таймаутов, URL Яндекс Маркета, путь к ChromeDriver
+ * параметры параллельного запуска тестов, пула браузеров, записи скриншотов,
+ * подгрузки карточек товаров и ожиданий.
+ * Значения можно переопределить во время выполнения через {@link Mutable#setProperty(String, String)},
+ * например в бенчмарках, сравнивающих настройки.
  *
  * @author Сергей Лужин
  */
@@ -15,7 +21,7 @@ import org.aeonbits.owner.Config;
 @Config.Sources({
         "file:src/main/resources/test.properties"
 })
-public interface TestProperties extends Config {
+public interface TestProperties extends Config, Mutable {
     /**
      * Возвращает значение стандартного таймаута,
      * используемого в тестах (в секундах).
@@ -43,4 +49,536 @@ public interface TestProperties extends Config {
      */
     @Config.Key("driver.chrome")
     String driverChrome();
+
+    /**
+     * Возвращает количество потоков, в которых JUnit
+     * параллельно выполняет тестовые сценарии.
+     * Каждый поток работает со своим экземпляром WebDriver.
+     *
+     * @return уровень параллелизма запуска тестов
+     * @author Сергей Лужин
+     */
+    @Config.Key("parallel.threads")
+    @Config.DefaultValue("4")
+    int parallelThreads();
+
+    /**
+     * Возвращает признак использования пула заранее запущенных браузеров.
+     * Если пул выключен, для каждого теста запускается новый браузер.
+     *
+     * @return true, если тесты арендуют браузеры из пула
+     * @author Сергей Лужин
+     */
+    @Config.Key("pool.enabled")
+    @Config.DefaultValue("false")
+    boolean poolEnabled();
+
+    /**
+     * Возвращает количество браузеров в пуле.
+     * Все они запускаются заранее, при первом обращении к пулу.
+     *
+     * @return размер пула браузеров
+     * @author Сергей Лужин
+     */
+    @Config.Key("pool.size")
+    @Config.DefaultValue("4")
+    int poolSize();
+
+    /**
+     * Возвращает количество аренд, после которого браузер из пула
+     * закрывается и заменяется новым.
+     *
+     * @return лимит аренд одного браузера
+     * @author Сергей Лужин
+     */
+    @Config.Key("pool.max.uses")
+    @Config.DefaultValue("20")
+    int poolMaxUses();
+
+    /**
+     * Возвращает максимальное время ожидания свободного браузера из пула (в секундах).
+     *
+     * @return таймаут аренды браузера
+     * @author Сергей Лужин
+     */
+    @Config.Key("pool.lease.timeout")
+    @Config.DefaultValue("120")
+    int poolLeaseTimeout();
+
+    /**
+     * Возвращает признак асинхронной записи скриншотов в отчёт Allure.
+     * В асинхронном режиме поток теста только снимает скриншот,
+     * а запись вложения выполняет фоновый поток.
+     *
+     * @return true, если скриншоты записываются асинхронно
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.async")
+    @Config.DefaultValue("false")
+    boolean screenshotAsync();
+
+    /**
+     * Возвращает вместимость очереди скриншотов, ожидающих записи.
+     *
+     * @return максимальное количество скриншотов в очереди
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.queue.capacity")
+    @Config.DefaultValue("64")
+    int screenshotQueueCapacity();
+
+    /**
+     * Возвращает поведение при переполнении очереди скриншотов:
+     * BLOCK - ждать освобождения места, DROP_OLDEST - вытеснять самый старый кадр.
+     *
+     * @return политика переполнения очереди скриншотов
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.queue.policy")
+    @Config.DefaultValue("BLOCK")
+    ScreenshotPipeline.QueuePolicy screenshotQueuePolicy();
+
+    /**
+     * Возвращает признак отсева почти одинаковых скриншотов:
+     * кадр не попадает в отчёт, если почти не отличается
+     * от предыдущего кадра того же теста.
+     *
+     * @return true, если повторяющиеся скриншоты пропускаются
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.dedup.enabled")
+    @Config.DefaultValue("false")
+    boolean screenshotDedupEnabled();
+
+    /**
+     * Возвращает порог похожести кадров: максимальное количество различающихся
+     * бит перцептивного хэша (из 1024), при котором кадр считается повтором.
+     *
+     * @return порог отсева повторяющихся скриншотов
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.dedup.threshold")
+    @Config.DefaultValue("8")
+    int screenshotDedupThreshold();
+
+    /**
+     * Возвращает формат, в котором скриншоты записываются в отчёт: PNG или JPEG.
+     *
+     * @return формат скриншотов
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.format")
+    @Config.DefaultValue("PNG")
+    ScreenshotEncoder.Format screenshotFormat();
+
+    /**
+     * Возвращает масштаб скриншотов: 1.0 - исходный размер,
+     * 0.5 - вдвое меньше по каждой стороне.
+     *
+     * @return масштаб скриншотов
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.scale")
+    @Config.DefaultValue("1.0")
+    double screenshotScale();
+
+    /**
+     * Возвращает качество JPEG-скриншотов от 0.0 до 1.0.
+     *
+     * @return качество JPEG
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.jpeg.quality")
+    @Config.DefaultValue("0.75")
+    float screenshotJpegQuality();
+
+    /**
+     * Возвращает признак перевода скриншотов в оттенки серого.
+     *
+     * @return true, если скриншоты сохраняются в оттенках серого
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.grayscale")
+    @Config.DefaultValue("false")
+    boolean screenshotGrayscale();
+
+    /**
+     * Возвращает режим снятия скриншотов: ALWAYS - все скриншоты в отчёт,
+     * ON_FAILURE - последние скриншоты только упавших тестов, OFF - без скриншотов.
+     *
+     * @return режим снятия скриншотов
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.policy")
+    @Config.DefaultValue("ALWAYS")
+    Screenshoter.Policy screenshotPolicy();
+
+    /**
+     * Возвращает количество последних кадров теста, которые хранятся
+     * в памяти в режиме ON_FAILURE.
+     *
+     * @return размер буфера кадров одного теста
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.buffer.size")
+    @Config.DefaultValue("10")
+    int screenshotBufferSize();
+
+    /**
+     * Возвращает максимальный общий объём кадров в буферах всех тестов (в байтах).
+     * Ограничивает память при большом количестве параллельных тестов.
+     *
+     * @return общий лимит памяти буферов кадров
+     * @author Сергей Лужин
+     */
+    @Config.Key("screenshot.buffer.max.bytes")
+    @Config.DefaultValue("104857600")
+    long screenshotBufferMaxBytes();
+
+    /**
+     * Возвращает способ подгрузки всех карточек товаров на странице:
+     * SMOOTH - плавная прокрутка вниз и вверх со скриншотами на каждом шаге,
+     * STABLE - один асинхронный скрипт, прокручивающий страницу, пока количество
+     * карточек не перестанет меняться.
+     *
+     * @return способ подгрузки карточек
+     * @author Сергей Лужин
+     */
+    @Config.Key("scroll.mode")
+    @Config.DefaultValue("SMOOTH")
+    YandexMarketBasePage.ScrollMode scrollMode();
+
+    /**
+     * Возвращает время (в миллисекундах), в течение которого количество карточек
+     * не должно меняться, чтобы список считался загруженным.
+     *
+     * @return период тишины при подгрузке карточек
+     * @author Сергей Лужин
+     */
+    @Config.Key("scroll.quiet.period")
+    @Config.DefaultValue("1500")
+    long scrollQuietPeriod();
+
+    /**
+     * Возвращает максимальное время подгрузки карточек (в миллисекундах).
+     *
+     * @return ограничение времени подгрузки карточек
+     * @author Сергей Лужин
+     */
+    @Config.Key("scroll.max.duration")
+    @Config.DefaultValue("30000")
+    long scrollMaxDuration();
+
+    /**
+     * Возвращает начальный интервал опроса условия ожидания (в миллисекундах).
+     *
+     * @return начальный интервал опроса
+     * @author Сергей Лужин
+     */
+    @Config.Key("wait.poll.initial")
+    @Config.DefaultValue("50")
+    long waitPollInitial();
+
+    /**
+     * Возвращает максимальный интервал опроса условия ожидания (в миллисекундах).
+     * Интервал растёт от начального до максимального, пока условие не выполнено.
+     *
+     * @return максимальный интервал опроса
+     * @author Сергей Лужин
+     */
+    @Config.Key("wait.poll.max")
+    @Config.DefaultValue("500")
+    long waitPollMax();
+
+    /**
+     * Возвращает множитель, на который увеличивается интервал опроса
+     * после каждой неудачной проверки условия.
+     *
+     * @return множитель интервала опроса
+     * @author Сергей Лужин
+     */
+    @Config.Key("wait.poll.factor")
+    @Config.DefaultValue("1.5")
+    double waitPollFactor();
+
+    /**
+     * Возвращает отдельные бюджеты ожидания для локаторов и условий в виде пар
+     * "ключ:миллисекунды", например ym.card.on.all.pages:20000 или network.idle:15000.
+     * Для остальных локаторов используется {@link #defaultTimeout()}.
+     *
+     * @return бюджеты ожидания локаторов и условий
+     * @author Сергей Лужин
+     */
+    @Config.Key("wait.budgets")
+    @Config.DefaultValue("")
+    String[] waitBudgets();
+
+    /**
+     * Возвращает время (в миллисекундах), в течение которого на странице
+     * не должно быть сетевых запросов, чтобы сеть считалась свободной.
+     *
+     * @return период тишины сети
+     * @author Сергей Лужин
+     */
+    @Config.Key("network.quiet.period")
+    @Config.DefaultValue("500")
+    long networkQuietPeriod();
+
+    /**
+     * Возвращает время (в миллисекундах), в течение которого после изменения
+     * фильтра или поиска ожидается начало обновления выдачи.
+     * Если за это время страница не отправила запросов, выдача считается неизменной.
+     *
+     * @return время ожидания начала обновления выдачи
+     * @author Сергей Лужин
+     */
+    @Config.Key("network.start.timeout")
+    @Config.DefaultValue("2000")
+    long networkStartTimeout();
+
+    /**
+     * Возвращает способ установки фильтров каталога:
+     * UI - вводом цен и кликами по брендам в блоке фильтров,
+     * URL - одним переходом по адресу каталога с параметрами фильтров.
+     * По умолчанию UI: режим URL не проверяет блок фильтров и опирается
+     * на идентификаторы брендов {@link #filterBrandIds()}, поэтому включается явно.
+     *
+     * @return способ установки фильтров
+     * @author Сергей Лужин
+     */
+    @Config.Key("filter.mode")
+    @Config.DefaultValue("UI")
+    YandexMarketBasePage.FilterMode filterMode();
+
+    /**
+     * Возвращает идентификатор фильтра производителя в параметре glfilter адреса каталога.
+     *
+     * @return идентификатор фильтра производителя
+     * @author Сергей Лужин
+     */
+    @Config.Key("filter.brand.param")
+    @Config.DefaultValue("7893318")
+    String filterBrandParam();
+
+    /**
+     * Возвращает идентификаторы брендов для параметра glfilter
+     * в виде пар "бренд:идентификатор", например Lenovo:152981.
+     *
+     * @return идентификаторы брендов
+     * @author Сергей Лужин
+     */
+    @Config.Key("filter.brand.ids")
+    @Config.DefaultValue("Lenovo:152981,HP:152722,ASUS:152863,Acer:267101,Apple:153043")
+    String[] filterBrandIds();
+
+    /**
+     * Возвращает признак использования кэша адресов подкатегорий каталога.
+     * Если кэш включён, выбор категории переходит по сохранённому адресу
+     * вместо навигации по меню каталога.
+     *
+     * @return true, если кэш адресов подкатегорий включён
+     * @author Сергей Лужин
+     */
+    @Config.Key("category.cache.enabled")
+    @Config.DefaultValue("false")
+    boolean categoryCacheEnabled();
+
+    /**
+     * Возвращает путь к файлу, в котором кэш адресов подкатегорий хранится между запусками.
+     *
+     * @return путь к файлу кэша
+     * @author Сергей Лужин
+     */
+    @Config.Key("category.cache.file")
+    @Config.DefaultValue(".cache/category-urls.properties")
+    String categoryCacheFile();
+
+    /**
+     * Возвращает время жизни сохранённого адреса подкатегории (в часах).
+     *
+     * @return время жизни записи кэша
+     * @author Сергей Лужин
+     */
+    @Config.Key("category.cache.ttl.hours")
+    @Config.DefaultValue("168")
+    long categoryCacheTtlHours();
+
+    /**
+     * Возвращает признак использования снимка сессии (cookies и localStorage)
+     * при открытии Яндекс Маркета.
+     *
+     * @return true, если снимок сессии снимается и восстанавливается
+     * @author Сергей Лужин
+     */
+    @Config.Key("session.snapshot.enabled")
+    @Config.DefaultValue("false")
+    boolean sessionSnapshotEnabled();
+
+    /**
+     * Возвращает путь к файлу снимка сессии.
+     *
+     * @return путь к файлу снимка сессии
+     * @author Сергей Лужин
+     */
+    @Config.Key("session.snapshot.file")
+    @Config.DefaultValue(".cache/session-snapshot.json")
+    String sessionSnapshotFile();
+
+    /**
+     * Возвращает время (в часах), после которого снимок сессии считается устаревшим
+     * и снимается заново.
+     *
+     * @return время жизни снимка сессии
+     * @author Сергей Лужин
+     */
+    @Config.Key("session.snapshot.ttl.hours")
+    @Config.DefaultValue("12")
+    long sessionSnapshotTtlHours();
+
+    /**
+     * Возвращает количество страниц выдачи, которые заранее загружаются
+     * в фоновых вкладках, пока обрабатывается текущая страница.
+     *
+     * @return глубина предзагрузки страниц выдачи
+     * @author Сергей Лужин
+     */
+    @Config.Key("pagination.prefetch.depth")
+    @Config.DefaultValue("1")
+    int paginationPrefetchDepth();
+
+    /**
+     * Возвращает максимальное количество страниц выдачи, которые обходятся при сборе карточек.
+     *
+     * @return максимальное количество страниц выдачи
+     * @author Сергей Лужин
+     */
+    @Config.Key("pagination.max.pages")
+    @Config.DefaultValue("5")
+    int paginationMaxPages();
+
+    /**
+     * Возвращает каталог, в который записывается JSON-файл со временем команд WebDriver за запуск.
+     *
+     * @return каталог статистики команд
+     * @author Сергей Лужин
+     */
+    @Config.Key("command.stats.dir")
+    @Config.DefaultValue("target/command-stats")
+    String commandStatsDir();
+
+    /**
+     * Возвращает признак записи временной шкалы сценария (шаги, методы страниц,
+     * ожидания и команды WebDriver) в формате Chrome Trace Event.
+     *
+     * @return true, если шкала записывается
+     * @author Сергей Лужин
+     */
+    @Config.Key("timeline.enabled")
+    @Config.DefaultValue("true")
+    boolean timelineEnabled();
+
+    /**
+     * Возвращает каталог, в который записываются файлы временных шкал тестов.
+     *
+     * @return каталог временных шкал
+     * @author Сергей Лужин
+     */
+    @Config.Key("timeline.dir")
+    @Config.DefaultValue("target/timelines")
+    String timelineDir();
+
+    /**
+     * Возвращает режим работы с Яндекс Маркетом: живой сайт, запись ответов
+     * или воспроизведение записанных ответов (см. {@link MarketStandIn}).
+     *
+     * @return режим работы с Яндекс Маркетом
+     * @author Сергей Лужин
+     */
+    @Config.Key("market.mode")
+    @Config.DefaultValue("LIVE")
+    MarketStandIn.Mode marketMode();
+
+    /**
+     * Возвращает каталог, в котором хранятся записанные ответы Яндекс Маркета.
+     *
+     * @return каталог записей
+     * @author Сергей Лужин
+     */
+    @Config.Key("market.recordings.dir")
+    @Config.DefaultValue("recordings/market")
+    String marketRecordingsDir();
+
+    /**
+     * Возвращает хосты, ответы которых (скрипты, стили, изображения страниц Маркета)
+     * записываются и воспроизводятся вместе с ответами самого Маркета.
+     *
+     * @return записываемые хосты
+     * @author Сергей Лужин
+     */
+    @Config.Key("market.recorded.hosts")
+    @Config.DefaultValue("yastatic.net,avatars.mds.yandex.net")
+    String[] marketRecordedHosts();
+
+    /**
+     * Возвращает искусственную задержку каждого ответа при воспроизведении записей.
+     *
+     * @return задержка ответа (в миллисекундах)
+     * @author Сергей Лужин
+     */
+    @Config.Key("market.replay.latency")
+    @Config.DefaultValue("0")
+    long marketReplayLatency();
+
+    /**
+     * Возвращает признак запуска браузеров в облегчённом профиле по умолчанию.
+     * Отдельный тест или класс тестов переключает профиль аннотацией {@link LeanProfile}.
+     *
+     * @return true, если браузеры запускаются в облегчённом профиле
+     * @author Сергей Лужин
+     */
+    @Config.Key("lean.profile.enabled")
+    @Config.DefaultValue("false")
+    boolean leanProfileEnabled();
+
+    /**
+     * Возвращает типы ресурсов, которые не загружает облегчённый профиль браузера.
+     *
+     * @return блокируемые типы ресурсов
+     * @author Сергей Лужин
+     */
+    @Config.Key("lean.blocked.resources")
+    @Config.DefaultValue("IMAGES,FONTS")
+    DriverFactory.BlockedResource[] leanBlockedResources();
+
+    /**
+     * Возвращает домены рекламы и аналитики, к которым не обращается облегчённый профиль браузера.
+     * Блокируются и все поддомены указанных доменов.
+     *
+     * @return блокируемые домены
+     * @author Сергей Лужин
+     */
+    @Config.Key("lean.blocked.hosts")
+    @Config.DefaultValue("mc.yandex.ru,an.yandex.ru,yabs.yandex.ru,adfox.ru,adfox.yandex.ru,awaps.yandex.net,top-fwz1.mail.ru,google-analytics.com,googletagmanager.com,doubleclick.net")
+    String[] leanBlockedHosts();
+
+    /**
+     * Возвращает путь к CSV-файлу сравнения времени шагов в обычном и облегчённом профилях браузера.
+     *
+     * @return путь к файлу сравнения
+     * @author Сергей Лужин
+     */
+    @Config.Key("lean.report.file")
+    @Config.DefaultValue("target/lean-profile.csv")
+    String leanReportFile();
+
+    /**
+     * Возвращает путь к файлу со списком ключей xpath.properties,
+     * по которым за запуск не запрашивался ни один локатор.
+     *
+     * @return путь к файлу неиспользованных локаторов
+     * @author Сергей Лужин
+     */
+    @Config.Key("locators.unused.file")
+    @Config.DefaultValue("target/unused-locators.txt")
+    String locatorsUnusedFile();
 }
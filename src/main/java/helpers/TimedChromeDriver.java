@@ -0,0 +1,43 @@
+package helpers;
+
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.Response;
+
+import java.util.Map;
+
+/**
+ * ChromeDriver, замеряющий время каждой команды, отправленной браузеру.
+ *
+ * Через {@link #execute(String, Map)} проходят все команды драйвера,
+ * в том числе команды элементов страницы, поэтому замер здесь охватывает
+ * поиск элементов, скрипты, скриншоты и переходы без изменения кода тестов.
+ * Время учитывается в {@link CommandStats} и {@link Timeline} потока, выполнившего команду.
+ *
+ * @author Сергей Лужин
+ */
+class TimedChromeDriver extends ChromeDriver {
+
+    /**
+     * Запускает браузер с указанными настройками.
+     *
+     * @param options настройки Chrome
+     *
+     * @author Сергей Лужин
+     */
+    TimedChromeDriver(ChromeOptions options) {
+        super(options);
+    }
+
+    @Override
+    protected Response execute(String driverCommand, Map<String, ?> parameters) {
+        long start = System.nanoTime();
+        try {
+            return super.execute(driverCommand, parameters);
+        } finally {
+            long end = System.nanoTime();
+            CommandStats.current().record(driverCommand, end - start);
+            Timeline.current().complete(Timeline.WEBDRIVER, driverCommand, start, end);
+        }
+    }
+}
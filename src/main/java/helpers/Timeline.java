@@ -0,0 +1,280 @@
+package helpers;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Временная шкала сценария в формате Chrome Trace Event.
+ *
+ * Шаги Allure ({@link TimelineStepListener}), методы page object ({@link TimelineAspect}),
+ * ожидания и паузы {@link Waiter} и команды WebDriver ({@link TimedChromeDriver})
+ * записываются как вложенные отрезки времени потока теста. Файл шкалы
+ * открывается в chrome://tracing или Perfetto и показывает, где в сценарии
+ * пересекаются и чередуются действия, ожидания и команды браузера.
+ *
+ * Запись дешёвая: отрезок - это один объект в списке потока, а JSON собирается
+ * один раз в конце теста. Запись выключается через {@link TestProperties#timelineEnabled()}.
+ * Шкала ведётся отдельно для каждого потока теста.
+ *
+ * @author Сергей Лужин
+ */
+public class Timeline {
+
+    /**
+     * Категория отрезков шагов Allure.
+     *
+     * @author Сергей Лужин
+     */
+    public static final String STEP = "step";
+
+    /**
+     * Категория отрезков методов page object.
+     *
+     * @author Сергей Лужин
+     */
+    public static final String PAGE = "page";
+
+    /**
+     * Категория отрезков ожиданий и пауз.
+     *
+     * @author Сергей Лужин
+     */
+    public static final String WAIT = "wait";
+
+    /**
+     * Категория отрезков команд WebDriver.
+     *
+     * @author Сергей Лужин
+     */
+    public static final String WEBDRIVER = "webdriver";
+
+    /**
+     * Признак включённой записи шкалы.
+     *
+     * @author Сергей Лужин
+     */
+    private static final boolean enabled = testProperties.timelineEnabled();
+
+    /**
+     * Шкала сценария, выполняющегося в текущем потоке.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ThreadLocal<Timeline> timelines = ThreadLocal.withInitial(Timeline::new);
+
+    /**
+     * Идентификатор потока сценария.
+     *
+     * @author Сергей Лужин
+     */
+    private final long threadId = Thread.currentThread().getId();
+
+    /**
+     * Имя потока сценария.
+     *
+     * @author Сергей Лужин
+     */
+    private final String threadName = Thread.currentThread().getName();
+
+    /**
+     * Завершённые отрезки в порядке завершения.
+     *
+     * @author Сергей Лужин
+     */
+    private final List<Span> spans = new ArrayList<>();
+
+    /**
+     * Начатые и ещё не завершённые отрезки: вложенный на вершине стека.
+     *
+     * @author Сергей Лужин
+     */
+    private final Deque<Span> open = new ArrayDeque<>();
+
+    /**
+     * Возвращает шкалу сценария текущего потока.
+     *
+     * @return временная шкала
+     *
+     * @author Сергей Лужин
+     */
+    public static Timeline current() {
+        return timelines.get();
+    }
+
+    /**
+     * Сбрасывает шкалу сценария текущего потока.
+     *
+     * @author Сергей Лужин
+     */
+    public static void reset() {
+        timelines.remove();
+    }
+
+    /**
+     * Возвращает признак включённой записи шкалы.
+     *
+     * @return true, если шкала записывается
+     * @author Сергей Лужин
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Записывает завершённый отрезок.
+     *
+     * @param category   категория отрезка
+     * @param name       название отрезка
+     * @param startNanos начало (в наносекундах {@link System#nanoTime()})
+     * @param endNanos   окончание (в наносекундах {@link System#nanoTime()})
+     *
+     * @author Сергей Лужин
+     */
+    public void complete(String category, String name, long startNanos, long endNanos) {
+        if (enabled) {
+            spans.add(new Span(category, name, startNanos, endNanos));
+        }
+    }
+
+    /**
+     * Начинает отрезок, который завершится вызовом {@link #end()}.
+     *
+     * @param category категория отрезка
+     * @param name     название отрезка
+     *
+     * @author Сергей Лужин
+     */
+    public void begin(String category, String name) {
+        if (enabled) {
+            open.push(new Span(category, name, System.nanoTime(), 0));
+        }
+    }
+
+    /**
+     * Завершает последний начатый отрезок.
+     *
+     * @author Сергей Лужин
+     */
+    public void end() {
+        Span span = open.poll();
+        if (span != null) {
+            spans.add(new Span(span.category, span.name, span.startNanos, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Возвращает шкалу в формате Chrome Trace Event JSON.
+     * Время отсчитывается от начала первого отрезка.
+     * Незавершённые отрезки (например, шаг, прерванный исключением) закрываются текущим временем.
+     *
+     * @return JSON шкалы
+     *
+     * @author Сергей Лужин
+     */
+    public String toJson() {
+        while (!open.isEmpty()) {
+            end();
+        }
+        long originNanos = spans.stream().mapToLong(span -> span.startNanos).min().orElse(0);
+        List<Map<String, Object>> events = new ArrayList<>(spans.size() + 1);
+
+        Map<String, Object> thread = new LinkedHashMap<>();
+        thread.put("name", "thread_name");
+        thread.put("ph", "M");
+        thread.put("pid", 1);
+        thread.put("tid", threadId);
+        thread.put("args", Map.of("name", threadName));
+        events.add(thread);
+
+        for (Span span : spans) {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", span.name);
+            event.put("cat", span.category);
+            event.put("ph", "X");
+            event.put("ts", (span.startNanos - originNanos) / 1000.0);
+            event.put("dur", (span.endNanos - span.startNanos) / 1000.0);
+            event.put("pid", 1);
+            event.put("tid", threadId);
+            events.add(event);
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("traceEvents", events);
+        json.put("displayTimeUnit", "ms");
+        return new Json().toJson(json);
+    }
+
+    /**
+     * Возвращает суммарную длительность завершённых отрезков категории по их названиям.
+     *
+     * @param category категория отрезков
+     * @return длительность (в наносекундах) по названиям в порядке первого завершения
+     *
+     * @author Сергей Лужин
+     */
+    public Map<String, Long> totals(String category) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (Span span : spans) {
+            if (span.category.equals(category)) {
+                totals.merge(span.name, span.endNanos - span.startNanos, Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Записывает шкалу в файл в {@link TestProperties#timelineDir()}.
+     *
+     * @param test название теста, по которому назван файл
+     * @param json JSON шкалы
+     * @return путь к файлу шкалы
+     *
+     * @author Сергей Лужин
+     */
+    public static Path write(String test, String json) {
+        Path file = Paths.get(testProperties.timelineDir(), test.replaceAll("[^\\p{L}\\p{N}._-]+", "_") + ".json");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(json);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать временную шкалу " + file, e);
+        }
+        return file;
+    }
+
+    /**
+     * Отрезок шкалы.
+     *
+     * @author Сергей Лужин
+     */
+    private static class Span {
+        private final String category;
+        private final String name;
+        private final long startNanos;
+        private final long endNanos;
+
+        private Span(String category, String name, long startNanos, long endNanos) {
+            this.category = category;
+            this.name = name;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package helpers;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Аспект, записывающий вызовы публичных методов page object во {@link Timeline}.
+ *
+ * Вплетается агентом AspectJ при загрузке классов, как и аспекты шагов Allure
+ * (подключается в META-INF/aop.xml), поэтому методы страниц не меняются.
+ * Если запись шкалы выключена, метод вызывается без замера.
+ *
+ * @author Сергей Лужин
+ */
+@Aspect
+public class TimelineAspect {
+
+    /**
+     * Записывает вызов метода страницы как отрезок шкалы.
+     *
+     * @param joinPoint вызов метода
+     * @return результат метода
+     * @throws Throwable исключение метода
+     *
+     * @author Сергей Лужин
+     */
+    @Around("execution(public * pages.YandexMarketBasePage+.*(..)) && !execution(* getDriver())")
+    public Object recordPageMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!Timeline.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            Timeline.current().complete(Timeline.PAGE, joinPoint.getSignature().getName(), start, System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package helpers;
+
+import io.qameta.allure.listener.StepLifecycleListener;
+import io.qameta.allure.model.StepResult;
+
+/**
+ * Слушатель шагов Allure, записывающий шаги как отрезки {@link Timeline}.
+ *
+ * Подключается автоматически через
+ * META-INF/services/io.qameta.allure.listener.StepLifecycleListener.
+ *
+ * @author Сергей Лужин
+ */
+public class TimelineStepListener implements StepLifecycleListener {
+
+    /**
+     * Начинает отрезок шага на шкале текущего потока.
+     *
+     * @param result шаг Allure
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public void beforeStepStart(StepResult result) {
+        Timeline.current().begin(Timeline.STEP, result.getName());
+    }
+
+    /**
+     * Завершает отрезок шага на шкале текущего потока.
+     *
+     * @param result шаг Allure
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public void afterStepStop(StepResult result) {
+        Timeline.current().end();
+    }
+}
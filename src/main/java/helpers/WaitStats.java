@@ -0,0 +1,116 @@
+package helpers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Фактическое время ожиданий в текущем сценарии.
+ *
+ * Для каждого условия {@link Waiter} учитывает количество ожиданий,
+ * суммарное и максимальное время, число проверок и число таймаутов,
+ * чтобы по отчёту было видно, на какие ожидания уходит время теста.
+ * Статистика ведётся отдельно для каждого потока теста.
+ *
+ * @author Сергей Лужин
+ */
+public class WaitStats {
+
+    /**
+     * Статистика сценария, выполняющегося в текущем потоке.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ThreadLocal<WaitStats> stats = ThreadLocal.withInitial(WaitStats::new);
+
+    /**
+     * Статистика по условиям в порядке первого ожидания.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Возвращает статистику сценария текущего потока.
+     *
+     * @return статистика ожиданий
+     *
+     * @author Сергей Лужин
+     */
+    public static WaitStats current() {
+        return stats.get();
+    }
+
+    /**
+     * Сбрасывает статистику сценария текущего потока.
+     *
+     * @author Сергей Лужин
+     */
+    public static void reset() {
+        stats.remove();
+    }
+
+    /**
+     * Учитывает завершённое ожидание.
+     *
+     * @param condition название условия
+     * @param millis    фактическое время ожидания
+     * @param polls     количество проверок условия
+     * @param timedOut  истекло ли время ожидания
+     *
+     * @author Сергей Лужин
+     */
+    void record(String condition, long millis, int polls, boolean timedOut) {
+        Entry entry = entries.computeIfAbsent(condition, name -> new Entry());
+        entry.count++;
+        entry.totalMillis += millis;
+        entry.maxMillis = Math.max(entry.maxMillis, millis);
+        entry.polls += polls;
+        if (timedOut) {
+            entry.timeouts++;
+        }
+    }
+
+    /**
+     * Возвращает суммарное время всех ожиданий сценария (в миллисекундах).
+     *
+     * @return суммарное время ожиданий
+     * @author Сергей Лужин
+     */
+    public long getTotalMillis() {
+        return entries.values().stream().mapToLong(entry -> entry.totalMillis).sum();
+    }
+
+    /**
+     * Возвращает таблицу ожиданий в формате CSV, отсортированную по суммарному времени.
+     *
+     * @return таблица ожиданий
+     *
+     * @author Сергей Лужин
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("Условие;Ожиданий;Всего, мс;Максимум, мс;Проверок;Таймаутов\n");
+        entries.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().totalMillis, a.getValue().totalMillis))
+                .forEach(e -> csv.append('"').append(e.getKey().replace("\"", "\"\"")).append('"')
+                        .append(';').append(e.getValue().count)
+                        .append(';').append(e.getValue().totalMillis)
+                        .append(';').append(e.getValue().maxMillis)
+                        .append(';').append(e.getValue().polls)
+                        .append(';').append(e.getValue().timeouts)
+                        .append('\n'));
+        return csv.toString();
+    }
+
+    /**
+     * Статистика одного условия.
+     *
+     * @author Сергей Лужин
+     */
+    private static class Entry {
+        private int count;
+        private long totalMillis;
+        private long maxMillis;
+        private int polls;
+        private int timeouts;
+    }
+}
@@ -0,0 +1,239 @@
+package helpers;
+
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.openqa.selenium.support.ui.ExpectedConditions.visibilityOfElementLocated;
+
+import static helpers.Properties.locators;
+import static helpers.Properties.testProperties;
+
+/**
+ * Единый механизм ожиданий вместо неявного ожидания WebDriver,
+ * {@link org.openqa.selenium.support.ui.WebDriverWait} и {@link org.openqa.selenium.support.ui.FluentWait}.
+ *
+ * Условие проверяется с нарастающим интервалом: первые проверки идут часто,
+ * чтобы быстро заметить уже выполненное условие, затем интервал растёт
+ * до максимального, чтобы долгие ожидания не нагружали браузер запросами.
+ * Для отдельных локаторов в настройках можно задать свой бюджет ожидания
+ * (см. {@link TestProperties#waitBudgets()}).
+ * Фактическое время каждого ожидания записывается в {@link WaitStats},
+ * а сами ожидания и паузы - во {@link Timeline}.
+ *
+ * @author Сергей Лужин
+ */
+public class Waiter {
+
+    /**
+     * Бюджеты ожидания локаторов из настроек (в миллисекундах) по ключам локаторов.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Map<String, Long> budgets = parseBudgets(testProperties.waitBudgets());
+
+    /**
+     * Экземпляр WebDriver, для которого проверяются условия.
+     *
+     * @author Сергей Лужин
+     */
+    private final WebDriver driver;
+
+    /**
+     * Создаёт механизм ожиданий для указанного драйвера.
+     *
+     * @param driver экземпляр WebDriver
+     *
+     * @author Сергей Лужин
+     */
+    public Waiter(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Ожидает видимости элемента, найденного по ключу локатора из xpath.properties.
+     * Время ожидания берётся из бюджета локатора.
+     *
+     * @param key       ключ локатора
+     * @param arguments значения подстановок локатора
+     * @return видимый элемент
+     * @throws TimeoutException если элемент не стал видимым за отведённое время
+     *
+     * @author Сергей Лужин
+     */
+    public WebElement visible(String key, Object... arguments) {
+        return until(key, budget(key), visibilityOfElementLocated(locators.by(key, arguments)));
+    }
+
+    /**
+     * Ожидает видимости первого элемента, найденного по ключу локатора из xpath.properties.
+     * Время ожидания берётся из бюджета локатора.
+     *
+     * @param key       ключ локатора
+     * @param arguments значения подстановок локатора
+     * @return видимый элемент
+     * @throws TimeoutException если элемент не стал видимым за отведённое время
+     *
+     * @author Сергей Лужин
+     */
+    public WebElement firstVisible(String key, Object... arguments) {
+        return until(key + "[1]", budget(key), visibilityOfElementLocated(locators.first(key, arguments)));
+    }
+
+    /**
+     * Ожидает выполнения условия в течение таймаута по умолчанию.
+     * Название условия в статистике берётся из его описания.
+     *
+     * @param condition условие
+     * @param <T>       тип результата условия
+     * @return результат условия
+     * @throws TimeoutException если условие не выполнилось за отведённое время
+     *
+     * @author Сергей Лужин
+     */
+    public <T> T until(ExpectedCondition<T> condition) {
+        return until(String.valueOf(condition), defaultBudget(), condition);
+    }
+
+    /**
+     * Ожидает, пока условие не вернёт значение, отличное от null и false.
+     * Исключения {@link NotFoundException} и {@link StaleElementReferenceException}
+     * во время проверок считаются невыполненным условием.
+     *
+     * @param name          название условия в статистике
+     * @param timeoutMillis время ожидания (в миллисекундах)
+     * @param condition     условие
+     * @param <T>           тип результата условия
+     * @return результат условия
+     * @throws TimeoutException если условие не выполнилось за отведённое время
+     *
+     * @author Сергей Лужин
+     */
+    public <T> T until(String name, long timeoutMillis, Function<? super WebDriver, T> condition) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long interval = testProperties.waitPollInitial();
+        int polls = 0;
+        RuntimeException lastError = null;
+
+        while (true) {
+            polls++;
+            try {
+                T result = condition.apply(driver);
+                if (result != null && !Boolean.FALSE.equals(result)) {
+                    Timeline.current().complete(Timeline.WAIT, name, start, System.nanoTime());
+                    WaitStats.current().record(name, elapsedMillis(start), polls, false);
+                    return result;
+                }
+            } catch (NotFoundException | StaleElementReferenceException e) {
+                lastError = e;
+            }
+
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                Timeline.current().complete(Timeline.WAIT, name, start, System.nanoTime());
+                WaitStats.current().record(name, elapsedMillis(start), polls, true);
+                throw new TimeoutException("Условие '" + name + "' не выполнилось за " + timeoutMillis + " мс"
+                        + " (проверок: " + polls + ")", lastError);
+            }
+            sleep(Math.min(interval, remaining));
+            interval = Math.min(testProperties.waitPollMax(), (long) (interval * testProperties.waitPollFactor()));
+        }
+    }
+
+    /**
+     * Приостанавливает текущий поток на указанное время.
+     * Используется для пауз, которые нужны сами по себе, а не для ожидания условия,
+     * например между шагами плавной прокрутки.
+     *
+     * @param millis длительность паузы (в миллисекундах)
+     *
+     * @author Сергей Лужин
+     */
+    public static void pause(long millis) {
+        long start = System.nanoTime();
+        sleep(millis);
+        Timeline.current().complete(Timeline.WAIT, "pause", start, System.nanoTime());
+    }
+
+    /**
+     * Приостанавливает текущий поток на указанное время, не записывая паузу во {@link Timeline}.
+     *
+     * @author Сергей Лужин
+     */
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание прервано", e);
+        }
+    }
+
+    /**
+     * Возвращает бюджет ожидания локатора: значение из настроек
+     * или таймаут по умолчанию, если для локатора бюджет не задан.
+     *
+     * @param key ключ локатора
+     * @return время ожидания (в миллисекундах)
+     *
+     * @author Сергей Лужин
+     */
+    public static long budget(String key) {
+        return budgets.getOrDefault(key, defaultBudget());
+    }
+
+    /**
+     * Возвращает таймаут по умолчанию в миллисекундах.
+     *
+     * @author Сергей Лужин
+     */
+    private static long defaultBudget() {
+        return TimeUnit.SECONDS.toMillis(testProperties.defaultTimeout());
+    }
+
+    /**
+     * Возвращает время, прошедшее с указанного момента, в миллисекундах.
+     *
+     * @author Сергей Лужин
+     */
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Разбирает бюджеты ожидания вида "ключ:миллисекунды".
+     *
+     * @param values значения из настроек
+     * @return бюджеты по ключам локаторов
+     * @throws IllegalStateException если значение записано в неверном формате
+     *
+     * @author Сергей Лужин
+     */
+    private static Map<String, Long> parseBudgets(String[] values) {
+        Map<String, Long> parsed = new HashMap<>();
+        if (values == null) {
+            return parsed;
+        }
+        for (String value : values) {
+            if (value.trim().isEmpty()) {
+                continue;
+            }
+            int separator = value.lastIndexOf(':');
+            try {
+                parsed.put(value.substring(0, separator).trim(), Long.parseLong(value.substring(separator + 1).trim()));
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Некорректный бюджет ожидания в wait.budgets: '" + value + "'", e);
+            }
+        }
+        return parsed;
+    }
+}
@@ -1,5 +1,6 @@
 package helpers;
 
+import org.aeonbits.owner.Accessible;
 import org.aeonbits.owner.Config;
 
 /**
@@ -9,13 +10,16 @@ import org.aeonbits.owner.Config;
  * Файл конфигурации:
  * src/main/resources/xpath.properties
  *
+ * Каждый ключ файла должен быть объявлен здесь: {@link LocatorRegistry}
+ * при запуске проверяет все шаблоны и падает на необъявленных ключах.
+ *
  * @author Сергей Лужин
  */
 @Config.LoadPolicy(Config.LoadType.MERGE)
 @Config.Sources({
         "file:src/main/resources/xpath.properties"
 })
-public interface XpathProperties extends Config {
+public interface XpathProperties extends Config, Accessible {
 
     /**
      * Возвращает XPath локатор поля ввода текста в поиске Яндекс Маркета.
@@ -119,4 +123,43 @@ public interface XpathProperties extends Config {
      */
     @Config.Key("ym.card.title.addon")
     String ymCardTitleAddonXpath();
+
+    /**
+     * Возвращает XPath локатор карточек товаров одной порции выдачи.
+     * Используется с подстановкой номера порции (начиная с 1).
+     *
+     * @return XPath-шаблон для карточек товаров одной порции выдачи
+     * @author Сергей Лужин
+     */
+    @Config.Key("ym.cards.on.page")
+    String ymCardsOnPageXpath();
+
+    /**
+     * Возвращает XPath локатор заголовка карточки товара по её номеру на странице.
+     * Используется с подстановкой номера карточки (начиная с 1).
+     *
+     * @return XPath-шаблон для заголовка карточки товара
+     * @author Сергей Лужин
+     */
+    @Config.Key("ym.card.title.by.index")
+    String ymCardTitleByIndexXpath();
+
+    /**
+     * Возвращает дополнительный XPath для поиска цены внутри карточки товара.
+     *
+     * @return дополнительный XPath для элемента текущей цены товара
+     * @author Сергей Лужин
+     */
+    @Config.Key("ym.card.price.addon")
+    String ymCardPriceAddonXpath();
+
+    /**
+     * Возвращает XPath локатор порций выдачи. Порция есть и на странице
+     * без товаров, поэтому по ней видно, что выдача отрисована.
+     *
+     * @return XPath для блоков порций выдачи
+     * @author Сергей Лужин
+     */
+    @Config.Key("ym.serp.list")
+    String ymSerpListXpath();
 }
@@ -0,0 +1,82 @@
+package pages;
+
+/**
+ * Результат подгрузки карточек товаров до стабилизации списка.
+ *
+ * @author Сергей Лужин
+ */
+public class CardsLoadResult {
+
+    /**
+     * Количество карточек на странице после подгрузки.
+     *
+     * @author Сергей Лужин
+     */
+    private final int cards;
+
+    /**
+     * Время подгрузки (в миллисекундах).
+     *
+     * @author Сергей Лужин
+     */
+    private final long millis;
+
+    /**
+     * Признак того, что список перестал расти до истечения отведённого времени.
+     *
+     * @author Сергей Лужин
+     */
+    private final boolean stable;
+
+    /**
+     * Создаёт результат подгрузки карточек.
+     *
+     * @param cards  количество карточек на странице
+     * @param millis время подгрузки (в миллисекундах)
+     * @param stable true, если список перестал расти до истечения отведённого времени
+     *
+     * @author Сергей Лужин
+     */
+    public CardsLoadResult(int cards, long millis, boolean stable) {
+        this.cards = cards;
+        this.millis = millis;
+        this.stable = stable;
+    }
+
+    /**
+     * Возвращает количество карточек на странице после подгрузки.
+     *
+     * @return количество карточек
+     * @author Сергей Лужин
+     */
+    public int getCards() {
+        return cards;
+    }
+
+    /**
+     * Возвращает время подгрузки карточек.
+     *
+     * @return время подгрузки (в миллисекундах)
+     * @author Сергей Лужин
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Возвращает признак того, что список карточек перестал расти
+     * до истечения отведённого времени.
+     *
+     * @return true, если список стабилизировался
+     * @author Сергей Лужин
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    @Override
+    public String toString() {
+        return "Загружено карточек: " + cards + " за " + millis + " мс"
+                + (stable ? "" : " (список не стабилизировался за отведённое время)");
+    }
+}
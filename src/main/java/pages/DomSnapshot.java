@@ -0,0 +1,332 @@
+package pages;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static helpers.Properties.locators;
+
+/**
+ * Снимок разметки страницы, разобранный в памяти JVM.
+ *
+ * Разметка забирается из браузера одним вызовом JavaScript и разбирается как XML,
+ * после чего локаторы {@link helpers.XpathProperties} вычисляются локально,
+ * без обращений к WebDriver за каждым элементом. Снимок подходит только для чтения:
+ * после любого действия, меняющего страницу, его нужно сбросить
+ * ({@link YandexMarketBasePage#invalidateDomSnapshot()}) и снять заново.
+ *
+ * Экземпляр не потокобезопасен и используется одной страницей одного потока.
+ *
+ * @author Сергей Лужин
+ */
+public class DomSnapshot {
+
+    /**
+     * Скрипт получения разметки документа в виде корректного XML:
+     * XMLSerializer закрывает все теги и экранирует содержимое скриптов и стилей,
+     * поэтому разметку можно разобрать стандартным XML-парсером.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String SERIALIZE_SCRIPT =
+            "return new XMLSerializer().serializeToString(document.documentElement);";
+
+    /**
+     * Элементы, текст которых браузер не показывает.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Set<String> NON_RENDERED_TAGS =
+            new HashSet<>(Arrays.asList("script", "style", "noscript", "template", "head"));
+
+    /**
+     * Разобранный документ.
+     *
+     * @author Сергей Лужин
+     */
+    private final Document document;
+
+    /**
+     * Адрес страницы, с которой снят снимок.
+     *
+     * @author Сергей Лужин
+     */
+    private final String url;
+
+    /**
+     * Время получения разметки из браузера (в миллисекундах).
+     *
+     * @author Сергей Лужин
+     */
+    private final long captureMillis;
+
+    /**
+     * Время разбора разметки (в миллисекундах).
+     *
+     * @author Сергей Лужин
+     */
+    private final long parseMillis;
+
+    /**
+     * Скомпилированные выражения XPath по тексту выражения.
+     *
+     * @author Сергей Лужин
+     */
+    private final Map<String, XPathExpression> expressions = new HashMap<>();
+
+    /**
+     * Вычислитель XPath снимка.
+     *
+     * @author Сергей Лужин
+     */
+    private final XPath xpath = XPathFactory.newInstance().newXPath();
+
+    private DomSnapshot(Document document, String url, long captureMillis, long parseMillis) {
+        this.document = document;
+        this.url = url;
+        this.captureMillis = captureMillis;
+        this.parseMillis = parseMillis;
+    }
+
+    /**
+     * Снимает разметку текущей страницы и разбирает её.
+     *
+     * @param driver экземпляр WebDriver с открытой страницей
+     * @return снимок страницы
+     * @throws IllegalStateException если разметку не удалось разобрать
+     *
+     * @author Сергей Лужин
+     */
+    public static DomSnapshot capture(WebDriver driver) {
+        long start = System.currentTimeMillis();
+        String markup = (String) ((JavascriptExecutor) driver).executeScript(SERIALIZE_SCRIPT);
+        String url = driver.getCurrentUrl();
+        long captured = System.currentTimeMillis();
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(markup)));
+            return new DomSnapshot(document, url, captured - start, System.currentTimeMillis() - captured);
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new IllegalStateException("Не удалось разобрать разметку страницы " + url, e);
+        }
+    }
+
+    /**
+     * Возвращает узлы, найденные локатором.
+     *
+     * @param key  ключ локатора в xpath.properties
+     * @param args значения подстановок локатора
+     * @return найденные элементы в порядке документа
+     *
+     * @author Сергей Лужин
+     */
+    public List<Element> elements(String key, Object... args) {
+        return evaluate(document, locators.xpath(key, args));
+    }
+
+    /**
+     * Возвращает количество узлов, найденных локатором.
+     *
+     * @param key  ключ локатора в xpath.properties
+     * @param args значения подстановок локатора
+     * @return количество элементов
+     *
+     * @author Сергей Лужин
+     */
+    public int count(String key, Object... args) {
+        return elements(key, args).size();
+    }
+
+    /**
+     * Возвращает тексты узлов, найденных локатором.
+     *
+     * @param key  ключ локатора в xpath.properties
+     * @param args значения подстановок локатора
+     * @return тексты элементов без лишних пробелов
+     *
+     * @author Сергей Лужин
+     */
+    public List<String> texts(String key, Object... args) {
+        List<String> texts = new ArrayList<>();
+        for (Element element : elements(key, args)) {
+            texts.add(text(element));
+        }
+        return texts;
+    }
+
+    /**
+     * Возвращает значения атрибута узлов, найденных локатором.
+     *
+     * @param key       ключ локатора в xpath.properties
+     * @param attribute имя атрибута
+     * @param args      значения подстановок локатора
+     * @return значения атрибута; пустая строка, если у элемента нет атрибута
+     *
+     * @author Сергей Лужин
+     */
+    public List<String> attributes(String key, String attribute, Object... args) {
+        List<String> values = new ArrayList<>();
+        for (Element element : elements(key, args)) {
+            values.add(element.getAttribute(attribute));
+        }
+        return values;
+    }
+
+    /**
+     * Возвращает названия всех карточек товаров снимка:
+     * заголовок ищется внутри каждой карточки так же, как
+     * {@link YandexMarketBasePage#getProductCardTitle(org.openqa.selenium.WebElement)}.
+     *
+     * @return названия товаров в порядке карточек на странице
+     *
+     * @author Сергей Лужин
+     */
+    public List<String> getProductCardTitles() {
+        String titleXpath = locators.xpath("ym.card.title.addon");
+        List<String> titles = new ArrayList<>();
+        for (Element card : elements("ym.card.on.all.pages")) {
+            List<Element> title = evaluate(card, titleXpath);
+            if (!title.isEmpty()) {
+                titles.add(text(title.get(0)));
+            }
+        }
+        return titles;
+    }
+
+    /**
+     * Возвращает адрес страницы, с которой снят снимок.
+     *
+     * @return адрес страницы
+     * @author Сергей Лужин
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Возвращает время получения разметки из браузера.
+     *
+     * @return время получения (в миллисекундах)
+     * @author Сергей Лужин
+     */
+    public long getCaptureMillis() {
+        return captureMillis;
+    }
+
+    /**
+     * Возвращает время разбора разметки.
+     *
+     * @return время разбора (в миллисекундах)
+     * @author Сергей Лужин
+     */
+    public long getParseMillis() {
+        return parseMillis;
+    }
+
+    /**
+     * Вычисляет выражение XPath от указанного узла.
+     *
+     * @author Сергей Лужин
+     */
+    private List<Element> evaluate(Node context, String expression) {
+        try {
+            XPathExpression compiled = expressions.get(expression);
+            if (compiled == null) {
+                compiled = xpath.compile(expression);
+                expressions.put(expression, compiled);
+            }
+            NodeList nodes = (NodeList) compiled.evaluate(context, XPathConstants.NODESET);
+            List<Element> elements = new ArrayList<>(nodes.getLength());
+            for (int i = 0; i < nodes.getLength(); i++) {
+                if (nodes.item(i) instanceof Element) {
+                    elements.add((Element) nodes.item(i));
+                }
+            }
+            return elements;
+        } catch (XPathExpressionException e) {
+            throw new IllegalArgumentException("Некорректный XPath: " + expression, e);
+        }
+    }
+
+    /**
+     * Возвращает текст элемента, схлопывая пробелы так, как их показывает браузер.
+     *
+     * В отличие от {@link Node#getTextContent()} текст скриптов, стилей и шаблонов,
+     * а также элементов, скрытых атрибутом hidden или встроенным стилем
+     * (display: none, visibility: hidden), не включается - как и в
+     * {@link org.openqa.selenium.WebElement#getText()}. Элементы, скрытые правилами
+     * таблиц стилей, снимок не распознаёт: их текст попадает в результат.
+     * Пробелы, в том числе неразрывные (U+00A0), сводятся к одному обычному, как в
+     * {@link org.openqa.selenium.WebElement#getText()}.
+     *
+     * @author Сергей Лужин
+     */
+    private static String text(Element element) {
+        StringBuilder text = new StringBuilder();
+        appendVisibleText(element, text);
+        return text.toString().replaceAll("[\\s\\u00A0]+", " ").trim();
+    }
+
+    /**
+     * Дописывает видимый текст узла и его потомков.
+     *
+     * @author Сергей Лужин
+     */
+    private static void appendVisibleText(Node node, StringBuilder text) {
+        if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+            text.append(node.getNodeValue());
+            return;
+        }
+        if (node.getNodeType() != Node.ELEMENT_NODE || isHidden((Element) node)) {
+            return;
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            appendVisibleText(child, text);
+        }
+    }
+
+    /**
+     * Проверяет, что текст элемента не показывается браузером.
+     *
+     * @author Сергей Лужин
+     */
+    private static boolean isHidden(Element element) {
+        String tag = element.getNodeName().toLowerCase(Locale.ROOT);
+        if (NON_RENDERED_TAGS.contains(tag) || element.hasAttribute("hidden")) {
+            return true;
+        }
+        String style = element.getAttribute("style").replaceAll("\\s+", "").toLowerCase(Locale.ROOT);
+        return style.contains("display:none") || style.contains("visibility:hidden");
+    }
+
+    @Override
+    public String toString() {
+        return "Снимок разметки " + url + ": получение " + captureMillis + " мс, разбор " + parseMillis + " мс";
+    }
+}
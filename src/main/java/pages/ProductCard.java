@@ -0,0 +1,178 @@
+package pages;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Неизменяемый снимок карточки товара из выдачи.
+ *
+ * В отличие от WebElement не ссылается на узел страницы, поэтому остаётся
+ * пригодным после прокрутки, перерисовки выдачи и переиспользования узлов
+ * виртуализированным списком. Карточки сравниваются по идентификатору.
+ *
+ * @author Сергей Лужин
+ */
+public class ProductCard {
+
+    /**
+     * Устойчивый идентификатор карточки: путь ссылки на товар без параметров
+     * или название, если ссылки нет.
+     *
+     * @author Сергей Лужин
+     */
+    private final String id;
+
+    /**
+     * Название товара.
+     *
+     * @author Сергей Лужин
+     */
+    private final String title;
+
+    /**
+     * Полная ссылка на страницу товара.
+     *
+     * @author Сергей Лужин
+     */
+    private final String url;
+
+    /**
+     * Цена товара в рублях или null, если цену в карточке найти не удалось.
+     *
+     * @author Сергей Лужин
+     */
+    private final Integer price;
+
+    /**
+     * Бренд товара или null, если название не содержит ни одного известного бренда.
+     *
+     * @author Сергей Лужин
+     */
+    private final String brand;
+
+    /**
+     * Создаёт снимок карточки товара.
+     *
+     * @param id    устойчивый идентификатор карточки
+     * @param title название товара
+     * @param url   ссылка на страницу товара
+     * @param price цена товара в рублях или null
+     * @param brand бренд товара или null
+     *
+     * @author Сергей Лужин
+     */
+    public ProductCard(String id, String title, String url, Integer price, String brand) {
+        this.id = id;
+        this.title = title;
+        this.url = url;
+        this.price = price;
+        this.brand = brand;
+    }
+
+    /**
+     * Возвращает устойчивый идентификатор карточки.
+     *
+     * @return идентификатор карточки
+     * @author Сергей Лужин
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Возвращает название товара.
+     *
+     * @return название товара
+     * @author Сергей Лужин
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Возвращает ссылку на страницу товара.
+     *
+     * @return ссылка на товар
+     * @author Сергей Лужин
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Возвращает цену товара.
+     *
+     * @return цена в рублях или null, если цена не найдена
+     * @author Сергей Лужин
+     */
+    public Integer getPrice() {
+        return price;
+    }
+
+    /**
+     * Возвращает бренд товара.
+     *
+     * @return бренд или null, если бренд не определён
+     * @author Сергей Лужин
+     */
+    public String getBrand() {
+        return brand;
+    }
+
+    /**
+     * Проверяет карточку на соответствие фильтрам по цене и брендам.
+     * Цена и бренд, которые не удалось определить, несоответствием не считаются:
+     * о них сообщает {@link #unknownFields()}.
+     *
+     * @param minPrice минимальная цена
+     * @param maxPrice максимальная цена
+     * @param brands   допустимые бренды; пустой список означает любой бренд
+     * @return описание несоответствия или null, если карточка соответствует фильтрам
+     *
+     * @author Сергей Лужин
+     */
+    public String filterViolation(int minPrice, int maxPrice, List<String> brands) {
+        StringBuilder violation = new StringBuilder();
+        if (price != null && (price < minPrice || price > maxPrice)) {
+            violation.append("цена ").append(price).append(" вне диапазона ").append(minPrice).append('-').append(maxPrice);
+        }
+        if (brand != null && !brands.isEmpty() && brands.stream().noneMatch(brand::equalsIgnoreCase)) {
+            violation.append(violation.length() == 0 ? "" : ", ").append("бренд ").append(brand).append(" не из ").append(brands);
+        }
+        return violation.length() == 0 ? null : title + ": " + violation;
+    }
+
+    /**
+     * Сообщает, какие данные карточки не удалось определить: цену, если в карточке
+     * нет числа цены, и бренд, если название не содержит ни одного известного бренда.
+     * Такую карточку нельзя проверить на соответствие фильтрам полностью.
+     *
+     * @return описание неопределённых данных или null, если цена и бренд определены
+     *
+     * @author Сергей Лужин
+     */
+    public String unknownFields() {
+        if (price == null && brand == null) {
+            return title + ": цена и бренд не определены";
+        }
+        if (price == null) {
+            return title + ": цена не определена";
+        }
+        return brand == null ? title + ": бренд не определён" : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ProductCard && id.equals(((ProductCard) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
@@ -0,0 +1,303 @@
+package pages;
+
+import helpers.Waiter;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static helpers.Properties.locators;
+
+/**
+ * Обход страниц выдачи с предзагрузкой следующих страниц в фоновых вкладках.
+ *
+ * Первая страница - та, что открыта в исходной вкладке. Пока она обрабатывается,
+ * следующие страницы уже открыты через window.open в других вкладках того же
+ * браузера и загружаются параллельно. Каждая следующая страница читается в своей
+ * вкладке, после чего вкладка закрывается, а вместо неё открывается очередная.
+ *
+ * Итератор выдаёт карточки страницы, которых не было на предыдущих страницах.
+ * Обход заканчивается на последней разрешённой странице или на странице без новых карточек.
+ * Страница, выдача которой не отрисовалась за отведённое время, считается ошибкой,
+ * а не концом выдачи.
+ *
+ * @author Сергей Лужин
+ */
+class ResultPages implements Iterator<List<ProductCard>>, AutoCloseable {
+
+    /**
+     * Скрипт открытия адреса в новой вкладке. Аргумент: адрес страницы.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String OPEN_TAB_SCRIPT = "window.open(arguments[0], '_blank');";
+
+    /**
+     * Страница выдачи в исходной вкладке.
+     *
+     * @author Сергей Лужин
+     */
+    private final YandexMarketBasePage page;
+
+    /**
+     * Экземпляр WebDriver страницы.
+     *
+     * @author Сергей Лужин
+     */
+    private final WebDriver driver;
+
+    /**
+     * Дескриптор исходной вкладки.
+     *
+     * @author Сергей Лужин
+     */
+    private final String originalWindow;
+
+    /**
+     * Адрес первой страницы обхода.
+     *
+     * @author Сергей Лужин
+     */
+    private final String firstUrl;
+
+    /**
+     * Номер первой страницы обхода.
+     *
+     * @author Сергей Лужин
+     */
+    private final int firstPage;
+
+    /**
+     * Количество страниц, загружаемых заранее.
+     *
+     * @author Сергей Лужин
+     */
+    private final int prefetchDepth;
+
+    /**
+     * Номер последней страницы обхода.
+     *
+     * @author Сергей Лужин
+     */
+    private final int lastPage;
+
+    /**
+     * Дескрипторы вкладок с предзагружаемыми страницами в порядке номеров страниц.
+     *
+     * @author Сергей Лужин
+     */
+    private final Deque<String> prefetched = new ArrayDeque<>();
+
+    /**
+     * Идентификаторы карточек, уже выданных на предыдущих страницах.
+     *
+     * @author Сергей Лужин
+     */
+    private final Set<String> seenIds = new HashSet<>();
+
+    /**
+     * Номер следующей страницы, которая будет прочитана.
+     *
+     * @author Сергей Лужин
+     */
+    private int nextPage;
+
+    /**
+     * Номер последней страницы, открытой в фоновой вкладке.
+     *
+     * @author Сергей Лужин
+     */
+    private int lastOpenedPage;
+
+    /**
+     * Карточки следующей страницы или null, если страница ещё не прочитана.
+     *
+     * @author Сергей Лужин
+     */
+    private List<ProductCard> next;
+
+    /**
+     * Признак окончания обхода.
+     *
+     * @author Сергей Лужин
+     */
+    private boolean finished;
+
+    /**
+     * Создаёт обход страниц выдачи, начиная со страницы, открытой в браузере.
+     *
+     * @param page          страница выдачи
+     * @param prefetchDepth количество страниц, загружаемых заранее
+     * @param maxPages      максимальное количество страниц обхода
+     *
+     * @author Сергей Лужин
+     */
+    ResultPages(YandexMarketBasePage page, int prefetchDepth, int maxPages) {
+        this.page = page;
+        this.driver = page.getDriver();
+        this.originalWindow = driver.getWindowHandle();
+        this.firstUrl = driver.getCurrentUrl();
+        this.firstPage = YandexMarketBasePage.pageNumber(firstUrl);
+        this.prefetchDepth = Math.max(0, prefetchDepth);
+        this.lastPage = firstPage + Math.max(1, maxPages) - 1;
+        this.nextPage = firstPage;
+        this.lastOpenedPage = firstPage;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = readNextPage();
+            if (next == null) {
+                close();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public List<ProductCard> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Страницы выдачи закончились");
+        }
+        List<ProductCard> cards = next;
+        next = null;
+        return cards;
+    }
+
+    /**
+     * Закрывает оставшиеся фоновые вкладки и возвращается в исходную вкладку.
+     *
+     * @author Сергей Лужин
+     */
+    @Override
+    public void close() {
+        finished = true;
+        while (!prefetched.isEmpty()) {
+            closeTab(prefetched.pollFirst());
+        }
+        driver.switchTo().window(originalWindow);
+    }
+
+    /**
+     * Читает очередную страницу: первую - в исходной вкладке, остальные - в их фоновых вкладках.
+     * Перед чтением дозаказывает предзагрузку следующих страниц. Страница читается
+     * прокруткой сверху вниз через {@link YandexMarketBasePage#harvestProductCards()},
+     * поэтому в список попадают все порции выдачи, в том числе подгружаемые при прокрутке.
+     *
+     * @return новые карточки страницы или null, если обход окончен
+     *
+     * @author Сергей Лужин
+     */
+    private List<ProductCard> readNextPage() {
+        if (nextPage > lastPage) {
+            return null;
+        }
+        int pageNumber = nextPage++;
+        List<ProductCard> cards;
+        if (pageNumber == firstPage) {
+            prefetch();
+            waitForLoad(pageNumber);
+            page.scrollToTopOfPage();
+            cards = page.harvestProductCards();
+        } else {
+            String tab = prefetched.isEmpty() ? openTab(++lastOpenedPage) : prefetched.pollFirst();
+            prefetch();
+            try {
+                driver.switchTo().window(tab);
+                waitForLoad(pageNumber);
+                cards = page.harvestProductCards();
+            } finally {
+                closeTab(tab);
+                driver.switchTo().window(originalWindow);
+            }
+        }
+
+        List<ProductCard> fresh = new ArrayList<>();
+        for (ProductCard card : cards) {
+            if (seenIds.add(card.getId())) {
+                fresh.add(card);
+            }
+        }
+        return fresh.isEmpty() ? null : fresh;
+    }
+
+    /**
+     * Открывает в фоновых вкладках страницы, следующие за читаемой, пока их не станет
+     * {@link #prefetchDepth} или не будет достигнута последняя страница обхода.
+     *
+     * @author Сергей Лужин
+     */
+    private void prefetch() {
+        while (prefetched.size() < prefetchDepth && lastOpenedPage < lastPage) {
+            prefetched.addLast(openTab(++lastOpenedPage));
+        }
+    }
+
+    /**
+     * Открывает страницу выдачи в новой вкладке, не переключаясь на неё.
+     *
+     * @param pageNumber номер страницы выдачи
+     * @return дескриптор новой вкладки
+     *
+     * @author Сергей Лужин
+     */
+    private String openTab(int pageNumber) {
+        Set<String> before = driver.getWindowHandles();
+        ((JavascriptExecutor) driver).executeScript(OPEN_TAB_SCRIPT, YandexMarketBasePage.pageUrl(firstUrl, pageNumber));
+        Set<String> opened = new HashSet<>(driver.getWindowHandles());
+        opened.removeAll(before);
+        if (opened.size() != 1) {
+            throw new IllegalStateException("Не удалось открыть вкладку со страницей выдачи " + pageNumber);
+        }
+        return opened.iterator().next();
+    }
+
+    /**
+     * Ждёт, пока в текущей вкладке загрузится страница и отрисуется выдача:
+     * выдача отрисовывается скриптами страницы уже после окончания загрузки документа.
+     * Отрисованной считается выдача с карточками, а также порция выдачи без карточек
+     * на странице за последней страницей выдачи.
+     *
+     * @param pageNumber номер страницы выдачи
+     * @throws IllegalStateException если выдача не отрисовалась за отведённое время
+     *
+     * @author Сергей Лужин
+     */
+    private void waitForLoad(int pageNumber) {
+        try {
+            new Waiter(driver).until("result.page.loaded", Waiter.budget("result.page.loaded"),
+                    d -> "complete".equals(((JavascriptExecutor) d).executeScript("return document.readyState;"))
+                            && !d.getCurrentUrl().equals("about:blank")
+                            && (!d.findElements(locators.by("ym.cards.on.page", 1)).isEmpty()
+                            || !d.findElements(locators.by("ym.serp.list")).isEmpty()));
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Не отрисовалась выдача на странице " + pageNumber
+                    + " (" + YandexMarketBasePage.pageUrl(firstUrl, pageNumber) + ")", e);
+        }
+    }
+
+    /**
+     * Закрывает вкладку, если она ещё открыта.
+     *
+     * @param tab дескриптор вкладки
+     *
+     * @author Сергей Лужин
+     */
+    private void closeTab(String tab) {
+        try {
+            driver.switchTo().window(tab).close();
+        } catch (NoSuchWindowException e) {
+            // вкладка уже закрыта
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pages;
+
+/**
+ * Результат поиска товара по названию во время прокрутки выдачи.
+ *
+ * @author Сергей Лужин
+ */
+public class TitleSearchResult {
+
+    /**
+     * Номер карточки с искомым названием (начиная с 1) или -1, если товар не найден.
+     *
+     * @author Сергей Лужин
+     */
+    private final int position;
+
+    /**
+     * Количество просмотренных названий на момент остановки.
+     *
+     * @author Сергей Лужин
+     */
+    private final int checkedTitles;
+
+    /**
+     * Расстояние, на которое была прокручена страница (в пикселях).
+     *
+     * @author Сергей Лужин
+     */
+    private final long scrolledPixels;
+
+    /**
+     * Высота страницы на момент остановки (в пикселях).
+     *
+     * @author Сергей Лужин
+     */
+    private final long pageHeight;
+
+    /**
+     * Время поиска (в миллисекундах).
+     *
+     * @author Сергей Лужин
+     */
+    private final long millis;
+
+    /**
+     * Создаёт результат поиска товара.
+     *
+     * @param position       номер карточки с искомым названием или -1
+     * @param checkedTitles  количество просмотренных названий
+     * @param scrolledPixels расстояние прокрутки (в пикселях)
+     * @param pageHeight     высота страницы на момент остановки (в пикселях)
+     * @param millis         время поиска (в миллисекундах)
+     *
+     * @author Сергей Лужин
+     */
+    public TitleSearchResult(int position, int checkedTitles, long scrolledPixels, long pageHeight, long millis) {
+        this.position = position;
+        this.checkedTitles = checkedTitles;
+        this.scrolledPixels = scrolledPixels;
+        this.pageHeight = pageHeight;
+        this.millis = millis;
+    }
+
+    /**
+     * Возвращает признак того, что товар найден.
+     *
+     * @return true, если товар найден
+     * @author Сергей Лужин
+     */
+    public boolean isFound() {
+        return position > 0;
+    }
+
+    /**
+     * Возвращает номер карточки с искомым названием.
+     *
+     * @return номер карточки (начиная с 1) или -1, если товар не найден
+     * @author Сергей Лужин
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Возвращает количество просмотренных названий.
+     *
+     * @return количество названий
+     * @author Сергей Лужин
+     */
+    public int getCheckedTitles() {
+        return checkedTitles;
+    }
+
+    /**
+     * Возвращает расстояние, на которое была прокручена страница.
+     *
+     * @return расстояние прокрутки (в пикселях)
+     * @author Сергей Лужин
+     */
+    public long getScrolledPixels() {
+        return scrolledPixels;
+    }
+
+    /**
+     * Возвращает прокрутку, которой удалось избежать по сравнению с полной
+     * прокруткой загруженной страницы вниз и обратно вверх.
+     *
+     * @return сэкономленная прокрутка (в пикселях)
+     * @author Сергей Лужин
+     */
+    public long getSavedPixels() {
+        return Math.max(0, 2 * pageHeight - scrolledPixels);
+    }
+
+    /**
+     * Возвращает время поиска.
+     *
+     * @return время поиска (в миллисекундах)
+     * @author Сергей Лужин
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        return (isFound() ? "Товар найден в карточке №" + position : "Товар не найден")
+                + ", просмотрено названий: " + checkedTitles
+                + ", прокручено " + scrolledPixels + " px из " + pageHeight + " px страницы"
+                + ", сэкономлено прокрутки: " + getSavedPixels() + " px"
+                + ", время поиска: " + millis + " мс";
+    }
+}
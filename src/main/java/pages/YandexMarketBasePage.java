@@ -1,22 +1,30 @@
 package pages;
 
+import helpers.LazyElement;
 import helpers.Screenshoter;
-import org.openqa.selenium.By;
+import helpers.Waiter;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
-import org.openqa.selenium.support.ui.FluentWait;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
-import java.time.Duration;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import static org.openqa.selenium.support.ui.ExpectedConditions.visibilityOfElementLocated;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static helpers.Properties.testProperties;
-import static helpers.Properties.xpathProperties;
+import static helpers.Properties.locators;
 
 /**
  * Базовая страница Яндекс Маркета.
@@ -32,6 +40,256 @@ import static helpers.Properties.xpathProperties;
  */
 public class YandexMarketBasePage {
 
+    /**
+     * Способ подгрузки всех карточек товаров на странице.
+     *
+     * @author Сергей Лужин
+     */
+    public enum ScrollMode {
+
+        /**
+         * Плавная прокрутка вниз и обратно вверх со скриншотами на каждом шаге.
+         */
+        SMOOTH,
+
+        /**
+         * Один асинхронный скрипт прокручивает страницу, пока количество карточек не перестанет меняться.
+         */
+        STABLE
+    }
+
+    /**
+     * Способ установки фильтров каталога.
+     *
+     * @author Сергей Лужин
+     */
+    public enum FilterMode {
+
+        /**
+         * Ввод цен и клики по брендам в блоке фильтров; выдача перерисовывается после каждого фильтра.
+         */
+        UI,
+
+        /**
+         * Все фильтры записываются в параметры адреса каталога, выдача загружается один раз.
+         */
+        URL
+    }
+
+    /**
+     * Время выполнения асинхронного скрипта по умолчанию в WebDriver (мс).
+     * Оно возвращается сессии после каждого асинхронного скрипта страницы,
+     * чтобы увеличенное для прокрутки время не переходило в следующие тесты
+     * через браузер из {@link helpers.DriverPool}.
+     *
+     * @author Сергей Лужин
+     */
+    private static final long DEFAULT_SCRIPT_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Скрипт подгрузки карточек до стабилизации списка.
+     * Прокручивает страницу вниз, через MutationObserver следит за количеством
+     * карточек и завершается, когда оно не меняется в течение периода тишины
+     * или истекает отведённое время. В конце возвращает страницу наверх.
+     *
+     * Аргументы: XPath карточек, период тишины (мс), максимальное время (мс).
+     *
+     * @author Сергей Лужин
+     */
+    private static final String LOAD_UNTIL_STABLE_SCRIPT =
+            "var xpath = arguments[0], quiet = arguments[1], maxMillis = arguments[2];"
+                    + "var done = arguments[arguments.length - 1];"
+                    + "var start = Date.now();"
+                    + "function count() {"
+                    + "  return document.evaluate('count(' + xpath + ')', document, null, XPathResult.NUMBER_TYPE, null).numberValue;"
+                    + "}"
+                    + "var last = count(), lastChange = start;"
+                    + "var observer = new MutationObserver(function () {"
+                    + "  var current = count();"
+                    + "  if (current !== last) { last = current; lastChange = Date.now(); }"
+                    + "});"
+                    + "observer.observe(document.body, {childList: true, subtree: true});"
+                    + "var timer = setInterval(function () {"
+                    + "  window.scrollTo(0, document.body.scrollHeight);"
+                    + "  var now = Date.now();"
+                    + "  if (now - lastChange >= quiet || now - start >= maxMillis) {"
+                    + "    clearInterval(timer);"
+                    + "    observer.disconnect();"
+                    + "    window.scrollTo(0, 0);"
+                    + "    done({cards: last, millis: now - start, stable: now - lastChange >= quiet});"
+                    + "  }"
+                    + "}, 100);";
+
+    /**
+     * Скрипт поиска товара по названию во время прокрутки.
+     * На каждом шаге проверяет названия уже загруженных карточек и завершается,
+     * как только находит искомое, либо когда страница прокручена до низа
+     * и количество названий не меняется в течение периода тишины,
+     * либо когда истекает отведённое время. Страница наверх не возвращается.
+     * Пробелы в названиях, в том числе неразрывные, перед сравнением сводятся к одному обычному.
+     *
+     * Аргументы: XPath названий, искомое название, период тишины (мс),
+     * максимальное время (мс), шаг прокрутки (px).
+     *
+     * @author Сергей Лужин
+     */
+    private static final String FIND_TITLE_WHILE_SCROLLING_SCRIPT =
+            "var xpath = arguments[0], target = arguments[1], quiet = arguments[2],"
+                    + "  maxMillis = arguments[3], step = arguments[4];"
+                    + "var done = arguments[arguments.length - 1];"
+                    + "var start = Date.now(), lastCount = -1, lastChange = start, scrolled = 0;"
+                    + "var timer = setInterval(function () {"
+                    + "  var titles = document.evaluate(xpath, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+                    + "  var position = -1;"
+                    + "  for (var i = 0; i < titles.snapshotLength; i++) {"
+                    + "    if (titles.snapshotItem(i).innerText.replace(/\\s+/g, ' ').trim() === target) { position = i + 1; break; }"
+                    + "  }"
+                    + "  var now = Date.now();"
+                    + "  if (titles.snapshotLength !== lastCount) { lastCount = titles.snapshotLength; lastChange = now; }"
+                    + "  var atBottom = window.pageYOffset + window.innerHeight >= document.body.scrollHeight - 2;"
+                    + "  if (position > 0 || (atBottom && now - lastChange >= quiet) || now - start >= maxMillis) {"
+                    + "    clearInterval(timer);"
+                    + "    done({position: position, checked: titles.snapshotLength, scrolled: scrolled,"
+                    + "      height: document.body.scrollHeight, millis: now - start});"
+                    + "    return;"
+                    + "  }"
+                    + "  var before = window.pageYOffset;"
+                    + "  window.scrollBy(0, step);"
+                    + "  scrolled += window.pageYOffset - before;"
+                    + "}, 100);";
+
+    /**
+     * Функция JavaScript, снимающая данные одной карточки товара:
+     * устойчивый идентификатор (путь ссылки на товар без параметров или название),
+     * название (пробелы, в том числе неразрывные, сводятся к одному обычному), ссылку, цену (первое число текста цены: следом может идти старая цена)
+     * и бренд (первое слово названия, совпадающее с одним из известных брендов,
+     * или null, если таких слов нет).
+     *
+     * Параметры: узел карточки, XPath заголовка и XPath цены внутри карточки, список брендов.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String CARD_DATA_FUNCTION =
+            "function cardData(card, titleXpath, priceXpath, brands) {"
+                    + "  function text(xpath) {"
+                    + "    var node = document.evaluate(xpath, card, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+                    + "    return node ? node.innerText.trim() : '';"
+                    + "  }"
+                    + "  var title = text(titleXpath).replace(/\\s+/g, ' ');"
+                    + "  var priceToken = text(priceXpath).match(/\\d+(?:[ \\u00A0\\u2009\\u202F]\\d{3})*/);"
+                    + "  var digits = priceToken ? priceToken[0].replace(/\\D/g, '') : '';"
+                    + "  var link = card.querySelector('a[href]');"
+                    + "  var words = title.toLowerCase().split(/\\s+/);"
+                    + "  var brand = null;"
+                    + "  for (var b = 0; b < brands.length && brand === null; b++) {"
+                    + "    if (words.indexOf(brands[b].toLowerCase()) >= 0) { brand = brands[b]; }"
+                    + "  }"
+                    + "  return {"
+                    + "    id: link ? link.getAttribute('href').split('?')[0] : title,"
+                    + "    title: title,"
+                    + "    url: link ? link.href : '',"
+                    + "    price: digits ? parseInt(digits, 10) : null,"
+                    + "    brand: brand"
+                    + "  };"
+                    + "}";
+
+    /**
+     * Скрипт снимка всех отрисованных карточек товаров за один вызов.
+     *
+     * Аргументы: XPath карточек, XPath заголовка и XPath цены внутри карточки, список брендов.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String SNAPSHOT_CARDS_SCRIPT =
+            CARD_DATA_FUNCTION
+                    + "var found = document.evaluate(arguments[0], document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+                    + "var cards = [];"
+                    + "for (var i = 0; i < found.snapshotLength; i++) {"
+                    + "  cards.push(cardData(found.snapshotItem(i), arguments[1], arguments[2], arguments[3]));"
+                    + "}"
+                    + "return cards;";
+
+    /**
+     * Скрипт сбора карточек товаров за один проход вниз.
+     * На каждом шаге прокрутки снимает данные всех отрисованных карточек
+     * в упорядоченный словарь по устойчивому идентификатору (путь ссылки на товар),
+     * поэтому карточки, которые виртуализированный список убрал со страницы,
+     * не теряются. Завершается, когда страница прокручена до низа и новых
+     * карточек нет в течение периода тишины, или когда истекает отведённое время.
+     *
+     * Аргументы: XPath карточек, XPath заголовка и XPath цены внутри карточки, список брендов,
+     * период тишины (мс), максимальное время (мс), шаг прокрутки (px).
+     *
+     * @author Сергей Лужин
+     */
+    private static final String HARVEST_CARDS_SCRIPT =
+            CARD_DATA_FUNCTION
+                    + "var cardXpath = arguments[0], titleXpath = arguments[1], priceXpath = arguments[2],"
+                    + "  brands = arguments[3], quiet = arguments[4], maxMillis = arguments[5], step = arguments[6];"
+                    + "var done = arguments[arguments.length - 1];"
+                    + "var start = Date.now(), lastChange = start, cards = new Map();"
+                    + "function collect() {"
+                    + "  var found = document.evaluate(cardXpath, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+                    + "  for (var i = 0; i < found.snapshotLength; i++) {"
+                    + "    var card = cardData(found.snapshotItem(i), titleXpath, priceXpath, brands);"
+                    + "    if (card.id && !cards.has(card.id)) {"
+                    + "      cards.set(card.id, card);"
+                    + "      lastChange = Date.now();"
+                    + "    }"
+                    + "  }"
+                    + "}"
+                    + "var timer = setInterval(function () {"
+                    + "  collect();"
+                    + "  var now = Date.now();"
+                    + "  var atBottom = window.pageYOffset + window.innerHeight >= document.body.scrollHeight - 2;"
+                    + "  if ((atBottom && now - lastChange >= quiet) || now - start >= maxMillis) {"
+                    + "    clearInterval(timer);"
+                    + "    done(Array.from(cards.values()));"
+                    + "    return;"
+                    + "  }"
+                    + "  window.scrollBy(0, step);"
+                    + "}, 100);";
+
+    /**
+     * Скрипт учёта сетевых запросов страницы.
+     * При первом вызове на странице подменяет window.fetch и XMLHttpRequest.send,
+     * чтобы считать запросы в полёте, общее количество запросов и время
+     * последнего начала или завершения запроса. Повторные вызовы только читают состояние.
+     *
+     * Аргумент: пометить ли текущий документ, чтобы затем отличить его от нового
+     * после перехода на другую страницу.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String NETWORK_TRACKER_SCRIPT =
+            "if (!window.__ymNetwork) {"
+                    + "  var n = window.__ymNetwork = {inFlight: 0, total: 0, lastChange: Date.now()};"
+                    + "  var start = function () { n.inFlight++; n.total++; n.lastChange = Date.now(); };"
+                    + "  var end = function () { n.inFlight = Math.max(0, n.inFlight - 1); n.lastChange = Date.now(); };"
+                    + "  if (window.fetch) {"
+                    + "    var originalFetch = window.fetch;"
+                    + "    window.fetch = function () {"
+                    + "      start();"
+                    + "      try {"
+                    + "        return originalFetch.apply(window, arguments).then("
+                    + "          function (r) { end(); return r; }, function (e) { end(); throw e; });"
+                    + "      } catch (e) { end(); throw e; }"
+                    + "    };"
+                    + "  }"
+                    + "  var originalSend = XMLHttpRequest.prototype.send;"
+                    + "  XMLHttpRequest.prototype.send = function () {"
+                    + "    var finished = false;"
+                    + "    var finish = function () { if (!finished) { finished = true; end(); } };"
+                    + "    start();"
+                    + "    this.addEventListener('loadend', finish);"
+                    + "    try { return originalSend.apply(this, arguments); } catch (e) { finish(); throw e; }"
+                    + "  };"
+                    + "}"
+                    + "if (arguments[0]) { window.__ymMarked = true; }"
+                    + "var s = window.__ymNetwork;"
+                    + "return {inFlight: s.inFlight, total: s.total, lastChange: s.lastChange, now: Date.now(),"
+                    + "  ready: document.readyState === 'complete', marked: window.__ymMarked === true};";
+
     /**
      * Экземпляр WebDriver, используемый для работы со страницей.
      *
@@ -62,15 +320,25 @@ public class YandexMarketBasePage {
     protected WebElement catalogButton;
 
     /**
-     * Объект явных ожиданий WebDriver.
+     * Механизм ожиданий страницы.
+     *
+     * @author Сергей Лужин
+     */
+    protected Waiter wait;
+
+    /**
+     * Снимок разметки страницы для чтения без обращений к WebDriver
+     * или null, если снимок не снят или сброшен.
      *
      * @author Сергей Лужин
      */
-    protected WebDriverWait wait;
+    private DomSnapshot domSnapshot;
 
     /**
-     * Конструктор инициализирует элементы страницы,
-     * ожидая появления ключевых элементов поиска и каталога.
+     * Конструктор создаёт ленивые элементы поиска и каталога.
+     * Элементы ищутся не сразу, а при первом обращении к ним,
+     * и затем переиспользуются всеми действиями этого экземпляра страницы
+     * (см. {@link LazyElement}).
      *
      * @param driver экземпляр WebDriver, используемый для работы со страницей
      *
@@ -78,16 +346,49 @@ public class YandexMarketBasePage {
      */
     public YandexMarketBasePage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, testProperties.defaultTimeout());
+        this.wait = new Waiter(driver);
+
+        this.searchInput = LazyElement.of(wait, "ym.search.text.input");
+        this.searchButton = LazyElement.of(wait, "ym.search.button");
+        this.catalogButton = LazyElement.of(wait, "ym.catalog.button");
+    }
 
-        wait.until(visibilityOfElementLocated(By.xpath(xpathProperties.ymSearchInputXpath())));
-        this.searchInput = driver.findElement(By.xpath(xpathProperties.ymSearchInputXpath()));
+    /**
+     * Возвращает экземпляр WebDriver, с которым работает страница.
+     *
+     * @return экземпляр WebDriver страницы
+     *
+     * @author Сергей Лужин
+     */
+    public WebDriver getDriver() {
+        return driver;
+    }
 
-        this.searchButton = driver.findElement(By.xpath(xpathProperties.ymSearchButtonXpath()));
+    /**
+     * Возвращает снимок разметки страницы, снимая его при первом обращении.
+     * Снимок переиспользуется до явного сброса через {@link #invalidateDomSnapshot()}:
+     * действия этого класса, меняющие страницу, сбрасывают его сами,
+     * а код, меняющий страницу в обход page object, должен сбросить его вызовом.
+     *
+     * @return снимок разметки текущей страницы
+     *
+     * @author Сергей Лужин
+     */
+    public DomSnapshot getDomSnapshot() {
+        if (domSnapshot == null) {
+            domSnapshot = DomSnapshot.capture(driver);
+        }
+        return domSnapshot;
+    }
 
-        this.catalogButton = wait.until(
-                visibilityOfElementLocated(By.xpath(xpathProperties.ymCatalogButtonXpath()))
-        );
+    /**
+     * Сбрасывает снимок разметки страницы: следующий вызов {@link #getDomSnapshot()}
+     * снимет разметку заново.
+     *
+     * @author Сергей Лужин
+     */
+    public void invalidateDomSnapshot() {
+        domSnapshot = null;
     }
 
     /**
@@ -98,9 +399,10 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void find(String query) {
+        invalidateDomSnapshot();
         searchInput.click();
         searchInput.sendKeys(query);
-        searchButton.click();
+        updateResults(searchButton::click);
     }
 
     /**
@@ -109,7 +411,7 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void clickOnCatalogButton() {
-        wait.until(visibilityOfElementLocated(By.xpath(xpathProperties.ymCatalogButtonXpath())));
+        invalidateDomSnapshot();
         catalogButton.click();
     }
 
@@ -121,11 +423,8 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void hoverOnCategoryInCatalog(String category) {
-        String xpath = xpathProperties.ymCatalogCategoryXpath().replace("*category*", category);
-
-        WebElement categoryElement = wait.until(
-                visibilityOfElementLocated(By.xpath(xpath))
-        );
+        invalidateDomSnapshot();
+        WebElement categoryElement = wait.visible("ym.catalog.category", category);
 
         Actions actions = new Actions(driver);
         actions.moveToElement(categoryElement).perform();
@@ -139,11 +438,8 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void clickOnSubcategoryInCatalog(String subcategory) {
-        String xpath = xpathProperties.ymCatalogSubcategoryXpath().replace("*subcategory*", subcategory);
-
-        WebElement subcategoryElement = wait.until(
-                visibilityOfElementLocated(By.xpath(xpath))
-        );
+        invalidateDomSnapshot();
+        WebElement subcategoryElement = wait.visible("ym.catalog.subcategory", subcategory);
 
         subcategoryElement.click();
     }
@@ -155,16 +451,9 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void setFilterPriceMin(int price) {
-        String xpath = xpathProperties.ymFilterPriceMinXpath();
-
-        WebElement inputFilterPriceMin = wait.until(
-                visibilityOfElementLocated(By.xpath(xpath))
-        );
-
-        inputFilterPriceMin.sendKeys(Integer.toString(price));
+        WebElement inputFilterPriceMin = wait.visible("ym.filter.priceMin");
 
-        //ждем прогрузки первой карточки товара, чтобы продолжить
-        wait.until(visibilityOfElementLocated(By.xpath("(" + xpathProperties.ymCardsOnAllPagesXpath() + ")[1]")));
+        updateResults(() -> inputFilterPriceMin.sendKeys(Integer.toString(price)));
     }
 
     /**
@@ -174,16 +463,9 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void setFilterPriceMax(int price) {
-        String xpath = xpathProperties.ymFilterPriceMaxXpath();
+        WebElement inputFilterPriceMax = wait.visible("ym.filter.priceMax");
 
-        WebElement inputFilterPriceMax = wait.until(
-                visibilityOfElementLocated(By.xpath(xpath))
-        );
-
-        inputFilterPriceMax.sendKeys(Integer.toString(price));
-
-        //ждем прогрузки первой карточки товара, чтобы продолжить
-        wait.until(visibilityOfElementLocated(By.xpath("(" + xpathProperties.ymCardsOnAllPagesXpath() + ")[1]")));
+        updateResults(() -> inputFilterPriceMax.sendKeys(Integer.toString(price)));
     }
 
     /**
@@ -195,16 +477,179 @@ public class YandexMarketBasePage {
      */
     public void clickBrandCheckbox(List<String> brands) {
         for (String brand : brands) {
-            String xpath = xpathProperties.ymFilterBrandXpath().replace("*brand*", brand);
+            WebElement brandFilterElement = wait.visible("ym.filter.brand", brand);
 
-            WebElement brandFilterElement = wait.until(
-                    visibilityOfElementLocated(By.xpath(xpath))
-            );
+            updateResults(brandFilterElement::click);
+        }
+    }
 
-            brandFilterElement.click();
+    /**
+     * Устанавливает фильтры по цене и брендам одним переходом:
+     * добавляет к адресу текущей страницы каталога параметры pricefrom, priceto
+     * и glfilter с идентификаторами брендов и загружает выдачу один раз.
+     * Ранее заданные в адресе фильтры по цене и брендам заменяются.
+     *
+     * @param minPrice минимальная цена
+     * @param maxPrice максимальная цена
+     * @param brands   список брендов для фильтрации
+     * @throws IllegalStateException если для бренда не задан идентификатор в настройках
+     *
+     * @author Сергей Лужин
+     */
+    public void applyFiltersByUrl(int minPrice, int maxPrice, List<String> brands) {
+        invalidateDomSnapshot();
+        String brandFilterPrefix = testProperties.filterBrandParam() + ":";
+        String currentUrl = driver.getCurrentUrl();
+        int queryStart = currentUrl.indexOf('?');
+        String base = queryStart < 0 ? currentUrl : currentUrl.substring(0, queryStart);
+
+        List<String> query = new ArrayList<>();
+        if (queryStart >= 0) {
+            for (String parameter : currentUrl.substring(queryStart + 1).split("&")) {
+                String name = parameter.split("=", 2)[0];
+                String value = parameter.contains("=") ? decode(parameter.split("=", 2)[1]) : "";
+                boolean replaced = name.equals("pricefrom") || name.equals("priceto")
+                        || (name.equals("glfilter") && value.startsWith(brandFilterPrefix));
+                if (!parameter.isEmpty() && !replaced) {
+                    query.add(parameter);
+                }
+            }
+        }
+        query.add("pricefrom=" + minPrice);
+        query.add("priceto=" + maxPrice);
+        if (!brands.isEmpty()) {
+            List<String> ids = new ArrayList<>();
+            for (String brand : brands) {
+                ids.add(brandId(brand));
+            }
+            query.add("glfilter=" + encode(brandFilterPrefix + String.join(",", ids)));
+        }
 
-            //ждем прогрузки первой карточки товара, чтобы продолжить
-            wait.until(visibilityOfElementLocated(By.xpath("(" + xpathProperties.ymCardsOnAllPagesXpath() + ")[1]")));
+        driver.get(base + "?" + String.join("&", query));
+        wait.firstVisible("ym.card.on.all.pages");
+    }
+
+    /**
+     * Возвращает идентификатор бренда для параметра glfilter из настроек.
+     *
+     * @param brand название бренда
+     * @return идентификатор бренда
+     * @throws IllegalStateException если для бренда не задан идентификатор
+     *
+     * @author Сергей Лужин
+     */
+    private static String brandId(String brand) {
+        for (String pair : testProperties.filterBrandIds()) {
+            int separator = pair.lastIndexOf(':');
+            if (separator > 0 && pair.substring(0, separator).trim().equalsIgnoreCase(brand)) {
+                return pair.substring(separator + 1).trim();
+            }
+        }
+        throw new IllegalStateException("Для бренда " + brand + " не задан идентификатор в filter.brand.ids");
+    }
+
+    /**
+     * Кодирует значение параметра адреса.
+     *
+     * @author Сергей Лужин
+     */
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Декодирует значение параметра адреса.
+     *
+     * @author Сергей Лужин
+     */
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ожидает, пока на странице не будет сетевых запросов (fetch и XHR)
+     * в течение указанного времени. Период тишины отсчитывается не раньше
+     * момента вызова и не раньше завершения последнего запроса.
+     * Если страница за это время сменилась, учёт запросов начинается заново на новой странице.
+     *
+     * @param quietMillis период тишины (в миллисекундах)
+     *
+     * @author Сергей Лужин
+     */
+    public void waitForNetworkIdle(long quietMillis) {
+        long since = ((Number) networkState(false).get("now")).longValue();
+        wait.until("network.idle", Waiter.budget("network.idle"), d -> {
+            Map<String, Object> state = networkState(false);
+            long lastChange = Math.max(since, ((Number) state.get("lastChange")).longValue());
+            return Boolean.TRUE.equals(state.get("ready"))
+                    && ((Number) state.get("inFlight")).longValue() == 0
+                    && ((Number) state.get("now")).longValue() - lastChange >= quietMillis;
+        });
+    }
+
+    /**
+     * Выполняет действие, обновляющее выдачу, и возвращается, когда выдача перерисована:
+     * страница начала обновление (отправила запрос или сменилась),
+     * сеть затихла и первая карточка нового списка видима.
+     * Если за {@link helpers.TestProperties#networkStartTimeout()} обновление не началось,
+     * выдача считается неизменной.
+     *
+     * @param action действие, после которого обновляется выдача
+     *
+     * @author Сергей Лужин
+     */
+    private void updateResults(Runnable action) {
+        invalidateDomSnapshot();
+        long totalBefore = ((Number) networkState(true).get("total")).longValue();
+
+        action.run();
+
+        try {
+            wait.until("network.start", testProperties.networkStartTimeout(), d -> {
+                Map<String, Object> state = networkState(false);
+                return !Boolean.TRUE.equals(state.get("marked"))
+                        || ((Number) state.get("total")).longValue() > totalBefore;
+            });
+        } catch (TimeoutException e) {
+            // страница не запрашивала новую выдачу, ждать нечего
+        }
+        waitForNetworkIdle(testProperties.networkQuietPeriod());
+        wait.firstVisible("ym.card.on.all.pages");
+    }
+
+    /**
+     * Возвращает состояние учёта сетевых запросов страницы,
+     * при необходимости внедряя скрипт учёта.
+     *
+     * @param mark пометить ли текущий документ
+     * @return количество запросов в полёте и всего, время последнего изменения,
+     * текущее время браузера, готовность документа и наличие пометки
+     *
+     * @author Сергей Лужин
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> networkState(boolean mark) {
+        return (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(NETWORK_TRACKER_SCRIPT, mark);
+    }
+
+    /**
+     * Выполняет асинхронный скрипт с увеличенным временем выполнения
+     * и затем возвращает сессии время по умолчанию.
+     *
+     * @param timeoutMillis время выполнения скрипта (мс)
+     * @param script        скрипт
+     * @param args          аргументы скрипта
+     * @return результат скрипта
+     *
+     * @author Сергей Лужин
+     */
+    private Object executeAsyncScript(long timeoutMillis, String script, Object... args) {
+        WebDriver.Timeouts timeouts = driver.manage().timeouts();
+        timeouts.setScriptTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            return ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+        } finally {
+            timeouts.setScriptTimeout(DEFAULT_SCRIPT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -216,7 +661,227 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public List<WebElement> getAllProductCardsOnPage() {
-        return driver.findElements(By.xpath(xpathProperties.ymCardsOnAllPagesXpath()));
+        return driver.findElements(locators.by("ym.card.on.all.pages"));
+    }
+
+    /**
+     * Подгружает все карточки товаров на странице способом,
+     * заданным в {@link helpers.TestProperties#scrollMode()},
+     * и возвращает страницу наверх.
+     *
+     * @return количество загруженных карточек и время подгрузки
+     *
+     * @author Сергей Лужин
+     */
+    public CardsLoadResult loadAllProductCards() {
+        if (testProperties.scrollMode() == ScrollMode.STABLE) {
+            return loadProductCardsUntilStable();
+        }
+
+        long start = System.currentTimeMillis();
+        scrollToBottomOfPage();
+        scrollToTopOfPage();
+        return new CardsLoadResult(getAllProductCardsOnPage().size(), System.currentTimeMillis() - start, true);
+    }
+
+    /**
+     * Собирает карточки товаров за один проход прокрутки вниз от текущего положения.
+     * Данные карточек снимаются на каждом шаге, поэтому список полон и для
+     * виртуализированной выдачи, где ушедшие с экрана карточки удаляются со страницы.
+     * Страница наверх не возвращается.
+     *
+     * @return карточки в порядке выдачи без повторов
+     *
+     * @author Сергей Лужин
+     */
+    public List<ProductCard> harvestProductCards() {
+        invalidateDomSnapshot();
+        long quietPeriod = testProperties.scrollQuietPeriod();
+        long maxDuration = testProperties.scrollMaxDuration();
+
+        List<?> harvested = (List<?>) executeAsyncScript(maxDuration + quietPeriod,
+                HARVEST_CARDS_SCRIPT, locators.xpath("ym.card.on.all.pages"), locators.xpath("ym.card.title.addon"),
+                locators.xpath("ym.card.price.addon"), knownBrands(), quietPeriod, maxDuration, 600
+        );
+        return toProductCards(harvested);
+    }
+
+    /**
+     * Снимает данные всех отрисованных карточек товаров за один вызов JavaScript:
+     * название, цену, бренд и ссылку. Страница не прокручивается.
+     *
+     * @return карточки в порядке выдачи без повторов
+     *
+     * @author Сергей Лужин
+     */
+    public List<ProductCard> snapshotProductCards() {
+        List<?> snapshot = (List<?>) ((JavascriptExecutor) driver).executeScript(
+                SNAPSHOT_CARDS_SCRIPT, locators.xpath("ym.card.on.all.pages"), locators.xpath("ym.card.title.addon"),
+                locators.xpath("ym.card.price.addon"), knownBrands()
+        );
+        return toProductCards(snapshot);
+    }
+
+    /**
+     * Возвращает поток карточек выдачи по страницам, начиная с текущей.
+     * Пока обрабатывается страница N, следующие страницы (до
+     * {@link helpers.TestProperties#paginationPrefetchDepth()} штук) загружаются
+     * в фоновых вкладках того же браузера. Обход заканчивается на
+     * {@link helpers.TestProperties#paginationMaxPages()}-й странице или на странице
+     * без новых карточек. После обхода остаётся открытой только исходная вкладка.
+     *
+     * @return карточки всех страниц в порядке выдачи без повторов
+     *
+     * @author Сергей Лужин
+     */
+    public Stream<ProductCard> streamResultPages() {
+        ResultPages pages = new ResultPages(this, testProperties.paginationPrefetchDepth(), testProperties.paginationMaxPages());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(pages::close);
+    }
+
+    /**
+     * Возвращает адрес указанной страницы выдачи: заменяет параметр page в адресе.
+     *
+     * @param url        адрес страницы выдачи
+     * @param pageNumber номер страницы, начиная с 1
+     * @return адрес страницы с заданным номером
+     *
+     * @author Сергей Лужин
+     */
+    static String pageUrl(String url, int pageNumber) {
+        int queryStart = url.indexOf('?');
+        String base = queryStart < 0 ? url : url.substring(0, queryStart);
+        List<String> query = new ArrayList<>();
+        if (queryStart >= 0) {
+            for (String parameter : url.substring(queryStart + 1).split("&")) {
+                if (!parameter.isEmpty() && !parameter.split("=", 2)[0].equals("page")) {
+                    query.add(parameter);
+                }
+            }
+        }
+        query.add("page=" + pageNumber);
+        return base + "?" + String.join("&", query);
+    }
+
+    /**
+     * Возвращает номер страницы выдачи из параметра page адреса.
+     *
+     * @param url адрес страницы выдачи
+     * @return номер страницы или 1, если параметра нет
+     *
+     * @author Сергей Лужин
+     */
+    static int pageNumber(String url) {
+        int queryStart = url.indexOf('?');
+        if (queryStart >= 0) {
+            for (String parameter : url.substring(queryStart + 1).split("&")) {
+                String[] pair = parameter.split("=", 2);
+                if (pair[0].equals("page") && pair.length == 2 && pair[1].matches("\\d+")) {
+                    return Integer.parseInt(pair[1]);
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Преобразует данные карточек, полученные из браузера, в {@link ProductCard},
+     * сохраняя порядок и отбрасывая повторы по идентификатору.
+     *
+     * @param items данные карточек
+     * @return карточки товаров
+     *
+     * @author Сергей Лужин
+     */
+    private static List<ProductCard> toProductCards(List<?> items) {
+        Map<String, ProductCard> cards = new LinkedHashMap<>();
+        for (Object item : items) {
+            Map<?, ?> card = (Map<?, ?>) item;
+            String id = (String) card.get("id");
+            Number price = (Number) card.get("price");
+            cards.putIfAbsent(id, new ProductCard(id, (String) card.get("title"), (String) card.get("url"),
+                    price == null ? null : price.intValue(), (String) card.get("brand")));
+        }
+        return new ArrayList<>(cards.values());
+    }
+
+    /**
+     * Возвращает названия брендов, для которых в настройках заданы идентификаторы фильтра.
+     * По ним определяется бренд карточки.
+     *
+     * @return названия брендов
+     *
+     * @author Сергей Лужин
+     */
+    private static List<String> knownBrands() {
+        List<String> brands = new ArrayList<>();
+        for (String pair : testProperties.filterBrandIds()) {
+            int separator = pair.lastIndexOf(':');
+            if (separator > 0) {
+                brands.add(pair.substring(0, separator).trim());
+            }
+        }
+        return brands;
+    }
+
+    /**
+     * Ищет товар по названию, прокручивая выдачу вниз от текущего положения.
+     * Названия загруженных карточек проверяются на каждом шаге прокрутки,
+     * поэтому поиск останавливается, как только товар найден, без прокрутки
+     * до конца выдачи и обратно. Если товара нет, поиск завершается, когда
+     * список перестаёт расти ({@link helpers.TestProperties#scrollQuietPeriod()})
+     * или истекает {@link helpers.TestProperties#scrollMaxDuration()}.
+     *
+     * @param title точное название товара
+     * @return номер найденной карточки и пройденная и сэкономленная прокрутка
+     *
+     * @author Сергей Лужин
+     */
+    public TitleSearchResult findProductTitleWhileScrolling(String title) {
+        invalidateDomSnapshot();
+        long quietPeriod = testProperties.scrollQuietPeriod();
+        long maxDuration = testProperties.scrollMaxDuration();
+
+        Map<?, ?> result = (Map<?, ?>) executeAsyncScript(maxDuration + quietPeriod,
+                FIND_TITLE_WHILE_SCROLLING_SCRIPT, locators.xpath("ym.card.titles"), title.trim(), quietPeriod, maxDuration, 600
+        );
+
+        return new TitleSearchResult(
+                ((Number) result.get("position")).intValue(),
+                ((Number) result.get("checked")).intValue(),
+                ((Number) result.get("scrolled")).longValue(),
+                ((Number) result.get("height")).longValue(),
+                ((Number) result.get("millis")).longValue()
+        );
+    }
+
+    /**
+     * Подгружает карточки товаров одним асинхронным скриптом: страница прокручивается
+     * вниз, пока количество карточек не перестанет меняться в течение
+     * {@link helpers.TestProperties#scrollQuietPeriod()} или не истечёт
+     * {@link helpers.TestProperties#scrollMaxDuration()}. В конце страница
+     * возвращается наверх.
+     *
+     * @return количество загруженных карточек и время подгрузки
+     *
+     * @author Сергей Лужин
+     */
+    public CardsLoadResult loadProductCardsUntilStable() {
+        invalidateDomSnapshot();
+        long quietPeriod = testProperties.scrollQuietPeriod();
+        long maxDuration = testProperties.scrollMaxDuration();
+
+        Map<?, ?> result = (Map<?, ?>) executeAsyncScript(maxDuration + quietPeriod,
+                LOAD_UNTIL_STABLE_SCRIPT, locators.xpath("ym.card.on.all.pages"), quietPeriod, maxDuration
+        );
+
+        return new CardsLoadResult(
+                ((Number) result.get("cards")).intValue(),
+                ((Number) result.get("millis")).longValue(),
+                Boolean.TRUE.equals(result.get("stable"))
+        );
     }
 
     /**
@@ -227,6 +892,7 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void scrollToBottomOfPage() {
+        invalidateDomSnapshot();
         JavascriptExecutor js = (JavascriptExecutor) driver;
 
         int scrollStep = 600;          // на сколько пикселей скроллим за шаг
@@ -239,12 +905,7 @@ public class YandexMarketBasePage {
             // скроллим вниз на scrollStep пикселей
             js.executeScript("window.scrollBy(0, arguments[0]);", scrollStep);
 
-            long targetTime = System.currentTimeMillis() + pauseMs;
-            new FluentWait<>(driver)
-                    .withTimeout(Duration.ofMillis(pauseMs + 50))
-                    .pollingEvery(Duration.ofMillis(50))
-                    .ignoring(Exception.class)
-                    .until(d -> System.currentTimeMillis() >= targetTime);
+            Waiter.pause(pauseMs);
 
             // проверяем, дошли ли до низа страницы
             long offset = ((Number) js.executeScript("return window.pageYOffset;")).longValue();      // текущая вертикальная позиция
@@ -267,6 +928,7 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void scrollToTopOfPage() {
+        invalidateDomSnapshot();
         JavascriptExecutor js = (JavascriptExecutor) driver;
 
         int scrollStep = 1000;          // на сколько пикселей скроллим за шаг
@@ -279,12 +941,7 @@ public class YandexMarketBasePage {
             // скроллим вверх на scrollStep пикселей (отрицательное значение)
             js.executeScript("window.scrollBy(0, arguments[0]);", -scrollStep);
 
-            long targetTime = System.currentTimeMillis() + pauseMs;
-            new FluentWait<>(driver)
-                    .withTimeout(Duration.ofMillis(pauseMs + 50))
-                    .pollingEvery(Duration.ofMillis(50))
-                    .ignoring(Exception.class)
-                    .until(d -> System.currentTimeMillis() >= targetTime);
+            Waiter.pause(pauseMs);
 
             // проверяем, дошли ли до верха страницы
             long offset = ((Number) js.executeScript("return window.pageYOffset;")).longValue(); // текущая вертикальная позиция скролла
@@ -303,6 +960,7 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public void goToElementOnPage(WebElement element) {
+        invalidateDomSnapshot();
         JavascriptExecutor js = (JavascriptExecutor) driver;
         js.executeScript("arguments[0].scrollIntoView({behavior:'instant', block:'center'});", element);
     }
@@ -316,10 +974,44 @@ public class YandexMarketBasePage {
      * @author Сергей Лужин
      */
     public String getProductCardTitle(WebElement element){
-        WebElement titleElement = element.findElement(By.xpath(xpathProperties.ymCardTitleAddonXpath()));
+        WebElement titleElement = element.findElement(locators.by("ym.card.title.addon"));
         return titleElement.getText();
     }
 
+    /**
+     * Получает названия всех товаров на странице за один вызов JavaScript:
+     * XPath заголовков карточек вычисляется прямо в браузере,
+     * вместо отдельных запросов WebDriver к каждой карточке.
+     * Если скрипт выполнить не удалось, названия собираются по одной карточке
+     * через {@link #getAllProductCardTitlesFromList(List)}. Пробелы, в том числе
+     * неразрывные, сводятся к одному обычному, как в {@link WebElement#getText()}.
+     *
+     * @return список названий товаров в порядке карточек на странице
+     *
+     * @author Сергей Лужин
+     */
+    public List<String> getAllProductCardTitles() {
+        try {
+            Object titles = ((JavascriptExecutor) driver).executeScript(
+                    "var snapshot = document.evaluate(arguments[0], document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+                            + "var titles = [];"
+                            + "for (var i = 0; i < snapshot.snapshotLength; i++) {"
+                            + "  titles.push(snapshot.snapshotItem(i).innerText.replace(/\\s+/g, ' ').trim());"
+                            + "}"
+                            + "return titles;",
+                    locators.xpath("ym.card.titles")
+            );
+
+            List<String> productTitles = new ArrayList<>();
+            for (Object title : (List<?>) titles) {
+                productTitles.add((String) title);
+            }
+            return productTitles;
+        } catch (WebDriverException | ClassCastException e) {
+            return getAllProductCardTitlesFromList(getAllProductCardsOnPage());
+        }
+    }
+
     /**
      * Получает названия всех товаров из списка карточек.
      *
@@ -1,13 +1,24 @@
 package steps;
 
+import helpers.Assertions;
+import helpers.CategoryUrlCache;
+import helpers.SessionSnapshot;
+import helpers.Waiter;
+import io.qameta.allure.Allure;
 import io.qameta.allure.Step;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import pages.CardsLoadResult;
+import pages.ProductCard;
+import pages.TitleSearchResult;
 import pages.YandexMarketBasePage;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static helpers.Properties.testProperties;
 
@@ -20,17 +31,35 @@ import static helpers.Properties.testProperties;
  */
 public class Steps {
     /**
-     * Текущий экземпляр WebDriver, используемый в шагах.
+     * Экземпляр WebDriver, используемый в шагах текущего потока.
      * Инициализируется при открытии сайта в методе {@link #openSite(String, WebDriver)}.
+     * Хранится отдельно для каждого потока, чтобы параллельные тесты
+     * не перехватывали браузеры друг друга.
      *
      * @author Сергей Лужин
      */
-    private static WebDriver driver;
+    private static final ThreadLocal<WebDriver> driver = new ThreadLocal<>();
+
+    /**
+     * Страница, с которой работают шаги текущего потока.
+     * Переиспользуется последовательными шагами, пока драйвер не сменился,
+     * чтобы найденные элементы страницы не искались в каждом шаге заново.
+     *
+     * @author Сергей Лужин
+     */
+    private static final ThreadLocal<YandexMarketBasePage> page = new ThreadLocal<>();
 
 
     /**
      * Открывает указанный URL в переданном экземпляре WebDriver
-     * и сохраняет этот драйвер во внутреннее статическое поле.
+     * и привязывает этот драйвер к шагам текущего потока.
+     *
+     * Если включён снимок сессии и открывается Яндекс Маркет, перед открытием
+     * в браузер восстанавливаются сохранённые cookies и localStorage.
+     * Если снимка нет, он устарел или его файл не удалось разобрать, сайт открывается
+     * как обычно, а после затихания сетевых запросов снимается новый снимок и перезаписывает
+     * файл; причина прикрепляется к отчёту Allure. Выбор региона и баннеры согласия
+     * при этом не проходятся.
      *
      * @param url           адрес сайта, который нужно открыть
      * @param currentDriver экземпляр WebDriver, в котором будет открыт сайт
@@ -39,15 +68,42 @@ public class Steps {
      */
     @Step("Переходим на сайт: {url}")
     public static void openSite(String url, WebDriver currentDriver){
-        driver = currentDriver;
-        driver.get(url);
-        //WebDriverWait wait = new WebDriverWait(driver, testProperties.defaultTimeout());
+        driver.set(currentDriver);
+        page().invalidateDomSnapshot();
+        if (!testProperties.sessionSnapshotEnabled() || !url.startsWith(testProperties.yandexMarketUrl())) {
+            currentDriver.get(url);
+            return;
+        }
+
+        SessionSnapshot snapshot = SessionSnapshot.load();
+        String staleReason = snapshot == null ? "снимка ещё нет" : snapshot.staleReason(url);
+        if (staleReason == null) {
+            String restored = snapshot.restore(currentDriver);
+            long start = System.currentTimeMillis();
+            currentDriver.get(url);
+            Allure.addAttachment("Снимок сессии", restored + "\nОткрытие сайта: " + (System.currentTimeMillis() - start) + " мс");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        currentDriver.get(url);
+        page().waitForNetworkIdle(testProperties.networkQuietPeriod());
+        long warmUp = System.currentTimeMillis() - start;
+        SessionSnapshot captured = SessionSnapshot.capture(currentDriver);
+        captured.save();
+        Allure.addAttachment("Снимок сессии", "Снят новый снимок (" + staleReason + "): " + captured
+                + "\nОткрытие сайта с прогревом: " + warmUp + " мс");
     }
 
     /**
      * Переходит в каталог Яндекс Маркета, выбирает указанную категорию
      * и подкатегорию.
      *
+     * Если включён {@link CategoryUrlCache}, сначала пробует перейти по сохранённому
+     * адресу подкатегории. Адрес подходит, если заголовок открытой страницы содержит
+     * название подкатегории; иначе он удаляется из кэша и подкатегория выбирается
+     * через меню каталога, после чего её новый адрес сохраняется.
+     *
      * @param category    название категории каталога
      * @param subcategory название подкатегории каталога
      *
@@ -55,14 +111,41 @@ public class Steps {
      */
     @Step("Выбираем категорию '{category}' и подкатегорию {subcategory} в каталоге")
     public static void chooseCategory(String category, String subcategory) {
-        YandexMarketBasePage yandexMarketBasePage = new YandexMarketBasePage(driver);
+        CategoryUrlCache cache = testProperties.categoryCacheEnabled() ? CategoryUrlCache.getInstance() : null;
+
+        if (cache != null) {
+            String cachedUrl = cache.get(category, subcategory);
+            if (cachedUrl != null) {
+                page().invalidateDomSnapshot();
+                driver.get().get(cachedUrl);
+                if (driver.get().getTitle().contains(subcategory)) {
+                    Allure.addAttachment("Кэш адресов категорий", "Переход по сохранённому адресу " + cachedUrl + "\n" + cache);
+                    return;
+                }
+                cache.invalidate(category, subcategory);
+            }
+        }
+
+        YandexMarketBasePage yandexMarketBasePage = page();
         yandexMarketBasePage.clickOnCatalogButton();
         yandexMarketBasePage.hoverOnCategoryInCatalog(category);
         yandexMarketBasePage.clickOnSubcategoryInCatalog(subcategory);
+
+        if (cache != null) {
+            try {
+                new Waiter(driver.get()).until("title.contains.subcategory", Waiter.budget("title.contains.subcategory"),
+                        d -> d.getTitle().contains(subcategory));
+                cache.put(category, subcategory, driver.get().getCurrentUrl());
+            } catch (TimeoutException e) {
+                // страница подкатегории не открылась, сохранять нечего
+            }
+            Allure.addAttachment("Кэш адресов категорий", "Переход через меню каталога\n" + cache);
+        }
     }
 
     /**
-     * Устанавливает фильтры поиска по цене и брендам на странице каталога.
+     * Устанавливает фильтры поиска по цене и брендам на странице каталога
+     * способом, заданным в {@link helpers.TestProperties#filterMode()}.
      *
      * @param minPrice минимальная цена фильтра
      * @param maxPrice максимальная цена фильтра
@@ -70,16 +153,37 @@ public class Steps {
      *
      * @author Сергей Лужин
      */
-    @Step("Устанавливаем фильтры поиска: Минимальная цена - {minPrice}, Максимальная цена - {maxPrice}, Бренды - {brands}")
     public static void setFilters(int minPrice, int maxPrice, List<String> brands) {
-        YandexMarketBasePage yandexMarketBasePage = new YandexMarketBasePage(driver);
+        setFilters(minPrice, maxPrice, brands, testProperties.filterMode());
+    }
+
+    /**
+     * Устанавливает фильтры поиска по цене и брендам на странице каталога
+     * указанным способом: через блок фильтров или одним переходом по адресу с параметрами.
+     * Способ UI нужен тестам, которые проверяют сами элементы фильтров.
+     *
+     * @param minPrice минимальная цена фильтра
+     * @param maxPrice максимальная цена фильтра
+     * @param brands   список брендов, по которым нужно отфильтровать товары
+     * @param mode     способ установки фильтров
+     *
+     * @author Сергей Лужин
+     */
+    @Step("Устанавливаем фильтры поиска ({mode}): Минимальная цена - {minPrice}, Максимальная цена - {maxPrice}, Бренды - {brands}")
+    public static void setFilters(int minPrice, int maxPrice, List<String> brands, YandexMarketBasePage.FilterMode mode) {
+        YandexMarketBasePage yandexMarketBasePage = page();
+        if (mode == YandexMarketBasePage.FilterMode.URL) {
+            yandexMarketBasePage.applyFiltersByUrl(minPrice, maxPrice, brands);
+            return;
+        }
         yandexMarketBasePage.setFilterPriceMin(minPrice);
         yandexMarketBasePage.setFilterPriceMax(maxPrice);
         yandexMarketBasePage.clickBrandCheckbox(brands);
     }
 
     /**
-     * Прокручивает страницу до конца вниз (или до истечения таймаута) и обратно вверх,
+     * Подгружает все карточки товаров (прокруткой до конца вниз и обратно вверх
+     * или скриптом до стабилизации списка, см. {@link helpers.TestProperties#scrollMode()}),
      * после чего возвращает список всех карточек товаров на странице.
      *
      * @return список WebElement, представляющих карточки товаров
@@ -88,9 +192,8 @@ public class Steps {
      */
     @Step("Получаем список всех карточек товаров на странице")
     public static List<WebElement> getAllProductCards() {
-        YandexMarketBasePage yandexMarketBasePage = new YandexMarketBasePage(driver);
-        yandexMarketBasePage.scrollToBottomOfPage();
-        yandexMarketBasePage.scrollToTopOfPage();
+        YandexMarketBasePage yandexMarketBasePage = page();
+        attachCardsLoadResult(yandexMarketBasePage.loadAllProductCards());
         return yandexMarketBasePage.getAllProductCardsOnPage();
     }
 
@@ -106,7 +209,7 @@ public class Steps {
      */
     @Step("Возвращаемся в начало списка и сохраняем название товара под номером {elementNumber} на странице")
     public static String getProductName(List<WebElement> elementList, int elementNumber){
-        YandexMarketBasePage yandexMarketBasePage = new YandexMarketBasePage(driver);
+        YandexMarketBasePage yandexMarketBasePage = page();
         yandexMarketBasePage.goToElementOnPage(elementList.get(elementNumber));
         return yandexMarketBasePage.getProductCardTitle(elementList.get(elementNumber));
     }
@@ -122,14 +225,14 @@ public class Steps {
      */
     @Step("Делаем поиск на Яндекс Маркете по запросу: {query}")
     public static void goBySearchQuery(String query) {
-        YandexMarketBasePage yandexMarketBasePage = new YandexMarketBasePage(driver);
+        YandexMarketBasePage yandexMarketBasePage = page();
         yandexMarketBasePage.scrollToTopOfPage();
         yandexMarketBasePage.find(query);
     }
 
     /**
-     * Прокручивает страницу вниз и вверх, получает все карточки товаров на странице
-     * и возвращает список их названий.
+     * Подгружает все карточки товаров на странице и возвращает список
+     * их названий, собранный одним вызовом JavaScript.
      *
      * @return список названий всех товаров на текущей странице
      *
@@ -137,11 +240,165 @@ public class Steps {
      */
     @Step("Получаем названия всех товаров на странице")
     public static List<String> getAllProductsTitles() {
-        YandexMarketBasePage yandexMarketBasePage = new YandexMarketBasePage(driver);
-        yandexMarketBasePage.scrollToBottomOfPage();
-        yandexMarketBasePage.scrollToTopOfPage();
-        List<WebElement> productCardsOnPage = yandexMarketBasePage.getAllProductCardsOnPage();
-        return yandexMarketBasePage.getAllProductCardTitlesFromList(productCardsOnPage);
+        YandexMarketBasePage yandexMarketBasePage = page();
+        attachCardsLoadResult(yandexMarketBasePage.loadAllProductCards());
+        return yandexMarketBasePage.getAllProductCardTitles();
+    }
+
+    /**
+     * Собирает данные всех карточек товаров за один проход прокрутки вниз.
+     * Количество карточек и время сбора прикрепляются к отчёту Allure.
+     *
+     * @return карточки товаров в порядке выдачи без повторов
+     *
+     * @author Сергей Лужин
+     */
+    @Step("Собираем все карточки товаров на странице")
+    public static List<ProductCard> harvestProductCards() {
+        long start = System.currentTimeMillis();
+        List<ProductCard> cards = page().harvestProductCards();
+        Allure.addAttachment("Сбор карточек", "Собрано карточек: " + cards.size() + " за "
+                + (System.currentTimeMillis() - start) + " мс");
+        return cards;
+    }
+
+    /**
+     * Собирает карточки товаров со всех страниц выдачи, начиная с текущей.
+     * Следующие страницы загружаются заранее в фоновых вкладках, пока читается текущая.
+     * Количество карточек и время сбора прикрепляются к отчёту Allure.
+     *
+     * @return карточки товаров всех страниц в порядке выдачи без повторов
+     *
+     * @author Сергей Лужин
+     */
+    @Step("Собираем карточки товаров со страниц выдачи")
+    public static List<ProductCard> harvestResultPages() {
+        long start = System.currentTimeMillis();
+        List<ProductCard> cards;
+        try (Stream<ProductCard> stream = page().streamResultPages()) {
+            cards = stream.collect(Collectors.toList());
+        }
+        Allure.addAttachment("Сбор карточек со страниц выдачи", "Собрано карточек: " + cards.size()
+                + " не более чем с " + testProperties.paginationMaxPages() + " страниц, предзагрузка "
+                + testProperties.paginationPrefetchDepth() + " стр., за " + (System.currentTimeMillis() - start) + " мс");
+        return cards;
+    }
+
+    /**
+     * Проверяет, что все собранные карточки соответствуют фильтрам по цене и брендам.
+     * Карточки проверяются в памяти, а все несоответствия выводятся одной проверкой.
+     * Карточки, цену или бренд которых не удалось определить, проверку не роняют:
+     * они перечисляются во вложении Allure отдельно от несоответствий.
+     *
+     * @param cards    карточки товаров
+     * @param minPrice минимальная цена фильтра
+     * @param maxPrice максимальная цена фильтра
+     * @param brands   бренды фильтра
+     *
+     * @author Сергей Лужин
+     */
+    @Step("Проверяем, что все карточки соответствуют фильтрам: цена {minPrice}-{maxPrice}, бренды {brands}")
+    public static void checkProductCardsMatchFilters(List<ProductCard> cards, int minPrice, int maxPrice, List<String> brands) {
+        List<String> violations = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (ProductCard card : cards) {
+            String violation = card.filterViolation(minPrice, maxPrice, brands);
+            if (violation != null) {
+                violations.add(violation);
+            }
+            String unknownFields = card.unknownFields();
+            if (unknownFields != null) {
+                unknown.add(unknownFields);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            Allure.addAttachment("Карточки с неопределёнными ценой или брендом", "Не проверены полностью "
+                    + unknown.size() + " из " + cards.size() + " карточек:\n" + String.join("\n", unknown));
+        }
+        Assertions.assertTrue(violations.isEmpty(), "Фильтрам не соответствуют " + violations.size() + " из "
+                + cards.size() + " карточек:\n" + String.join("\n", violations));
+    }
+
+    /**
+     * Возвращает название товара из собранной карточки под указанным номером.
+     *
+     * @param cards         карточки товаров
+     * @param elementNumber номер карточки в списке (начиная с 0)
+     * @return название товара
+     *
+     * @author Сергей Лужин
+     */
+    @Step("Сохраняем название товара под номером {elementNumber} из собранных карточек")
+    public static String getProductTitle(List<ProductCard> cards, int elementNumber) {
+        return cards.get(elementNumber).getTitle();
+    }
+
+    /**
+     * Ищет товар по названию, прокручивая выдачу, и останавливается,
+     * как только товар найден или список перестал расти.
+     * Результат поиска прикрепляется к отчёту Allure.
+     *
+     * @param title точное название товара
+     * @return номер найденной карточки и пройденная и сэкономленная прокрутка
+     *
+     * @author Сергей Лужин
+     */
+    @Step("Ищем товар '{title}' в выдаче, прокручивая страницу")
+    public static TitleSearchResult findProductTitleWhileScrolling(String title) {
+        TitleSearchResult result = page().findProductTitleWhileScrolling(title);
+        Allure.addAttachment("Поиск товара при прокрутке", result.toString());
+        return result;
+    }
+
+    /**
+     * Прикрепляет к отчёту Allure количество подгруженных карточек и время подгрузки.
+     *
+     * @param result результат подгрузки карточек
+     *
+     * @author Сергей Лужин
+     */
+    private static void attachCardsLoadResult(CardsLoadResult result) {
+        Allure.addAttachment("Подгрузка карточек", result.toString());
+    }
+
+    /**
+     * Возвращает экземпляр WebDriver, с которым работают шаги текущего потока.
+     *
+     * @return драйвер текущего потока или null, если сайт ещё не открывался
+     *
+     * @author Сергей Лужин
+     */
+    public static WebDriver getDriver() {
+        return driver.get();
+    }
+
+    /**
+     * Отвязывает драйвер от шагов текущего потока.
+     * Вызывается после завершения теста, чтобы поток из пула JUnit
+     * не сохранил ссылку на уже закрытый браузер.
+     *
+     * @author Сергей Лужин
+     */
+    public static void releaseDriver() {
+        driver.remove();
+        page.remove();
+    }
+
+    /**
+     * Возвращает страницу для шагов текущего потока.
+     * Создаёт её при первом обращении или если драйвер потока сменился.
+     *
+     * @return страница Яндекс Маркета
+     *
+     * @author Сергей Лужин
+     */
+    private static YandexMarketBasePage page() {
+        YandexMarketBasePage current = page.get();
+        if (current == null || current.getDriver() != driver.get()) {
+            current = new YandexMarketBasePage(driver.get());
+            page.set(current);
+        }
+        return current;
     }
 
 }
@@ -0,0 +1,124 @@
+package helpers;
+
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.events.EventFiringWebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тесты {@link AllureScreenshotListener} на заглушке WebDriver без браузера:
+ * заглушка обёрнута в EventFiringWebDriver так же, как в {@link DriverFactory},
+ * и считает запросы элементов и скриншотов.
+ *
+ * @author Сергей Лужин
+ */
+public class AllureScreenshotListenerTests {
+
+    /**
+     * Запросы поиска элемента к заглушке.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    /**
+     * Запросы скриншота к заглушке.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger screenshots = new AtomicInteger();
+
+    /**
+     * Проверяет, что ожидание элемента, которого нет на странице, проверяет его
+     * несколько раз и истекает, не снимая скриншот на каждую неудачную проверку,
+     * а другая ошибка WebDriver по-прежнему снимается.
+     *
+     * @throws IOException если кадр заглушки не удалось подготовить
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("Неудачные проверки ожидания не снимают скриншоты")
+    public void testTimedOutWaitTakesNoScreenshotPerPoll() throws IOException {
+        EventFiringWebDriver driver = new EventFiringWebDriver(stubDriver(png()));
+        driver.register(new AllureScreenshotListener(driver));
+
+        TimeoutException timeout = null;
+        try {
+            new Waiter(driver).until("missing", 1000, ExpectedConditions.visibilityOfElementLocated(By.id("missing")));
+        } catch (TimeoutException e) {
+            timeout = e;
+        }
+        int screenshotsDuringWait = screenshots.get();
+
+        try {
+            driver.get("http://localhost/");
+        } catch (WebDriverException ignored) {
+            // ошибка навигации нужна только для скриншота ошибки
+        }
+        Screenshoter.flush();
+
+        Assertions.assertTrue(timeout != null, "Ожидание отсутствующего элемента не истекло");
+        Assertions.assertTrue(lookups.get() > 1, "Элемент проверен " + lookups.get() + " раз");
+        Assertions.assertTrue(screenshotsDuringWait == 0,
+                "За " + lookups.get() + " проверок снято скриншотов: " + screenshotsDuringWait);
+        Assertions.assertTrue(screenshots.get() == 1, "Для ошибки навигации снято скриншотов: " + screenshots.get());
+    }
+
+    /**
+     * Создаёт заглушку WebDriver: поиск элемента всегда неудачен, переход по адресу
+     * завершается ошибкой, скриншот возвращает указанный кадр.
+     *
+     * @author Сергей Лужин
+     */
+    private WebDriver stubDriver(byte[] frame) {
+        return (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebDriver.class, TakesScreenshot.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findElement":
+                            lookups.incrementAndGet();
+                            throw new NoSuchElementException("Нет элемента " + args[0]);
+                        case "get":
+                            throw new WebDriverException("Страница не открылась");
+                        case "getScreenshotAs":
+                            screenshots.incrementAndGet();
+                            return ((OutputType<?>) args[0]).convertFromPngBytes(frame);
+                        case "toString":
+                            return "Заглушка WebDriver";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    /**
+     * Возвращает PNG-кадр заглушки.
+     *
+     * @author Сергей Лужин
+     */
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,161 @@
+package helpers;
+
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Тесты кэша адресов категорий {@link CategoryUrlCache}: время жизни записей,
+ * испорченные записи файла и запись файла через временный файл.
+ *
+ * @author Сергей Лужин
+ */
+public class CategoryUrlCacheTests {
+
+    /**
+     * Время жизни записи в тестах (в миллисекундах).
+     *
+     * @author Сергей Лужин
+     */
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Проверяет, что сохранённый путь возвращается на текущем адресе Маркета,
+     * а запись старше времени жизни считается промахом.
+     *
+     * @param directory каталог файла кэша
+     * @throws IOException если файл кэша не удалось подготовить
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Кэш адресов категорий")
+    @DisplayName("Устаревшая запись кэша считается промахом")
+    public void testExpiredEntryIsMiss(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("category-urls.properties");
+        long now = System.currentTimeMillis();
+        write(file, "Электроника / Ноутбуки", now + " /catalog--noutbuki/54544/list?hid=91013",
+                "Компьютеры / Мониторы", (now - TTL_MILLIS - 1000) + " /catalog--monitory/54539/list");
+
+        CategoryUrlCache cache = new CategoryUrlCache(file, TTL_MILLIS);
+        String fresh = cache.get("Электроника", "Ноутбуки");
+        String expired = cache.get("Компьютеры", "Мониторы");
+
+        String expected = URI.create(testProperties.yandexMarketUrl()).resolve("/catalog--noutbuki/54544/list?hid=91013").toString();
+        Assertions.assertTrue(expected.equals(fresh), "Получен адрес " + fresh + " вместо " + expected);
+        Assertions.assertTrue(expired == null, "Устаревшая запись вернула адрес " + expired);
+        Assertions.assertTrue(cache.getHitRate() == 0.5, "Доля попаданий " + cache.getHitRate() + " вместо 0.5");
+    }
+
+    /**
+     * Проверяет, что записи без времени сохранения, с нечисловым временем
+     * или с некорректным путём считаются промахом и удаляются из файла кэша,
+     * а исправные записи остаются.
+     *
+     * @param directory каталог файла кэша
+     * @throws IOException если файл кэша не удалось подготовить или прочитать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Кэш адресов категорий")
+    @DisplayName("Испорченные записи кэша считаются промахом и удаляются")
+    public void testMalformedEntriesAreDropped(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("category-urls.properties");
+        long now = System.currentTimeMillis();
+        write(file, "Без / Времени", "/catalog--bez-vremeni/1/list",
+                "Нечисловое / Время", "вчера /catalog--vchera/2/list",
+                "Некорректный / Путь", now + " /catalog with spaces|",
+                "Электроника / Ноутбуки", now + " /catalog--noutbuki/54544/list");
+
+        CategoryUrlCache cache = new CategoryUrlCache(file, TTL_MILLIS);
+        String withoutTime = cache.get("Без", "Времени");
+        String badTime = cache.get("Нечисловое", "Время");
+        String badPath = cache.get("Некорректный", "Путь");
+        java.util.Properties saved = read(file);
+
+        Assertions.assertTrue(withoutTime == null && badTime == null && badPath == null,
+                "Испорченные записи вернули адреса " + withoutTime + ", " + badTime + ", " + badPath);
+        Assertions.assertTrue(saved.stringPropertyNames().size() == 1 && saved.containsKey("Электроника / Ноутбуки"),
+                "В файле кэша остались записи " + saved.stringPropertyNames());
+        Assertions.assertTrue(cache.get("Электроника", "Ноутбуки") != null, "Исправная запись не читается");
+    }
+
+    /**
+     * Проверяет, что сохранённый адрес записывается в файл кэша без оставшихся
+     * временных файлов и читается новым экземпляром кэша, а удалённый адрес
+     * пропадает из файла.
+     *
+     * @param directory каталог файла кэша
+     * @throws IOException если каталог не удалось прочитать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Кэш адресов категорий")
+    @DisplayName("Кэш записывается в файл через временный файл")
+    public void testSaveReplacesFileAtomically(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("cache").resolve("category-urls.properties");
+
+        CategoryUrlCache cache = new CategoryUrlCache(file, TTL_MILLIS);
+        cache.put("Электроника", "Ноутбуки", "https://market.yandex.ru/catalog--noutbuki/54544/list?hid=91013");
+        cache.put("Компьютеры", "Мониторы", "https://market.yandex.ru/catalog--monitory/54539/list");
+        cache.invalidate("Компьютеры", "Мониторы");
+
+        List<String> files;
+        try (Stream<Path> listing = Files.list(file.getParent())) {
+            files = listing.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+        }
+        CategoryUrlCache reloaded = new CategoryUrlCache(file, TTL_MILLIS);
+        String url = reloaded.get("Электроника", "Ноутбуки");
+
+        Assertions.assertTrue(files.size() == 1 && files.get(0).equals("category-urls.properties"),
+                "В каталоге кэша файлы " + files);
+        Assertions.assertTrue(url != null && url.endsWith("/catalog--noutbuki/54544/list?hid=91013"),
+                "Сохранённый адрес не прочитан: " + url);
+        Assertions.assertTrue(reloaded.get("Компьютеры", "Мониторы") == null, "Удалённый адрес остался в файле");
+    }
+
+    /**
+     * Записывает файл кэша из пар ключ - значение.
+     *
+     * @author Сергей Лужин
+     */
+    private static void write(Path file, String... keysAndValues) throws IOException {
+        java.util.Properties entries = new java.util.Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            entries.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            entries.store(writer, null);
+        }
+    }
+
+    /**
+     * Читает файл кэша.
+     *
+     * @author Сергей Лужин
+     */
+    private static java.util.Properties read(Path file) throws IOException {
+        java.util.Properties entries = new java.util.Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            entries.load(reader);
+        }
+        return entries;
+    }
+}
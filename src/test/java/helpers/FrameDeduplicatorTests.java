@@ -0,0 +1,182 @@
+package helpers;
+
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Тесты отсева повторов {@link FrameDeduplicator} на сгенерированных кадрах:
+ * «страница» из серых блоков разной яркости, та же страница с мелким изменением
+ * и страница с другим расположением блоков.
+ *
+ * @author Сергей Лужин
+ */
+public class FrameDeduplicatorTests {
+
+    /**
+     * Ширина кадра.
+     *
+     * @author Сергей Лужин
+     */
+    private static final int WIDTH = 640;
+
+    /**
+     * Высота кадра.
+     *
+     * @author Сергей Лужин
+     */
+    private static final int HEIGHT = 480;
+
+    /**
+     * Проверяет, что одинаковый кадр имеет нулевое расстояние до себя
+     * и отсеивается как повтор.
+     *
+     * @throws IOException если кадр не удалось закодировать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("Одинаковый кадр отсеивается как повтор")
+    public void testIdenticalFrameIsDuplicate() throws IOException {
+        byte[] frame = png(page(1, null));
+        FrameDeduplicator deduplicator = new FrameDeduplicator(testProperties.screenshotDedupThreshold());
+
+        int distance = FrameDeduplicator.distance(FrameDeduplicator.hash(frame), FrameDeduplicator.hash(frame.clone()));
+
+        Assertions.assertTrue(distance == 0, "Расстояние между одинаковыми кадрами " + distance);
+        Assertions.assertTrue(!deduplicator.isDuplicate(frame), "Первый кадр теста отсеян как повтор");
+        Assertions.assertTrue(deduplicator.isDuplicate(frame.clone()), "Одинаковый кадр не отсеян");
+    }
+
+    /**
+     * Проверяет, что кадр с мелким изменением (значок между строками)
+     * не дальше порога от исходного и отсеивается как повтор.
+     *
+     * @throws IOException если кадр не удалось закодировать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("Почти одинаковый кадр отсеивается как повтор")
+    public void testNearIdenticalFrameIsDuplicate() throws IOException {
+        int threshold = testProperties.screenshotDedupThreshold();
+        byte[] frame = png(page(1, null));
+        byte[] withBadge = png(page(1, new int[]{300, 27, 14, 12}));
+        FrameDeduplicator deduplicator = new FrameDeduplicator(threshold);
+
+        int distance = FrameDeduplicator.distance(FrameDeduplicator.hash(frame), FrameDeduplicator.hash(withBadge));
+
+        Assertions.assertTrue(distance > 0 && distance <= threshold,
+                "Расстояние " + distance + " вне промежутка от 1 до порога " + threshold);
+        Assertions.assertTrue(!deduplicator.isDuplicate(frame), "Первый кадр теста отсеян как повтор");
+        Assertions.assertTrue(deduplicator.isDuplicate(withBadge), "Почти одинаковый кадр не отсеян");
+    }
+
+    /**
+     * Проверяет, что кадр другой страницы дальше порога и сохраняется,
+     * становясь новым образцом для сравнения.
+     *
+     * @throws IOException если кадр не удалось закодировать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("Другой кадр сохраняется и становится образцом")
+    public void testDifferentFrameIsKept() throws IOException {
+        int threshold = testProperties.screenshotDedupThreshold();
+        byte[] first = png(page(1, null));
+        byte[] second = png(page(2, null));
+        FrameDeduplicator deduplicator = new FrameDeduplicator(threshold);
+
+        int distance = FrameDeduplicator.distance(FrameDeduplicator.hash(first), FrameDeduplicator.hash(second));
+
+        Assertions.assertTrue(distance > threshold, "Расстояние " + distance + " не больше порога " + threshold);
+        Assertions.assertTrue(!deduplicator.isDuplicate(first), "Первый кадр теста отсеян как повтор");
+        Assertions.assertTrue(!deduplicator.isDuplicate(second), "Другой кадр отсеян как повтор");
+        Assertions.assertTrue(deduplicator.isDuplicate(second.clone()), "Новый образец не запомнен");
+        Assertions.assertTrue(!deduplicator.isDuplicate(first.clone()), "Кадр сравнён не с последним сохранённым");
+    }
+
+    /**
+     * Проверяет счётчик отсеянных кадров: учитываются только повторы,
+     * а неразборчивые данные повтором не считаются.
+     *
+     * @throws IOException если кадр не удалось закодировать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("Счётчик отсеянных кадров учитывает только повторы")
+    public void testSkippedCountsDuplicatesOnly() throws IOException {
+        byte[] first = png(page(1, null));
+        byte[] second = png(page(2, null));
+        FrameDeduplicator deduplicator = new FrameDeduplicator(testProperties.screenshotDedupThreshold());
+
+        deduplicator.isDuplicate(first);
+        deduplicator.isDuplicate(first.clone());
+        deduplicator.isDuplicate(png(page(1, new int[]{300, 27, 14, 12})));
+        deduplicator.isDuplicate(second);
+        deduplicator.isDuplicate(second.clone());
+        boolean garbage = deduplicator.isDuplicate(new byte[]{1, 2, 3});
+
+        Assertions.assertTrue(!garbage, "Неразборчивые данные отсеяны как повтор");
+        Assertions.assertTrue(deduplicator.getSkipped() == 3, "Отсеяно кадров " + deduplicator.getSkipped() + " вместо 3");
+    }
+
+    /**
+     * Рисует «страницу»: строки серых блоков разной длины и яркости,
+     * расположение которых задаётся номером страницы.
+     *
+     * @param seed  номер страницы
+     * @param badge прямоугольник значка (x, y, ширина, высота) или null
+     *
+     * @author Сергей Лужин
+     */
+    private static BufferedImage page(long seed, int[] badge) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        Random random = new Random(seed);
+        for (int y = 10; y < HEIGHT - 20; y += 30) {
+            for (int x = 10; x < WIDTH - 20; ) {
+                int width = 20 + random.nextInt(120);
+                int gray = random.nextInt(200);
+                graphics.setColor(new Color(gray, gray, gray));
+                graphics.fillRect(x, y, Math.min(width, WIDTH - 10 - x), 16);
+                x += width + 10;
+            }
+        }
+        if (badge != null) {
+            graphics.setColor(Color.BLACK);
+            graphics.fillRect(badge[0], badge[1], badge[2], badge[3]);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Кодирует кадр в PNG.
+     *
+     * @author Сергей Лужин
+     */
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,99 @@
+package helpers;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тесты учёта поисков {@link LazyElement} в {@link LookupStats} на заглушке WebDriver без браузера.
+ *
+ * @author Сергей Лужин
+ */
+public class LazyElementTests {
+
+    /**
+     * Запросы поиска элемента к заглушке.
+     *
+     * @author Сергей Лужин
+     */
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    /**
+     * Проверяет, что элемент ищется один раз, а сэкономленный поиск учитывается
+     * один раз на каждый шаг, переиспользующий найденный элемент, сколько бы методов
+     * элемента ни вызывалось в шаге.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Поиск элементов")
+    @DisplayName("Сэкономленный поиск учитывается один раз на шаг")
+    public void testAvoidedLookupCountedOncePerStep() {
+        LookupStats.reset();
+        WebElement button = LazyElement.of(new Waiter(stubDriver()), "ym.search.button");
+
+        Allure.step("Первый шаг: элемент ищется", () -> {
+            button.click();
+            button.click();
+        });
+        Allure.step("Второй шаг: элемент переиспользуется", () -> {
+            button.click();
+            button.sendKeys("ноутбук");
+            ((WrapsElement) button).getWrappedElement();
+        });
+        Allure.step("Третий шаг: элемент переиспользуется", () -> button.click());
+        LookupStats stats = LookupStats.current();
+        LookupStats.reset();
+
+        Assertions.assertTrue(lookups.get() == 1, "Элемент искался " + lookups.get() + " раз");
+        Assertions.assertTrue(stats.getLookups() == 1 && stats.getAvoidedLookups() == 2,
+                "Учтено: " + stats + " вместо 1 выполненного и 2 сэкономленных поисков");
+    }
+
+    /**
+     * Создаёт заглушку WebDriver: поиск элемента возвращает видимый элемент,
+     * методы которого ничего не делают.
+     *
+     * @author Сергей Лужин
+     */
+    private WebDriver stubDriver() {
+        WebElement element = (WebElement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebElement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isDisplayed":
+                            return true;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Заглушка элемента";
+                        default:
+                            return null;
+                    }
+                });
+        return (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebDriver.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findElement":
+                            lookups.incrementAndGet();
+                            return element;
+                        case "toString":
+                            return "Заглушка WebDriver";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,59 @@
+package helpers;
+
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static helpers.Properties.xpathProperties;
+
+/**
+ * Тесты учёта неиспользованных ключей {@link LocatorRegistry}.
+ * Каждый тест создаёт свой реестр, чтобы не зависеть от запросов других тестов.
+ *
+ * @author Сергей Лужин
+ */
+public class LocatorRegistryTests {
+
+    /**
+     * Проверяет, что ключ перестаёт считаться неиспользованным после запроса
+     * локатора любым способом, в том числе повторного запроса из кэша,
+     * а список неиспользованных ключей записывается в файл.
+     *
+     * @param directory каталог файла списка
+     * @throws IOException если файл списка не удалось прочитать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Реестр локаторов")
+    @DisplayName("Запрошенные ключи исключаются из списка неиспользованных")
+    public void testRequestedKeysAreNotReportedUnused(@TempDir Path directory) throws IOException {
+        LocatorRegistry registry = new LocatorRegistry(xpathProperties);
+        List<String> before = registry.unusedKeys();
+
+        registry.by("ym.card.on.all.pages");
+        registry.by("ym.card.on.all.pages");
+        registry.first("ym.cards.on.page", 1);
+        registry.xpath("ym.card.title.addon");
+        List<String> after = registry.unusedKeys();
+
+        Path file = directory.resolve("unused-locators.txt");
+        registry.writeUnusedKeys(file);
+        List<String> written = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+        Assertions.assertTrue(before.contains("ym.card.on.all.pages") && before.contains("ym.cards.on.page")
+                        && before.contains("ym.card.title.addon"),
+                "Незапрошенные ключи не считаются неиспользованными: " + before);
+        Assertions.assertTrue(after.size() == before.size() - 3 && !after.contains("ym.card.on.all.pages")
+                        && !after.contains("ym.cards.on.page") && !after.contains("ym.card.title.addon"),
+                "После запросов неиспользованными остались " + after);
+        Assertions.assertTrue(written.equals(after), "В файл записаны ключи " + written + " вместо " + after);
+    }
+}
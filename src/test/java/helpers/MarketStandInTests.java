@@ -0,0 +1,107 @@
+package helpers;
+
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandexmarket.FixtureServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+/**
+ * Тесты записи и воспроизведения ответов {@link MarketStandIn}.
+ *
+ * Вместо Яндекс Маркета ответы записываются с {@link FixtureServer},
+ * поэтому тесты не обращаются к сети и не запускают браузер.
+ *
+ * @author Сергей Лужин
+ */
+public class MarketStandInTests {
+
+    /**
+     * HTTP-клиент, играющий роль браузера.
+     *
+     * @author Сергей Лужин
+     */
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    /**
+     * Проверяет, что ответ, записанный в режиме записи, воспроизводится без исходного сервера,
+     * а запрос, которого не было при записи, получает 404 и учитывается как ненайденный.
+     *
+     * @param directory каталог записей
+     * @throws Exception если запрос к локальному серверу не выполнился
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Замена Яндекс Маркета")
+    @DisplayName("Записанный ответ воспроизводится без исходного сервера")
+    public void testRecordThenReplay(@TempDir Path directory) throws Exception {
+        String siteUrl = FixtureServer.url("");
+
+        MarketStandIn recorder = new MarketStandIn(MarketStandIn.Mode.RECORD, siteUrl, directory, 0);
+        HttpResponse<String> recorded;
+        try {
+            recorded = get(recorder.localUrl() + "/serp.html?count=3");
+        } finally {
+            recorder.stop();
+        }
+
+        MarketStandIn replayer = new MarketStandIn(MarketStandIn.Mode.REPLAY, "http://localhost:1/", directory, 0);
+        try {
+            HttpResponse<String> replayed = get(replayer.localUrl() + "/serp.html?count=3");
+            HttpResponse<String> unknown = get(replayer.localUrl() + "/serp.html?count=4");
+
+            Assertions.assertTrue(recorded.statusCode() == 200, "При записи получен статус " + recorded.statusCode());
+            Assertions.assertTrue(recorder.toString().contains("записано 1"), "Ответ не записан: " + recorder);
+            Assertions.assertTrue(replayed.statusCode() == 200, "При воспроизведении получен статус " + replayed.statusCode());
+            Assertions.assertTrue(replayed.body().equals(recorded.body()), "Воспроизведённый ответ отличается от записанного");
+            Assertions.assertTrue(replayed.headers().firstValue("Content-Type").orElse("").startsWith("text/html"),
+                    "Тип содержимого не воспроизведён: " + replayed.headers().firstValue("Content-Type"));
+            Assertions.assertTrue(unknown.statusCode() == 404, "Для незаписанного запроса получен статус " + unknown.statusCode());
+            Assertions.assertTrue(replayer.toString().contains("не найдено записей 1"), "Промах не учтён: " + replayer);
+        } finally {
+            replayer.stop();
+        }
+    }
+
+    /**
+     * Проверяет, что запрос, который не удалось переслать, получает 502 и учитывается как ошибка.
+     *
+     * @param directory каталог записей
+     * @throws Exception если запрос к локальному серверу не выполнился
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Замена Яндекс Маркета")
+    @DisplayName("Ошибка пересылки учитывается в статистике")
+    public void testForwardingFailureIsCounted(@TempDir Path directory) throws Exception {
+        MarketStandIn recorder = new MarketStandIn(MarketStandIn.Mode.RECORD, "http://localhost:1/", directory, 0);
+        try {
+            HttpResponse<String> response = get(recorder.localUrl() + "/serp.html");
+
+            Assertions.assertTrue(response.statusCode() == 502, "Получен статус " + response.statusCode() + " вместо 502");
+            Assertions.assertTrue(recorder.toString().contains("ошибок 1"), "Ошибка не учтена: " + recorder);
+            Assertions.assertTrue(recorder.toString().contains("Последняя ошибка: GET /serp.html"),
+                    "Нет описания ошибки: " + recorder);
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    /**
+     * Выполняет GET-запрос.
+     *
+     * @author Сергей Лужин
+     */
+    private HttpResponse<String> get(String url) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
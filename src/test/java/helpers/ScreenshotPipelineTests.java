@@ -0,0 +1,180 @@
+package helpers;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.Feature;
+import io.qameta.allure.model.Attachment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Тесты очереди {@link ScreenshotPipeline}: порядок записи кадров и поведение
+ * при переполнении очереди в политиках {@link ScreenshotPipeline.QueuePolicy#BLOCK}
+ * и {@link ScreenshotPipeline.QueuePolicy#DROP_OLDEST}.
+ *
+ * Фоновый поток записи задерживается на первом кадре отсевом повторов,
+ * который ждёт разрешения теста, поэтому очередь заполняется предсказуемо.
+ * Кадры прикрепляются к самому тесту в отчёте Allure.
+ *
+ * @author Сергей Лужин
+ */
+public class ScreenshotPipelineTests {
+
+    /**
+     * Проверяет, что кадры записываются в порядке снятия, а поток теста при заполненной
+     * очереди в политике BLOCK ждёт, пока фоновый поток не освободит место.
+     *
+     * @throws Exception если кадр не удалось подготовить или ожидание прервано
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("BLOCK: кадры записываются по порядку, поток теста ждёт места в очереди")
+    public void testBlockPolicyKeepsAllFramesInOrder() throws Exception {
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(1, ScreenshotPipeline.QueuePolicy.BLOCK, pngEncoder());
+        GatedDeduplicator gate = new GatedDeduplicator("block-");
+        List<String> frames = Arrays.asList("block-1", "block-2", "block-3", "block-4");
+
+        pipeline.submit(frames.get(0), frame(1), gate);
+        Assertions.assertTrue(gate.entered.await(5, TimeUnit.SECONDS), "Фоновый поток не взял первый кадр");
+        pipeline.submit(frames.get(1), frame(2), gate);
+
+        AtomicBoolean released = new AtomicBoolean();
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            released.set(true);
+            gate.release.countDown();
+        });
+        releaser.start();
+        pipeline.submit(frames.get(2), frame(3), gate);
+        boolean waitedForRoom = released.get();
+        pipeline.submit(frames.get(3), frame(4), gate);
+        pipeline.flush();
+
+        Assertions.assertTrue(waitedForRoom, "Кадр поставлен в заполненную очередь без ожидания");
+        Assertions.assertTrue(gate.order.equals(frames), "Порядок записи " + gate.order + " вместо " + frames);
+        Assertions.assertTrue(attachmentNames().containsAll(frames), "Не все кадры остались в отчёте: " + attachmentNames());
+    }
+
+    /**
+     * Проверяет, что в политике DROP_OLDEST при заполненной очереди вытесняются
+     * самые старые ожидающие кадры, их вложения убираются из отчёта,
+     * а количество вытесненных кадров прикрепляется к тесту.
+     *
+     * @throws Exception если кадр не удалось подготовить или ожидание прервано
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("DROP_OLDEST: из заполненной очереди вытесняются самые старые кадры")
+    public void testDropOldestPolicyEvictsOldestFrames() throws Exception {
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(2, ScreenshotPipeline.QueuePolicy.DROP_OLDEST, pngEncoder());
+        GatedDeduplicator gate = new GatedDeduplicator("drop-");
+
+        pipeline.submit("drop-1", frame(1), gate);
+        Assertions.assertTrue(gate.entered.await(5, TimeUnit.SECONDS), "Фоновый поток не взял первый кадр");
+        for (int i = 2; i <= 5; i++) {
+            pipeline.submit("drop-" + i, frame(i), gate);
+        }
+        gate.release.countDown();
+        pipeline.flush();
+
+        List<String> names = attachmentNames();
+        Assertions.assertTrue(gate.order.equals(Arrays.asList("drop-1", "drop-4", "drop-5")),
+                "Записаны кадры " + gate.order + " вместо [drop-1, drop-4, drop-5]");
+        Assertions.assertTrue(names.containsAll(Arrays.asList("drop-1", "drop-4", "drop-5"))
+                        && !names.contains("drop-2") && !names.contains("drop-3"),
+                "В отчёте остались вложения " + names);
+        Assertions.assertTrue(names.contains("Незаписанные скриншоты"), "Нет сведений о вытесненных кадрах: " + names);
+    }
+
+    /**
+     * Возвращает кодировщик, сохраняющий кадры в PNG без изменений размера.
+     *
+     * @author Сергей Лужин
+     */
+    private static ScreenshotEncoder pngEncoder() {
+        return new ScreenshotEncoder(ScreenshotEncoder.Format.PNG, 1.0, 1.0f, false);
+    }
+
+    /**
+     * Возвращает PNG-кадр, яркость пикселей которого равна его номеру.
+     *
+     * @author Сергей Лужин
+     */
+    private static byte[] frame(int number) throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(number, number, number));
+        graphics.fillRect(0, 0, 8, 8);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Возвращает названия вложений выполняющегося теста Allure.
+     *
+     * @author Сергей Лужин
+     */
+    private static List<String> attachmentNames() {
+        List<String> names = new ArrayList<>();
+        Allure.getLifecycle().getCurrentTestCase().ifPresent(uuid ->
+                Allure.getLifecycle().updateTestCase(uuid, result ->
+                        names.addAll(result.getAttachments().stream().map(Attachment::getName).collect(Collectors.toList()))));
+        return names;
+    }
+
+    /**
+     * Отсев повторов, который ничего не отсеивает, а запоминает порядок кадров,
+     * дошедших до фонового потока, и задерживает поток на первом кадре до разрешения теста.
+     *
+     * @author Сергей Лужин
+     */
+    private static class GatedDeduplicator extends FrameDeduplicator {
+        private final String prefix;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        private GatedDeduplicator(String prefix) {
+            super(0);
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean isDuplicate(byte[] png) {
+            try {
+                int number = ImageIO.read(new ByteArrayInputStream(png)).getRGB(0, 0) & 0xFF;
+                entered.countDown();
+                release.await();
+                order.add(prefix + number);
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return false;
+        }
+    }
+}
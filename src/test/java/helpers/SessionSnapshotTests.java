@@ -0,0 +1,230 @@
+package helpers;
+
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.json.Json;
+import ru.yandexmarket.FixtureServer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static helpers.Properties.testProperties;
+
+/**
+ * Тесты проверки пригодности {@link SessionSnapshot}: снимки записываются в файл
+ * для сайта {@link FixtureServer} и читаются без браузера. Снятие и восстановление
+ * снимка в браузере проверяет {@code ru.yandexmarket.SessionSnapshotFixtureTests}.
+ *
+ * @author Сергей Лужин
+ */
+public class SessionSnapshotTests {
+
+    /**
+     * Проверяет, что свежий снимок пригоден для своего сайта, а для того же сервера
+     * под другим именем хоста считается устаревшим.
+     *
+     * @param directory каталог файла снимка
+     * @throws IOException если файл снимка не удалось записать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Снимок сессии")
+    @DisplayName("Снимок другого сайта считается устаревшим")
+    public void testOriginMismatchIsStale(@TempDir Path directory) throws IOException {
+        String url = FixtureServer.url("serp.html");
+        String otherHostUrl = url.replace("://localhost:", "://127.0.0.1:");
+        SessionSnapshot snapshot = snapshot(directory, origin(url), System.currentTimeMillis(), Collections.emptyList());
+
+        String reason = snapshot.staleReason(otherHostUrl);
+
+        Assertions.assertTrue(snapshot.staleReason(url) == null, "Свежий снимок непригоден: " + snapshot.staleReason(url));
+        Assertions.assertTrue(reason != null && reason.contains(origin(otherHostUrl)),
+                "Снимок другого сайта пригоден или причина не названа: " + reason);
+    }
+
+    /**
+     * Проверяет, что снимок старше {@link TestProperties#sessionSnapshotTtlHours()} часов считается устаревшим.
+     *
+     * @param directory каталог файла снимка
+     * @throws IOException если файл снимка не удалось записать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Снимок сессии")
+    @DisplayName("Снимок старше допустимого возраста считается устаревшим")
+    public void testOldSnapshotIsStale(@TempDir Path directory) throws IOException {
+        String url = FixtureServer.url("serp.html");
+        long capturedAt = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(testProperties.sessionSnapshotTtlHours() + 1);
+        SessionSnapshot snapshot = snapshot(directory, origin(url), capturedAt, Collections.emptyList());
+
+        String reason = snapshot.staleReason(url);
+
+        Assertions.assertTrue(reason != null && reason.contains("допустимо " + testProperties.sessionSnapshotTtlHours() + " ч"),
+                "Старый снимок пригоден или причина не названа: " + reason);
+    }
+
+    /**
+     * Проверяет, что снимок с истёкшей cookie считается устаревшим,
+     * а cookie без срока или с неистёкшим сроком на пригодность не влияют.
+     *
+     * @param directory каталог файла снимка
+     * @throws IOException если файл снимка не удалось записать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Снимок сессии")
+    @DisplayName("Снимок с истёкшей cookie считается устаревшим")
+    public void testExpiredCookieIsStale(@TempDir Path directory) throws IOException {
+        String url = FixtureServer.url("serp.html");
+        long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        Map<String, Object> session = cookie("session", null);
+        Map<String, Object> region = cookie("region", nowSeconds + 3600);
+        Map<String, Object> consent = cookie("consent", nowSeconds - 60);
+
+        SessionSnapshot valid = snapshot(directory.resolve("valid"), origin(url), System.currentTimeMillis(),
+                Arrays.asList(session, region));
+        SessionSnapshot expired = snapshot(directory.resolve("expired"), origin(url), System.currentTimeMillis(),
+                Arrays.asList(session, region, consent));
+
+        Assertions.assertTrue(valid.staleReason(url) == null, "Снимок без истёкших cookies непригоден: " + valid.staleReason(url));
+        Assertions.assertTrue("истёк срок cookie consent".equals(expired.staleReason(url)),
+                "Причина устаревания: " + expired.staleReason(url));
+    }
+
+    /**
+     * Проверяет, что сохранённый снимок читается с тем же содержимым,
+     * а отсутствующий файл даёт null.
+     *
+     * @param directory каталог файла снимка
+     * @throws IOException если файл снимка не удалось записать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Снимок сессии")
+    @DisplayName("Снимок сохраняется и читается из файла")
+    public void testSaveThenLoad(@TempDir Path directory) throws IOException {
+        String url = FixtureServer.url("serp.html");
+        SessionSnapshot snapshot = snapshot(directory, origin(url), System.currentTimeMillis(),
+                Collections.singletonList(cookie("region", null)));
+
+        Path copy = directory.resolve("copy").resolve("session-snapshot.json");
+        snapshot.save(copy);
+        SessionSnapshot loaded = SessionSnapshot.load(copy);
+
+        Assertions.assertTrue(loaded != null && loaded.toString().equals(snapshot.toString()),
+                "Прочитан снимок " + loaded + " вместо " + snapshot);
+        Assertions.assertTrue(SessionSnapshot.load(directory.resolve("missing.json")) == null,
+                "Для отсутствующего файла получен снимок");
+    }
+
+    /**
+     * Проверяет, что обрезанный, исправленный вручную и записанный в старом формате
+     * файлы снимка читаются без ошибок как устаревшие снимки с названной причиной,
+     * а новый снимок перезаписывает такой файл.
+     *
+     * @param directory каталог файлов снимка
+     * @throws IOException если файл снимка не удалось записать
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Снимок сессии")
+    @DisplayName("Неразборчивый файл снимка считается устаревшим и перезаписывается")
+    public void testUnreadableFileIsStale(@TempDir Path directory) throws IOException {
+        String url = FixtureServer.url("serp.html");
+        SessionSnapshot fresh = snapshot(directory.resolve("fresh"), origin(url), System.currentTimeMillis(),
+                Collections.singletonList(cookie("region", null)));
+        String freshJson = new String(Files.readAllBytes(directory.resolve("fresh").resolve("session-snapshot.json")),
+                StandardCharsets.UTF_8);
+
+        Map<String, String> broken = new LinkedHashMap<>();
+        broken.put("обрезанный", freshJson.substring(0, freshJson.length() / 2));
+        broken.put("пустой", "");
+        broken.put("capturedAt строкой", freshJson.replaceFirst("\"capturedAt\": *\\d+", "\"capturedAt\": \"вчера\""));
+        broken.put("срок cookie строкой", freshJson.replaceFirst("\"path\"", "\"expiry\": \"завтра\", \"path\""));
+        broken.put("старый формат", "{\"cookies\": [{\"name\": \"region\", \"value\": \"213\"}]}");
+        broken.put("массив", "[]");
+
+        int index = 0;
+        for (Map.Entry<String, String> entry : broken.entrySet()) {
+            Path file = directory.resolve("broken-" + index++ + ".json");
+            Files.write(file, entry.getValue().getBytes(StandardCharsets.UTF_8));
+
+            SessionSnapshot loaded = SessionSnapshot.load(file);
+            String reason = loaded == null ? null : loaded.staleReason(url);
+            Assertions.assertTrue(reason != null && reason.contains(file.toString()),
+                    "Файл '" + entry.getKey() + "' прочитан как " + loaded + ", причина: " + reason);
+
+            fresh.save(file);
+            SessionSnapshot rewritten = SessionSnapshot.load(file);
+            Assertions.assertTrue(rewritten != null && rewritten.staleReason(url) == null,
+                    "Файл '" + entry.getKey() + "' не перезаписан новым снимком: " + rewritten);
+        }
+    }
+
+    /**
+     * Записывает файл снимка и читает его.
+     *
+     * @author Сергей Лужин
+     */
+    private static SessionSnapshot snapshot(Path directory, String origin, long capturedAt,
+                                            List<Map<String, Object>> cookies) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("origin", origin);
+        json.put("capturedAt", capturedAt);
+        json.put("cookies", cookies);
+        json.put("localStorage", Collections.singletonMap("theme", "light"));
+
+        Files.createDirectories(directory);
+        Path file = directory.resolve("session-snapshot.json");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(new Json().toJson(json));
+        }
+        return SessionSnapshot.load(file);
+    }
+
+    /**
+     * Возвращает cookie в формате снимка.
+     *
+     * @param name   имя cookie
+     * @param expiry срок действия (в секундах с начала эпохи) или null
+     *
+     * @author Сергей Лужин
+     */
+    private static Map<String, Object> cookie(String name, Long expiry) {
+        Map<String, Object> cookie = new LinkedHashMap<>();
+        cookie.put("name", name);
+        cookie.put("value", "1");
+        cookie.put("path", "/");
+        if (expiry != null) {
+            cookie.put("expiry", expiry);
+        }
+        return cookie;
+    }
+
+    /**
+     * Возвращает схему, хост и порт адреса.
+     *
+     * @author Сергей Лужин
+     */
+    private static String origin(String url) {
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+}
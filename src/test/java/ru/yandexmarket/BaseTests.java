@@ -1,15 +1,32 @@
 package ru.yandexmarket;
 
+import helpers.CommandStats;
 import helpers.DriverFactory;
+import helpers.DriverPool;
+import helpers.LeanProfile;
+import helpers.LeanProfileReport;
+import helpers.LookupStats;
+import helpers.MarketStandIn;
+import helpers.ScreenshotOnFailureExtension;
+import helpers.Screenshoter;
+import helpers.Timeline;
+import helpers.WaitStats;
+import io.qameta.allure.Allure;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.remote.CapabilityType;
 import org.openqa.selenium.remote.DesiredCapabilities;
+import steps.Steps;
 
-import java.util.concurrent.TimeUnit;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
 
+import static helpers.Properties.locators;
 import static helpers.Properties.testProperties;
 
 /**
@@ -19,8 +36,16 @@ import static helpers.Properties.testProperties;
  * Все тестовые классы наследуются от данного класса, чтобы использовать
  * единые настройки драйвера, таймауты и логику закрытия браузера.
  *
+ * Тесты могут выполняться параллельно (см. junit-platform.properties):
+ * каждый экземпляр тестового класса получает собственный браузер,
+ * привязанный к потоку выполнения.
+ *
+ * Если скриншоты снимаются в режиме ON_FAILURE, {@link ScreenshotOnFailureExtension}
+ * прикрепляет к отчёту последние кадры упавшего теста.
+ *
  * @author Сергей Лужин
  */
+@ExtendWith(ScreenshotOnFailureExtension.class)
 public class BaseTests {
 
     /**
@@ -30,41 +55,143 @@ public class BaseTests {
      */
     protected WebDriver driver;
 
+    /**
+     * Признак облегчённого профиля браузера текущего теста.
+     *
+     * @author Сергей Лужин
+     */
+    protected boolean leanProfile;
+
+    /**
+     * Метод, выполняемый перед тестами класса.
+     *
+     * Если тесты работают с записанными ответами Яндекс Маркета
+     * ({@link helpers.TestProperties#marketMode()}), запускает их локальную замену
+     * и подменяет адрес Маркета в настройках (см. {@link MarketStandIn}).
+     *
+     * @author Сергей Лужин
+     */
+    @BeforeAll
+    public static void startMarketStandIn() {
+        MarketStandIn.start();
+    }
+
     /**
      * Метод, выполняемый перед каждым тестом.
      *
-     * Создаёт экземпляр WebDriver через {@link DriverFactory},
-     * разворачивает окно браузера на весь экран и задаёт
-     * неявное ожидание, заданное в тестовых настройках.
+     * Арендует экземпляр WebDriver через {@link DriverFactory}
+     * (из пула заранее запущенных браузеров, если пул включён),
+     * и разворачивает окно браузера на весь экран.
+     * Профиль браузера задаётся аннотацией {@link LeanProfile} теста или класса,
+     * а без неё - настройкой {@link helpers.TestProperties#leanProfileEnabled()}.
+     * Неявное ожидание не задаётся: все ожидания выполняет {@link helpers.Waiter}.
+     *
+     * @param testInfo сведения о запускаемом тесте
      *
      * @author Сергей Лужин
      */
     @BeforeEach
-    public void before() {
+    public void before(TestInfo testInfo) {
         //DesiredCapabilities capabilities = new DesiredCapabilities();
         //capabilities.setCapability(CapabilityType.PAGE_LOAD_STRATEGY,"none");
 
         //driver = new ChromeDriver(capabilities);
 
-        driver = DriverFactory.create();
+        leanProfile = isLeanProfile(testInfo);
+        driver = DriverFactory.lease(leanProfile);
         driver.manage().window().maximize();
-        driver.manage().timeouts().implicitlyWait(testProperties.defaultTimeout(), TimeUnit.SECONDS);
     }
 
     /**
      * Метод, выполняемый после каждого теста.
      *
-     * Завершает работу WebDriver, закрывая браузер.
+     * Дожидается записи скриншотов теста в отчёт и прикрепляет к отчёту Allure
+     * время команд WebDriver и временную шкалу теста; время команд также добавляется
+     * в JSON-файл запуска, а шкала записывается в файл. По шкале обновляется сравнение
+     * времени шагов в обычном и облегчённом профилях ({@link LeanProfileReport}),
+     * которое тоже прикрепляется к отчёту. Время команд и шкала собираются до освобождения
+     * браузера, чтобы в них не попали команды очистки и закрытия браузера.
+     *
+     * Затем отвязывает драйвер от шагов текущего потока и освобождает браузер:
+     * возвращает его в пул или закрывает, если пул выключен. Метрики пула,
+     * счётчики поиска элементов и время ожиданий прикрепляются к отчёту Allure.
+     *
+     * @param testInfo сведения о завершившемся тесте
      *
      * @author Сергей Лужин
      */
     @AfterEach
-    public void after() {
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+    public void after(TestInfo testInfo) {
+        Screenshoter.flush();
+
+        String test = testInfo.getTestClass().map(Class::getSimpleName).orElse("")
+                + "." + testInfo.getTestMethod().map(Method::getName).orElse("") + ": " + testInfo.getDisplayName();
+
+        CommandStats commandStats = CommandStats.current();
+        Allure.addAttachment("Команды WebDriver", "text/csv", commandStats.toCsv(), ".csv");
+        commandStats.publish(test);
+        CommandStats.reset();
+
+        if (Timeline.isEnabled()) {
+            String timeline = Timeline.current().toJson();
+            Timeline.write(test, timeline);
+            Allure.addAttachment("Временная шкала (chrome://tracing, Perfetto)", "application/json", timeline, ".json");
+            Allure.addAttachment("Обычный и облегчённый профили браузера", "text/csv",
+                    LeanProfileReport.record(leanProfileScenario(testInfo, test), leanProfile, Timeline.current()), ".csv");
+        }
+        Timeline.reset();
+
+        Steps.releaseDriver();
+        DriverFactory.release();
+
+        DriverPool.Metrics poolMetrics = DriverFactory.poolMetrics();
+        if (poolMetrics != null) {
+            Allure.addAttachment("Пул браузеров", poolMetrics.toString());
+        }
+
+        if (MarketStandIn.getInstance() != null) {
+            Allure.addAttachment("Замена Яндекс Маркета", MarketStandIn.getInstance().toString());
         }
-        driver.quit();
+
+        Allure.addAttachment("Поиск элементов страницы", LookupStats.current().toString());
+        LookupStats.reset();
+
+        Allure.addAttachment("Ожидания", "text/csv", WaitStats.current().toCsv(), ".csv");
+        WaitStats.reset();
+
+        locators.writeUnusedKeys(Paths.get(testProperties.locatorsUnusedFile()));
+    }
+
+    /**
+     * Определяет профиль браузера теста: аннотация {@link LeanProfile} метода,
+     * затем класса теста, затем настройка по умолчанию.
+     *
+     * @param testInfo сведения о тесте
+     * @return true, если тест работает в облегчённом профиле
+     *
+     * @author Сергей Лужин
+     */
+    private static boolean isLeanProfile(TestInfo testInfo) {
+        return testInfo.getTestMethod().map(method -> method.getAnnotation(LeanProfile.class))
+                .or(() -> testInfo.getTestClass().map(testClass -> testClass.getAnnotation(LeanProfile.class)))
+                .map(LeanProfile::value)
+                .orElse(testProperties.leanProfileEnabled());
+    }
+
+    /**
+     * Возвращает название сценария теста для сравнения профилей браузера:
+     * {@link LeanProfile#scenario()} метода теста, а без него - название самого теста.
+     *
+     * @param testInfo сведения о тесте
+     * @param test     название теста
+     * @return название сценария
+     *
+     * @author Сергей Лужин
+     */
+    private static String leanProfileScenario(TestInfo testInfo, String test) {
+        return testInfo.getTestMethod().map(method -> method.getAnnotation(LeanProfile.class))
+                .map(LeanProfile::scenario)
+                .filter(scenario -> !scenario.isEmpty())
+                .orElse(test);
     }
 }
@@ -0,0 +1,153 @@
+package ru.yandexmarket;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Локальный HTTP-сервер с тестовыми страницами.
+ *
+ * Отдаёт файлы из ресурсов src/test/resources/fixtures, чтобы тесты
+ * page object можно было запускать без обращения к Яндекс Маркету.
+ * По адресам /api/ отвечает пустым JSON с задержкой из параметра delay
+ * (в миллисекундах), имитируя медленный запрос новой выдачи.
+ * Сервер запускается при первом обращении на свободном порту
+ * и работает до завершения JVM.
+ *
+ * @author Сергей Лужин
+ */
+public class FixtureServer {
+
+    /**
+     * Запущенный сервер или null, если он ещё не запускался.
+     *
+     * @author Сергей Лужин
+     */
+    private static HttpServer server;
+
+    /**
+     * Возвращает адрес тестовой страницы на локальном сервере,
+     * при необходимости запуская сервер.
+     *
+     * @param path путь к странице относительно каталога fixtures, может содержать параметры запроса
+     * @return полный URL страницы
+     *
+     * @author Сергей Лужин
+     */
+    public static synchronized String url(String path) {
+        if (server == null) {
+            start();
+        }
+        return "http://localhost:" + server.getAddress().getPort() + "/" + path;
+    }
+
+    /**
+     * Запускает сервер на свободном порту.
+     *
+     * @author Сергей Лужин
+     */
+    private static void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/", FixtureServer::serveFixture);
+        server.createContext("/api/", FixtureServer::serveDelayed);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fixture-server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    /**
+     * Отдаёт файл из каталога fixtures в ресурсах тестов.
+     *
+     * @param exchange HTTP-запрос и ответ
+     * @throws IOException если ответ не удалось отправить
+     *
+     * @author Сергей Лужин
+     */
+    private static void serveFixture(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        try (InputStream resource = FixtureServer.class.getResourceAsStream("/fixtures" + path)) {
+            if (resource == null || path.contains("..")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = resource.readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", contentType(path));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Отвечает пустым JSON-объектом после задержки из параметра запроса delay.
+     *
+     * @param exchange HTTP-запрос и ответ
+     * @throws IOException если ответ не удалось отправить
+     *
+     * @author Сергей Лужин
+     */
+    private static void serveDelayed(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        long delay = 0;
+        if (query != null && query.startsWith("delay=")) {
+            delay = Long.parseLong(query.substring("delay=".length()));
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", contentType(".json"));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Определяет тип содержимого по расширению файла.
+     *
+     * @param path путь к файлу
+     * @return значение заголовка Content-Type
+     *
+     * @author Сергей Лужин
+     */
+    private static String contentType(String path) {
+        if (path.endsWith(".html")) {
+            return "text/html; charset=UTF-8";
+        }
+        if (path.endsWith(".js")) {
+            return "application/javascript; charset=UTF-8";
+        }
+        if (path.endsWith(".json")) {
+            return "application/json; charset=UTF-8";
+        }
+        if (path.endsWith(".svg")) {
+            return "image/svg+xml";
+        }
+        return "application/octet-stream";
+    }
+}
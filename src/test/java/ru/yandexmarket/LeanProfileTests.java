@@ -0,0 +1,126 @@
+package ru.yandexmarket;
+
+import helpers.Assertions;
+import helpers.LeanProfile;
+import helpers.Waiter;
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import pages.ProductCard;
+
+import java.util.List;
+
+import static helpers.Properties.testProperties;
+import static steps.Steps.chooseCategory;
+import static steps.Steps.harvestProductCards;
+import static steps.Steps.openSite;
+
+/**
+ * Тесты облегчённого профиля браузера.
+ *
+ * Проверяют на локальной странице, что облегчённый профиль не загружает изображения,
+ * а обычный загружает, и проходят один и тот же сценарий на Яндекс Маркете в обоих
+ * профилях под общим названием сценария, чтобы сравнение времени шагов
+ * ({@link helpers.LeanProfileReport}) сопоставило замеры одного сценария.
+ *
+ * @author Сергей Лужин
+ */
+public class LeanProfileTests extends BaseTests {
+
+    /**
+     * Скрипт получения ширины загруженного изображения страницы:
+     * null, пока загрузка не закончена, 0 - если изображение не загружено.
+     *
+     * @author Сергей Лужин
+     */
+    private static final String PICTURE_WIDTH_SCRIPT =
+            "var img = document.getElementById('picture'); return img.complete ? img.naturalWidth : null;";
+
+    /**
+     * Проверяет, что в облегчённом профиле изображения не загружаются, а текст страницы доступен.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @LeanProfile
+    @Feature("Облегчённый профиль браузера")
+    @DisplayName("Облегчённый профиль не загружает изображения")
+    public void testLeanProfileBlocksImages() {
+        openSite(FixtureServer.url("lean.html"), driver);
+
+        long width = pictureWidth();
+
+        Assertions.assertTrue(width == 0, "Изображение загружено в облегчённом профиле: ширина " + width);
+        Assertions.assertTrue(driver.getTitle().equals("Облегчённый профиль"), "Страница не открылась: " + driver.getTitle());
+    }
+
+    /**
+     * Проверяет, что в обычном профиле изображения загружаются.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @LeanProfile(false)
+    @Feature("Облегчённый профиль браузера")
+    @DisplayName("Обычный профиль загружает изображения")
+    public void testFullProfileLoadsImages() {
+        openSite(FixtureServer.url("lean.html"), driver);
+
+        long width = pictureWidth();
+
+        Assertions.assertTrue(width == 40, "Ширина изображения в обычном профиле " + width + " вместо 40");
+    }
+
+    /**
+     * Проходит сценарий выбора категории и сбора карточек в облегчённом профиле.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @LeanProfile(scenario = "Каталог ноутбуков")
+    @Feature("Облегчённый профиль браузера")
+    @DisplayName("Каталог в облегчённом профиле")
+    public void testCatalogInLeanProfile() {
+        checkCatalog();
+    }
+
+    /**
+     * Проходит тот же сценарий, что {@link #testCatalogInLeanProfile()}, в обычном профиле.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @LeanProfile(value = false, scenario = "Каталог ноутбуков")
+    @Feature("Облегчённый профиль браузера")
+    @DisplayName("Каталог в обычном профиле")
+    public void testCatalogInFullProfile() {
+        checkCatalog();
+    }
+
+    /**
+     * Открывает Яндекс Маркет, переходит в категорию ноутбуков и проверяет,
+     * что карточки товаров собраны и у всех есть названия.
+     *
+     * @author Сергей Лужин
+     */
+    private void checkCatalog() {
+        openSite(testProperties.yandexMarketUrl(), driver);
+        chooseCategory("Электроника", "Ноутбуки");
+        List<ProductCard> productCards = harvestProductCards();
+
+        Assertions.assertTrue(!productCards.isEmpty(), "Карточки товаров не найдены");
+        Assertions.assertTrue(productCards.stream().noneMatch(card -> card.getTitle().isEmpty()),
+                "Не у всех карточек есть название");
+    }
+
+    /**
+     * Ждёт окончания загрузки изображения страницы и возвращает его ширину.
+     *
+     * @author Сергей Лужин
+     */
+    private long pictureWidth() {
+        return new Waiter(driver).until("picture.complete", Waiter.budget("picture.complete"),
+                d -> (Long) ((JavascriptExecutor) d).executeScript(PICTURE_WIDTH_SCRIPT));
+    }
+}
@@ -0,0 +1,322 @@
+package ru.yandexmarket;
+
+import helpers.Assertions;
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pages.CardsLoadResult;
+import pages.ProductCard;
+import pages.TitleSearchResult;
+import pages.YandexMarketBasePage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static helpers.Properties.locators;
+import static steps.Steps.checkProductCardsMatchFilters;
+import static steps.Steps.getDriver;
+import static steps.Steps.harvestResultPages;
+import static steps.Steps.openSite;
+import static steps.Steps.setFilters;
+
+/**
+ * Тесты page object на локальных копиях страниц Яндекс Маркета.
+ *
+ * Страницы отдаёт {@link FixtureServer}, поэтому тесты не зависят
+ * от сети и содержимого живого сайта и сравнивают разные способы
+ * получения данных со страницы на заранее известной выдаче.
+ *
+ * @author Сергей Лужин
+ */
+public class PageObjectFixtureTests extends BaseTests {
+
+    /**
+     * Проверяет, что названия товаров, собранные одним вызовом JavaScript,
+     * совпадают с названиями, собранными по одной карточке через WebDriver.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Пакетное и поэлементное получение названий товаров совпадают")
+    public void testBulkTitlesMatchPerElementTitles() {
+        openSite(FixtureServer.url("serp.html?count=100"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+
+        List<String> bulkTitles = page.getAllProductCardTitles();
+        List<String> perElementTitles = page.getAllProductCardTitlesFromList(page.getAllProductCardsOnPage());
+
+        Assertions.assertTrue(bulkTitles.size() == 100, "Пакетно получено " + bulkTitles.size() + " названий вместо 100");
+        Assertions.assertTrue(bulkTitles.equals(perElementTitles),
+                "Названия различаются: пакетно " + bulkTitles + ", поэлементно " + perElementTitles);
+    }
+
+    /**
+     * Проверяет локаторы с подстановкой номера из реестра локаторов: карточки
+     * одной порции выдачи и заголовок карточки по её номеру на странице.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Локаторы порции выдачи и заголовка по номеру карточки")
+    public void testIndexedLocators() {
+        openSite(FixtureServer.url("serp.html?count=40&lazy=20&delay=0"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+        page.loadProductCardsUntilStable();
+
+        List<String> titles = page.getAllProductCardTitles();
+
+        int secondChunk = getDriver().findElements(locators.by("ym.cards.on.page", 2)).size();
+        String title21 = getDriver().findElement(locators.by("ym.card.title.by.index", 21)).getText();
+
+        Assertions.assertTrue(secondChunk == 20, "Во второй порции " + secondChunk + " карточек вместо 20");
+        Assertions.assertTrue(title21.equals(titles.get(20)),
+                "Заголовок 21-й карточки '" + title21 + "' вместо '" + titles.get(20) + "'");
+    }
+
+    /**
+     * Проверяет, что подгрузка до стабилизации списка дожидается всех порций
+     * карточек, которые страница догружает при прокрутке, и сообщает их количество.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Подгрузка карточек до стабилизации списка загружает всю выдачу")
+    public void testLoadUntilStableLoadsAllLazyCards() {
+        openSite(FixtureServer.url("serp.html?count=100&lazy=20&delay=200"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+
+        CardsLoadResult result = page.loadProductCardsUntilStable();
+
+        Assertions.assertTrue(result.isStable(), "Список карточек не стабилизировался: " + result);
+        Assertions.assertTrue(result.getCards() == 100, "Скрипт насчитал " + result.getCards() + " карточек вместо 100");
+        Assertions.assertTrue(page.getAllProductCardsOnPage().size() == 100,
+                "На странице " + page.getAllProductCardsOnPage().size() + " карточек вместо 100");
+    }
+
+    /**
+     * Проверяет, что после изменения фильтров page object дожидается
+     * перерисовки выдачи, когда сервер отвечает на запрос новой выдачи с задержкой:
+     * сразу после установки фильтров на странице должны быть только подходящие товары.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Фильтры дожидаются перерисовки выдачи после медленного ответа сервера")
+    public void testFiltersWaitForReRenderedResults() {
+        openSite(FixtureServer.url("serp.html?count=100&api=1500"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+
+        page.setFilterPriceMin(30000);
+        page.clickBrandCheckbox(List.of("HP"));
+        List<String> titles = page.getAllProductCardTitles();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 5 == 1 && 5000 + (i * 3779) % 40000 >= 30000) {
+                expected.add("Ноутбук HP Model " + i);
+            }
+        }
+        Assertions.assertTrue(titles.equals(expected), "На странице " + titles + " вместо " + expected);
+    }
+
+    /**
+     * Проверяет, что установка фильтров через блок фильтров и одним переходом
+     * по адресу с параметрами даёт одинаковую выдачу.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Фильтры через интерфейс и через адрес каталога дают одинаковую выдачу")
+    public void testUrlFiltersMatchUiFilters() {
+        List<String> brands = List.of("Lenovo", "HP");
+
+        openSite(FixtureServer.url("serp.html?count=100"), driver);
+        setFilters(10000, 20000, brands, YandexMarketBasePage.FilterMode.UI);
+        List<String> uiTitles = new YandexMarketBasePage(getDriver()).getAllProductCardTitles();
+
+        openSite(FixtureServer.url("serp.html?count=100"), driver);
+        setFilters(10000, 20000, brands, YandexMarketBasePage.FilterMode.URL);
+        List<String> urlTitles = new YandexMarketBasePage(getDriver()).getAllProductCardTitles();
+
+        Assertions.assertTrue(!uiTitles.isEmpty() && uiTitles.size() < 100,
+                "Фильтры через интерфейс не сузили выдачу: " + uiTitles.size() + " товаров");
+        Assertions.assertTrue(urlTitles.equals(uiTitles),
+                "Выдача различается: через адрес " + urlTitles + ", через интерфейс " + uiTitles);
+    }
+
+    /**
+     * Проверяет, что поиск товара при прокрутке останавливается на найденной карточке,
+     * не догружая выдачу до конца, а для отсутствующего товара просматривает всю выдачу.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Поиск товара при прокрутке останавливается на найденной карточке")
+    public void testFindTitleWhileScrollingStopsEarly() {
+        openSite(FixtureServer.url("serp.html?count=100&lazy=20&delay=200"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+
+        TitleSearchResult found = page.findProductTitleWhileScrolling("Ноутбук Acer Model 33");
+
+        Assertions.assertTrue(found.getPosition() == 34, "Товар найден не в 34-й карточке: " + found);
+        Assertions.assertTrue(page.getAllProductCardsOnPage().size() < 100,
+                "Выдача догружена до конца, хотя товар был в начале: " + found);
+
+        TitleSearchResult missing = page.findProductTitleWhileScrolling("Ноутбук Acer Model 1000");
+
+        Assertions.assertTrue(!missing.isFound() && missing.getCheckedTitles() == 100,
+                "Отсутствующий товар искался не по всей выдаче: " + missing);
+    }
+
+    /**
+     * Проверяет, что сбор карточек за один проход прокрутки возвращает всю выдачу
+     * в исходном порядке и без повторов, даже если виртуализированный список
+     * удаляет со страницы карточки, ушедшие с экрана.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Сбор карточек за один проход не теряет карточки виртуализированной выдачи")
+    public void testHarvestKeepsCardsOfVirtualizedList() {
+        openSite(FixtureServer.url("serp.html?count=100&lazy=20&delay=100&virtual=1"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+
+        List<ProductCard> cards = page.harvestProductCards();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("/product/p" + i);
+        }
+        List<String> ids = new ArrayList<>();
+        cards.forEach(card -> ids.add(card.getId()));
+
+        Assertions.assertTrue(ids.equals(expected), "Собраны карточки " + ids + " вместо " + expected);
+        Assertions.assertTrue(page.getAllProductCardsOnPage().size() < 100,
+                "Выдача не виртуализирована: на странице " + page.getAllProductCardsOnPage().size() + " карточек");
+    }
+
+    /**
+     * Проверяет снимок карточек одним вызовом JavaScript: после фильтров через адрес
+     * цена и бренд каждой карточки соответствуют фильтрам, цена читается без следующей
+     * за ней старой цены, а проверка с более строгими фильтрами находит несоответствия.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Снимок карточек содержит цену и бренд, соответствующие фильтрам")
+    public void testCardSnapshotMatchesFilters() {
+        openSite(FixtureServer.url("serp.html?count=100"), driver);
+        setFilters(10000, 20000, List.of("Lenovo", "HP"), YandexMarketBasePage.FilterMode.URL);
+        List<ProductCard> cards = new YandexMarketBasePage(getDriver()).snapshotProductCards();
+
+        Assertions.assertTrue(!cards.isEmpty(), "Снимок не содержит карточек");
+        checkProductCardsMatchFilters(cards, 10000, 20000, List.of("Lenovo", "HP"));
+
+        for (ProductCard card : cards) {
+            int i = Integer.parseInt(card.getId().substring("/product/p".length()));
+            int expectedPrice = 5000 + (i * 3779) % 40000;
+            Assertions.assertTrue(card.getPrice() != null && card.getPrice() == expectedPrice,
+                    "Цена карточки " + card.getId() + " " + card.getPrice() + " вместо " + expectedPrice);
+            Assertions.assertTrue(card.unknownFields() == null, "Не определены данные карточки " + card.unknownFields());
+        }
+
+        long violations = cards.stream()
+                .filter(card -> card.filterViolation(15000, 20000, List.of("HP")) != null)
+                .count();
+        Assertions.assertTrue(violations > 0, "Проверка с более строгими фильтрами не нашла несоответствий");
+    }
+
+    /**
+     * Проверяет сбор карточек со страниц выдачи с предзагрузкой в фоновых вкладках:
+     * карточки всех страниц идут по порядку, обход останавливается на пустой странице,
+     * а после обхода в браузере остаётся только исходная вкладка.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Сбор карточек со страниц выдачи с предзагрузкой в фоновых вкладках")
+    public void testResultPagesArePrefetchedInOrder() {
+        openSite(FixtureServer.url("serp.html?count=20&pages=3"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+
+        List<String> ids;
+        try (Stream<ProductCard> cards = page.streamResultPages()) {
+            ids = cards.map(ProductCard::getId).collect(Collectors.toList());
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            expected.add("/product/p" + i);
+        }
+        Assertions.assertTrue(ids.equals(expected), "Собраны карточки " + ids + " вместо " + expected);
+        Assertions.assertTrue(getDriver().getWindowHandles().size() == 1,
+                "После обхода открыто вкладок: " + getDriver().getWindowHandles().size());
+    }
+
+    /**
+     * Проверяет сбор карточек со страниц выдачи, которые подгружают карточки порциями
+     * при прокрутке: с каждой страницы собираются все порции, а не только первая.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Сбор карточек со страниц выдачи, подгружаемых порциями")
+    public void testResultPagesReadEveryLazyChunk() {
+        openSite(FixtureServer.url("serp.html?count=30&pages=2&lazy=10&delay=50"), driver);
+
+        List<String> ids = harvestResultPages().stream().map(ProductCard::getId).collect(Collectors.toList());
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            expected.add("/product/p" + i);
+        }
+        Assertions.assertTrue(ids.equals(expected), "Собраны карточки " + ids + " вместо " + expected);
+        Assertions.assertTrue(getDriver().getWindowHandles().size() == 1,
+                "После обхода открыто вкладок: " + getDriver().getWindowHandles().size());
+    }
+
+    /**
+     * Сравнивает чтение названий товаров из снимка разметки с чтением через элементы WebDriver:
+     * результаты совпадают, в том числе для названий с неразрывным пробелом,
+     * снимок переиспользуется до сброса и снимается заново
+     * после действия, меняющего выдачу. Время обоих способов замеряется
+     * в {@code PageReadBenchmarks}.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Page object на локальной выдаче")
+    @DisplayName("Снимок разметки даёт те же названия, что и элементы WebDriver, и сбрасывается после действий")
+    public void testDomSnapshotMatchesLiveElements() {
+        openSite(FixtureServer.url("serp.html?count=100"), driver);
+        YandexMarketBasePage page = new YandexMarketBasePage(getDriver());
+
+        List<String> liveTitles = page.getAllProductCardTitlesFromList(page.getAllProductCardsOnPage());
+        List<String> snapshotTitles = page.getDomSnapshot().getProductCardTitles();
+
+        Assertions.assertTrue(liveTitles.size() == 100, "Через элементы получено " + liveTitles.size() + " названий вместо 100");
+        Assertions.assertTrue(snapshotTitles.equals(liveTitles),
+                "Названия различаются: из снимка " + snapshotTitles + ", через элементы " + liveTitles);
+        Assertions.assertTrue(snapshotTitles.get(7).equals("Ноутбук ASUS Model 7"),
+                "Неразрывный пробел в названии из снимка не заменён обычным: '" + snapshotTitles.get(7) + "'");
+        Assertions.assertTrue(page.getDomSnapshot() == page.getDomSnapshot(), "Снимок разметки не переиспользуется");
+
+        page.setFilterPriceMin(30000);
+        List<String> filteredTitles = page.getDomSnapshot().getProductCardTitles();
+
+        Assertions.assertTrue(filteredTitles.equals(page.getAllProductCardTitles()) && filteredTitles.size() < 100,
+                "Снимок не обновился после фильтра: " + filteredTitles);
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandexmarket;
+
+import helpers.Assertions;
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static helpers.Properties.testProperties;
+import static steps.Steps.getDriver;
+import static steps.Steps.openSite;
+
+/**
+ * Проверка параллельного запуска сценариев.
+ *
+ * Запускает столько сценариев, сколько потоков задано в
+ * {@link helpers.TestProperties#parallelThreads()}, и проверяет,
+ * что каждый сценарий работает в собственной сессии браузера,
+ * пока его сессия занята одновременно с сессией другого сценария.
+ *
+ * Остальные классы тестов выполняются параллельно с этим и занимают те же потоки
+ * и браузеры пула, поэтому одновременный запуск всех сценариев не требуется:
+ * каждому сценарию достаточно пересечься по времени хотя бы с одним соседом.
+ * Сценарий, нашедший соседа, держит свою сессию, пока не запустятся все сценарии,
+ * чтобы последнему запущенному тоже было с кем пересечься.
+ *
+ * @author Сергей Лужин
+ */
+public class ParallelSessionTests extends BaseTests {
+
+    /**
+     * Монитор, под которым меняется состояние сценариев и ждут соседей.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * Идентификаторы сессий, занятых выполняющимися сейчас сценариями.
+     * Браузер из пула может достаться следующему сценарию, поэтому
+     * сессия освобождается по завершении сценария.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Set<String> sessionsInUse = new HashSet<>();
+
+    /**
+     * Идентификаторы сессий, которые были заняты одновременно с сессией другого сценария.
+     *
+     * @author Сергей Лужин
+     */
+    private static final Set<String> overlappedSessions = new HashSet<>();
+
+    /**
+     * Количество сценариев, занявших свою сессию.
+     *
+     * @author Сергей Лужин
+     */
+    private static int startedScenarios;
+
+    /**
+     * Возвращает номера сценариев - по одному на каждый поток.
+     *
+     * @return поток номеров сценариев
+     *
+     * @author Сергей Лужин
+     */
+    public static Stream<Integer> scenarios() {
+        return IntStream.rangeClosed(1, testProperties.parallelThreads()).boxed();
+    }
+
+    /**
+     * Каждый сценарий открывает страницу со своим заголовком, помечает окно
+     * своим номером, занимает свою сессию и, дождавшись соседа, занявшего
+     * другую сессию в то же время, проверяет, что шаги работают с его браузером,
+     * а метка окна не перезаписана соседями.
+     *
+     * Соседа сценарий ждёт столько, сколько может ждать браузера из пула,
+     * плюс таймаут по умолчанию.
+     *
+     * @param scenario номер сценария
+     *
+     * @author Сергей Лужин
+     */
+    @Feature("Параллельный запуск сценариев")
+    @DisplayName("Сценарий сохраняет собственную сессию браузера: ")
+    @ParameterizedTest(name = "{displayName}: {arguments}")
+    @MethodSource("scenarios")
+    public void testScenarioKeepsOwnSession(int scenario) throws InterruptedException {
+        openSite("data:text/html,<title>scenario-" + scenario + "</title>", driver);
+        ((JavascriptExecutor) getDriver()).executeScript("window.name = arguments[0];", "scenario-" + scenario);
+        String sessionId = ((RemoteWebDriver) ((WrapsDriver) driver).getWrappedDriver()).getSessionId().toString();
+
+        synchronized (lock) {
+            Assertions.assertTrue(sessionsInUse.add(sessionId), "Сессия " + sessionId + " уже используется другим сценарием");
+            startedScenarios++;
+            if (sessionsInUse.size() > 1 || testProperties.parallelThreads() == 1) {
+                overlappedSessions.addAll(sessionsInUse);
+            }
+            lock.notifyAll();
+        }
+        try {
+            long timeoutSeconds = testProperties.poolLeaseTimeout() + testProperties.defaultTimeout();
+            boolean overlapped = awaitNeighbour(sessionId, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+
+            Assertions.assertTrue(overlapped, "За " + timeoutSeconds + " с сессия сценария " + scenario
+                    + " ни разу не была занята одновременно с сессией другого сценария: сценарии выполняются не параллельно");
+            Assertions.assertTrue(getDriver() == driver, "Шаги сценария " + scenario + " работают с чужим драйвером");
+            Assertions.assertTrue(
+                    ("scenario-" + scenario).equals(((JavascriptExecutor) getDriver()).executeScript("return window.name;")),
+                    "Окно сценария " + scenario + " было изменено другим сценарием"
+            );
+            Assertions.assertTrue(getDriver().getTitle().equals("scenario-" + scenario), "Заголовок страницы сценария " + scenario + " был изменён");
+        } finally {
+            synchronized (lock) {
+                sessionsInUse.remove(sessionId);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Ждёт, пока сессия не окажется занятой одновременно с сессией другого сценария
+     * и не запустятся все сценарии.
+     *
+     * @param sessionId     идентификатор сессии сценария
+     * @param timeoutMillis время ожидания (в миллисекундах)
+     * @return true, если сессия пересеклась с сессией другого сценария
+     * @throws InterruptedException если ожидание прервано
+     *
+     * @author Сергей Лужин
+     */
+    private static boolean awaitNeighbour(String sessionId, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            while (!overlappedSessions.contains(sessionId) || startedScenarios < testProperties.parallelThreads()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                lock.wait(remaining);
+            }
+            return overlappedSessions.contains(sessionId);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandexmarket;
+
+import helpers.Assertions;
+import helpers.ScreenshotEncoder;
+import io.qameta.allure.Allure;
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static steps.Steps.openSite;
+
+/**
+ * Сравнение профилей кодирования скриншотов.
+ *
+ * Снимает несколько кадров локальной выдачи {@link FixtureServer} и перекодирует
+ * их с разными настройками {@link ScreenshotEncoder}: кадры не зависят от сети
+ * и содержимого живого сайта, поэтому таблицы разных прогонов сопоставимы. Средний размер кадра
+ * и время кодирования для каждого профиля прикрепляются к отчёту Allure
+ * таблицей, по которой можно выбрать профиль для окружения.
+ *
+ * @author Сергей Лужин
+ */
+public class ScreenshotEncodingTests extends BaseTests {
+
+    /**
+     * Количество кадров, снимаемых для сравнения.
+     *
+     * @author Сергей Лужин
+     */
+    private static final int FRAMES = 5;
+
+    /**
+     * Сравниваемые профили кодирования.
+     *
+     * @author Сергей Лужин
+     */
+    private static final List<ScreenshotEncoder> PROFILES = Arrays.asList(
+            new ScreenshotEncoder(ScreenshotEncoder.Format.PNG, 1.0, 1.0f, false),
+            new ScreenshotEncoder(ScreenshotEncoder.Format.PNG, 0.5, 1.0f, false),
+            new ScreenshotEncoder(ScreenshotEncoder.Format.JPEG, 1.0, 0.85f, false),
+            new ScreenshotEncoder(ScreenshotEncoder.Format.JPEG, 0.5, 0.75f, false),
+            new ScreenshotEncoder(ScreenshotEncoder.Format.JPEG, 0.5, 0.6f, true),
+            new ScreenshotEncoder(ScreenshotEncoder.Format.JPEG, 0.25, 0.6f, true)
+    );
+
+    /**
+     * Снимает кадры, прокручивая страницу, кодирует их каждым профилем,
+     * проверяет, что результат читается как изображение, и прикрепляет
+     * к отчёту таблицу с размером кадра и временем кодирования.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Скриншоты")
+    @DisplayName("Сравнение профилей кодирования скриншотов")
+    public void testCompareEncodingProfiles() throws IOException {
+        openSite(FixtureServer.url("serp.html?count=100"), driver);
+
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < FRAMES; i++) {
+            frames.add(((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES));
+            ((JavascriptExecutor) driver).executeScript("window.scrollBy(0, window.innerHeight);");
+        }
+
+        StringBuilder table = new StringBuilder("Профиль;Байт на кадр;Мс на кадр;Доля от PNG\n");
+        long pngBytes = 0;
+        for (ScreenshotEncoder profile : PROFILES) {
+            long bytes = 0;
+            long nanos = 0;
+            for (byte[] frame : frames) {
+                long start = System.nanoTime();
+                byte[] encoded = profile.encode(frame);
+                nanos += System.nanoTime() - start;
+                bytes += encoded.length;
+
+                Assertions.assertTrue(ImageIO.read(new ByteArrayInputStream(encoded)) != null,
+                        "Кадр в профиле " + profile + " не читается как изображение");
+            }
+            if (pngBytes == 0) {
+                pngBytes = bytes;
+            }
+            table.append(String.format(Locale.ROOT, "\"%s\";%d;%.1f;%.2f%n",
+                    profile.toString().replace("\"", "\"\""), bytes / FRAMES, nanos / 1e6 / FRAMES, (double) bytes / pngBytes));
+        }
+
+        Allure.addAttachment("Профили кодирования скриншотов", "text/csv", table.toString(), ".csv");
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandexmarket;
+
+import helpers.Assertions;
+import helpers.SessionSnapshot;
+import io.qameta.allure.Allure;
+import io.qameta.allure.Feature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+
+import static steps.Steps.openSite;
+
+/**
+ * Тесты снятия и восстановления {@link SessionSnapshot} на локальном сайте {@link FixtureServer}.
+ *
+ * @author Сергей Лужин
+ */
+public class SessionSnapshotFixtureTests extends BaseTests {
+
+    /**
+     * Проверяет, что cookies и localStorage, снятые со страницы, восстанавливаются
+     * в очищенный браузер и видны на странице того же сайта, а снимок пригоден
+     * для своего сайта и непригоден для того же сервера под другим именем хоста.
+     *
+     * @author Сергей Лужин
+     */
+    @Test
+    @Feature("Снимок сессии")
+    @DisplayName("Снятый снимок сессии восстанавливается в очищенный браузер")
+    public void testCaptureThenRestore() {
+        String url = FixtureServer.url("lean.html");
+        openSite(url, driver);
+        driver.manage().addCookie(new Cookie("region", "213", "/"));
+        ((JavascriptExecutor) driver).executeScript("window.localStorage.setItem('theme', 'dark');");
+
+        SessionSnapshot snapshot = SessionSnapshot.capture(driver);
+
+        driver.manage().deleteAllCookies();
+        ((JavascriptExecutor) driver).executeScript("window.localStorage.clear();");
+        String restored = snapshot.restore(driver);
+        Allure.addAttachment("Снимок сессии", restored);
+        openSite(url, driver);
+
+        Cookie region = driver.manage().getCookieNamed("region");
+        Object theme = ((JavascriptExecutor) driver).executeScript("return window.localStorage.getItem('theme');");
+
+        Assertions.assertTrue(region != null && region.getValue().equals("213"), "Cookie не восстановлена: " + region);
+        Assertions.assertTrue("dark".equals(theme), "Значение localStorage не восстановлено: " + theme);
+        Assertions.assertTrue(snapshot.staleReason(FixtureServer.url("serp.html")) == null,
+                "Снимок непригоден для своего сайта: " + snapshot.staleReason(FixtureServer.url("serp.html")));
+        Assertions.assertTrue(snapshot.staleReason(url.replace("://localhost:", "://127.0.0.1:")) != null,
+                "Снимок пригоден для другого сайта");
+    }
+}
@@ -5,7 +5,7 @@ import io.qameta.allure.Feature;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
-import org.openqa.selenium.WebElement;
+import pages.ProductCard;
 
 
 import java.util.List;
@@ -32,10 +32,12 @@ public class Tests extends BaseTests {
      * 2) Переходит в указанную категорию и подкатегорию.
      * 3) Проверяет, что заголовок страницы содержит название подкатегории.
      * 4) Устанавливает фильтр по цене и брендам.
-     * 5) Получает список карточек товаров и сохраняет одну по заданному индексу.
-     * 6) Ищет сохраненный товар через строку поиска.
-     * 7) Проверяет, что товар присутствует в результатах поиска.
-     * 8) Проверяет, что общее количество найденных товаров после первого перехода по категории больше заданного порога.
+     * 5) Собирает карточки товаров за один проход прокрутки и проверяет, что цена и бренд
+     *    каждой карточки соответствуют фильтрам.
+     * 6) Сохраняет название одной карточки по заданному индексу.
+     * 7) Ищет сохраненный товар через строку поиска.
+     * 8) Проверяет, что товар присутствует в результатах поиска.
+     * 9) Проверяет, что общее количество найденных товаров после первого перехода по категории больше заданного порога.
      *
      * @param category              основная категория каталога
      * @param subcategory           подкатегория каталога
@@ -56,10 +58,11 @@ public class Tests extends BaseTests {
         chooseCategory(category, subcategory);
         Assertions.assertTrue(driver.getTitle().contains(subcategory), "Тайтл " + driver.getTitle() + " на сайте не соответствует категории " + subcategory);
         setFilters(minPrice, maxPrice, brands);
-        List<WebElement> productCards = getAllProductCards();
-        String savedProductTitle = getProductName(productCards, checkedElementIndex);
+        List<ProductCard> productCards = harvestProductCards();
+        checkProductCardsMatchFilters(productCards, minPrice, maxPrice, brands);
+        String savedProductTitle = getProductTitle(productCards, checkedElementIndex);
         goBySearchQuery(savedProductTitle);
-        Assertions.assertTrue(getAllProductsTitles().contains(savedProductTitle), "Товар " + savedProductTitle + " не был найден на странице");
+        Assertions.assertTrue(findProductTitleWhileScrolling(savedProductTitle).isFound(), "Товар " + savedProductTitle + " не был найден на странице");
         Assertions.assertTrue(productCards.size() > checkedProductsAmount, "Тест прошел, но товаров в заданной категории было меньше " + checkedProductsAmount + ". Было найдено только " + productCards.size() + " товаров.");
     }
 